@@ -0,0 +1,135 @@
+package com.upme.service;
+
+import com.upme.model.TimeOrderedIds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 채팅 메시지 INSERT 왕복 수 비교 (실제 MySQL 필요)
+ * - identity: 기존 방식 (IDENTITY라 행마다 INSERT 후 생성된 키를 받아옴)
+ * - batched: 앱에서 정한 ID로 JDBC 배치 (rewriteBatchedStatements=true면 여러 행 INSERT 한 문장)
+ * 실행: ./gradlew jmh -PjmhIncludes=ChatMessageInsertBenchmark
+ *       -Dupme.bench.jdbc-url=jdbc:mysql://localhost:3306/upme -Dupme.bench.user=... -Dupme.bench.password=...
+ * 반복이 끝날 때마다 서버 Questions 증가량으로 호출당 왕복 수를 출력 (세션 임시 테이블 사용)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChatMessageInsertBenchmark {
+
+    private static final String INSERT_SQL = "INSERT INTO bench_chat_messages "
+            + "(id, conversation_id, role, content, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String IDENTITY_INSERT_SQL = "INSERT INTO bench_chat_messages "
+            + "(conversation_id, role, content, created_at) VALUES (?, ?, ?, ?)";
+
+    // saveMessages는 2건, 대량 적재(WordDataLoader 등)는 50건 단위
+    @Param({"2", "50"})
+    private int rows;
+
+    @Param({"identity", "batched"})
+    private String strategy;
+
+    private Connection connection;
+    private long questionsAtStart;
+    private long invocations;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = System.getProperty("upme.bench.jdbc-url");
+        if (url == null) {
+            throw new IllegalStateException("-Dupme.bench.jdbc-url로 MySQL 주소를 지정하세요.");
+        }
+        // 애플리케이션 밖이라 노드 번호를 빌리지 않음 (-Dupme.node-id로 지정하지 않았으면 0)
+        if (!TimeOrderedIds.isNodeConfigured()) {
+            TimeOrderedIds.assignNode(0);
+        }
+        String batchedUrl = url + (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+        connection = DriverManager.getConnection(batchedUrl,
+                System.getProperty("upme.bench.user", "root"), System.getProperty("upme.bench.password", ""));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TEMPORARY TABLE bench_chat_messages (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "conversation_id BIGINT NOT NULL, role VARCHAR(10) NOT NULL, content TEXT NOT NULL, "
+                    + "created_at DATETIME(6))");
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @Setup(Level.Iteration)
+    public void startCounting() throws SQLException {
+        questionsAtStart = questions();
+        invocations = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() throws SQLException {
+        // SHOW STATUS 자신의 1회는 제외
+        long roundTrips = questions() - questionsAtStart - 1;
+        System.out.printf("%n[%s, rows=%d] 호출당 왕복 %.1f회 (커밋 포함)%n",
+                strategy, rows, invocations == 0 ? 0.0 : (double) roundTrips / invocations);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void insert() throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        if (strategy.equals("identity")) {
+            try (PreparedStatement statement = connection.prepareStatement(IDENTITY_INSERT_SQL,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < rows; i++) {
+                    bind(statement, 1, i, now);
+                    statement.executeUpdate();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        keys.next();
+                    }
+                }
+            }
+        } else {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                for (int i = 0; i < rows; i++) {
+                    statement.setLong(1, TimeOrderedIds.next());
+                    bind(statement, 2, i, now);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+        connection.commit();
+        invocations++;
+    }
+
+    private static void bind(PreparedStatement statement, int index, int row, Timestamp now) throws SQLException {
+        statement.setLong(index, 1L);
+        statement.setString(index + 1, row % 2 == 0 ? "user" : "ai");
+        statement.setString(index + 2, "How was your weekend? I went hiking with my friends.");
+        statement.setTimestamp(index + 3, now);
+    }
+
+    private long questions() throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SHOW SESSION STATUS LIKE 'Questions'")) {
+            rs.next();
+            return rs.getLong(2);
+        }
+    }
+}
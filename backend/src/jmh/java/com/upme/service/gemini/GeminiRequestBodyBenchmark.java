@@ -0,0 +1,122 @@
+package com.upme.service.gemini;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upme.service.gemini.GeminiRequestWriter.Template;
+import com.upme.service.llm.LlmPrompt.Turn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회화 요청 바디 직렬화 비교
+ * - mapTree: 기존 방식 (요청마다 Map/List 트리 생성 → ObjectMapper 직렬화)
+ * - requestWriter: 고정 부분은 미리 인코딩, contents만 JsonGenerator로 풀 버퍼에 기록
+ * 실행: ./gradlew jmh (gc 프로파일러의 gc.alloc.rate.norm이 요청당 할당 바이트)
+ * 측정 예 (JDK 21, historySize 4 / 20): mapTree 5,128 / 16,936 B/op, requestWriter 711 / 1,159 B/op
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GeminiRequestBodyBenchmark {
+
+    @Param({"4", "20"})
+    private int historySize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private GeminiRequestWriter requestWriter;
+    private Template template;
+    private String systemPrompt;
+    private Map<String, Object> generationConfig;
+    private List<String[]> history;
+
+    @Setup
+    public void setUp() {
+        systemPrompt = """
+                You are a friendly and helpful English conversation partner for Korean learners.
+
+                RULES:
+                1. Always reply to the user IN ENGLISH for the conversation part.
+                2. If the user makes grammar mistakes, vocabulary errors, or unnatural expressions, provide feedback IN KOREAN.
+                3. Keep your English replies natural, encouraging, and at an intermediate level.
+                4. If the user's English is perfect, leave feedback empty.
+                5. Be conversational and ask follow-up questions to keep the chat going.
+
+                You MUST respond in the following JSON format ONLY (no markdown, no code blocks):
+                {"reply": "Your English conversation response here", "feedback": "한국어로 문법/단어 피드백 (없으면 빈 문자열)"}
+
+                IMPORTANT: Output ONLY the JSON object. No other text before or after it.
+
+                TOPIC: Daily conversation (일상 대화) - Talk about everyday life, hobbies, weather, food, etc.
+                """;
+        generationConfig = Map.of(
+                "temperature", 0.8,
+                "maxOutputTokens", 1024,
+                "responseMimeType", "application/json",
+                "responseSchema", Map.of(
+                        "type", "OBJECT",
+                        "properties", Map.of(
+                                "reply", Map.of("type", "STRING"),
+                                "feedback", Map.of("type", "STRING")),
+                        "required", List.of("reply", "feedback")));
+
+        requestWriter = new GeminiRequestWriter(objectMapper);
+        template = requestWriter.template("chat-topic-1", systemPrompt, generationConfig);
+
+        history = new ArrayList<>();
+        for (int i = 0; i < historySize; i++) {
+            history.add(i % 2 == 0
+                    ? new String[] {"user", "I goed to the park yesterday and it was very fun, I seen many dogs."}
+                    : new String[] {"ai", "That sounds lovely! What kind of dogs did you see? Do you have a dog yourself?"});
+        }
+    }
+
+    @Benchmark
+    public byte[] mapTree() throws Exception {
+        List<Map<String, Object>> contents = new ArrayList<>();
+        for (String[] item : history) {
+            String role = "user".equals(item[0]) ? "user" : "model";
+            contents.add(Map.of(
+                    "role", role,
+                    "parts", List.of(Map.of("text", item[1]))));
+        }
+        contents.add(Map.of(
+                "role", "user",
+                "parts", List.of(Map.of("text", "What should I cook for dinner tonight?"))));
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("system_instruction", Map.of("parts", List.of(Map.of("text", systemPrompt))));
+        body.put("contents", contents);
+        body.put("generationConfig", generationConfig);
+        return objectMapper.writeValueAsBytes(body);
+    }
+
+    @Benchmark
+    public int requestWriter() {
+        List<Turn> contents = new ArrayList<>(history.size() + 1);
+        for (String[] item : history) {
+            contents.add(new Turn("user".equals(item[0]) ? "user" : "model", item[1]));
+        }
+        contents.add(new Turn("user", "What should I cook for dinner tonight?"));
+
+        DataBuffer buffer = requestWriter.write(template, null, contents);
+        try {
+            return buffer.readableByteCount();
+        } finally {
+            // 실제 요청에서는 WebClient가 전송 후 반환
+            DataBufferUtils.release(buffer);
+        }
+    }
+}
@@ -2,11 +2,19 @@ package com.upme;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Map;
 
 @SpringBootApplication
+@EnableScheduling
 public class UpMeApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(UpMeApplication.class, args);
+        SpringApplication application = new SpringApplication(UpMeApplication.class);
+        // 프록시가 붙인 X-Forwarded-For 값으로 클라이언트 주소를 정함 (application.properties에 지정하면 그 값 사용)
+        // Tomcat이 오른쪽부터 신뢰하는 프록시(server.tomcat.remoteip.internal-proxies)를 건너뛰고 처음 만나는 주소를 사용
+        application.setDefaultProperties(Map.of("server.forward-headers-strategy", "native"));
+        application.run(args);
     }
 }
@@ -1,14 +1,78 @@
 package com.upme.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
 
 @Configuration
 public class AppConfig {
 
+    private static final int SCHEDULING_POOL_SIZE = 4;
+
+    // true이면 Tomcat 요청 처리(Spring Boot)와 아래 외부 호출/블로킹 작업을 가상 스레드에서 실행 (Java 21+)
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
     @Bean
     public RestTemplate restTemplate() {
-        return new RestTemplate();
+        if (!virtualThreadsEnabled) {
+            return new RestTemplate();
+        }
+
+        // HttpURLConnection 대신 JDK HttpClient 사용 (가상 스레드에서 carrier 스레드를 고정하지 않음)
+        HttpClient httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        return new RestTemplate(new JdkClientHttpRequestFactory(httpClient));
+    }
+
+    /**
+     * Reactive 파이프라인 안에서 JPA 등 블로킹 작업을 실행할 스케줄러
+     */
+    @Bean
+    public Scheduler blockingScheduler() {
+        if (virtualThreadsEnabled) {
+            return Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "virtual");
+        }
+        return Schedulers.boundedElastic();
+    }
+
+    /**
+     * @Scheduled 스레드 수 기본값 (spring.task.scheduling.pool.size를 지정하면 그 값 사용)
+     * Spring Boot 기본값은 1개라 오래 걸리는 주기 작업 하나가 지연 저장 flush(200ms) 등 다른 작업을 모두 멈춤
+     * (가상 스레드 사용 시에는 작업마다 새 가상 스레드라 해당 없음)
+     */
+    @Bean
+    public ThreadPoolTaskSchedulerCustomizer schedulingPoolCustomizer(
+            @Value("${spring.task.scheduling.pool.size:#{null}}") Integer configuredPoolSize) {
+        return scheduler -> {
+            if (configuredPoolSize == null) {
+                scheduler.setPoolSize(SCHEDULING_POOL_SIZE);
+            }
+        };
+    }
+
+    /**
+     * Hibernate JDBC 배치 기본값 (application.properties에 지정하면 그 값 사용)
+     * 엔티티 ID는 @TimeOrderedId로 앱에서 정하므로 같은 테이블 INSERT가 flush 때 배치로 묶임
+     */
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer() {
+        return properties -> {
+            properties.putIfAbsent("hibernate.jdbc.batch_size", "50");
+            properties.putIfAbsent("hibernate.order_inserts", "true");
+            properties.putIfAbsent("hibernate.order_updates", "true");
+        };
     }
 }
@@ -0,0 +1,92 @@
+package com.upme.config;
+
+import com.upme.service.gemini.GeminiReplayServer;
+import com.upme.service.gemini.GeminiTrafficRecorder;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Configuration
+public class GeminiConfig {
+
+    /**
+     * Gemini 전용 커넥션 풀
+     * - 유휴/수명 초과 커넥션은 백그라운드에서 정리 (서버가 먼저 끊은 커넥션을 요청에 쓰지 않도록)
+     * - LIFO로 최근에 쓴 커넥션부터 재사용해서 TLS 핸드셰이크를 줄임
+     * - reactor.netty.connection.provider.* 메트릭(name=gemini)으로 active/idle/pending 커넥션 수 노출
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider geminiConnectionProvider(
+            @Value("${gemini.http.pool.max-connections:50}") int maxConnections,
+            @Value("${gemini.http.pool.pending-acquire-max-count:200}") int pendingAcquireMaxCount,
+            @Value("${gemini.http.pool.pending-acquire-timeout-ms:5000}") long pendingAcquireTimeoutMs,
+            @Value("${gemini.http.pool.max-idle-ms:55000}") long maxIdleMs,
+            @Value("${gemini.http.pool.max-life-ms:300000}") long maxLifeMs,
+            @Value("${gemini.http.pool.evict-interval-ms:30000}") long evictIntervalMs) {
+        return ConnectionProvider.builder("gemini")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleMs))
+                .maxLifeTime(Duration.ofMillis(maxLifeMs))
+                .evictInBackground(Duration.ofMillis(evictIntervalMs))
+                .lifo()
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * Gemini API 호출용 WebClient
+     * 테스트에서는 gemini.api.base-url을 로컬 스텁 서버로 바꿔서 사용
+     * gemini.traffic.mode=record면 요청/응답을 녹화, replay면 내장 재생 서버로 요청 (GeminiReplayServer)
+     * HTTPS면 HTTP/2로 커넥션 하나에 여러 요청을 다중화 (ALPN 협상 실패 시 HTTP/1.1)
+     */
+    @Bean
+    public WebClient geminiWebClient(
+            ConnectionProvider geminiConnectionProvider,
+            ObjectProvider<GeminiTrafficRecorder> trafficRecorder,
+            ObjectProvider<GeminiReplayServer> replayServer,
+            @Value("${gemini.api.base-url:https://generativelanguage.googleapis.com}") String configuredBaseUrl,
+            @Value("${gemini.http.http2:true}") boolean http2,
+            @Value("${gemini.http.connect-timeout-ms:3000}") int connectTimeoutMs,
+            @Value("${gemini.http.read-timeout-ms:30000}") long readTimeoutMs,
+            @Value("${gemini.http.write-timeout-ms:10000}") long writeTimeoutMs) {
+        GeminiReplayServer replay = replayServer.getIfAvailable();
+        String baseUrl = replay != null ? replay.baseUrl() : configuredBaseUrl;
+
+        HttpClient httpClient = HttpClient.create(geminiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                // 응답 읽기 중 네트워크 read 사이 최대 대기 (요청 단위라 HTTP/2 스트림에도 적용)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs))
+                // 요청 전송 중에만 쓰기 타임아웃 적용 (응답이 끝나면 핸들러 제거)
+                .doOnRequest((request, connection) -> connection.addHandlerLast(
+                        new WriteTimeoutHandler(writeTimeoutMs, TimeUnit.MILLISECONDS)));
+
+        // h2는 TLS(ALPN)가 필요하므로 로컬 스텁(http)에는 HTTP/1.1 사용
+        if (http2 && baseUrl.startsWith("https")) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+        log.info("Gemini HTTP 클라이언트: {} (HTTP/2 {})", baseUrl, http2 && baseUrl.startsWith("https"));
+
+        WebClient.Builder builder = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient));
+        trafficRecorder.ifAvailable(builder::filter);
+        return builder.build();
+    }
+}
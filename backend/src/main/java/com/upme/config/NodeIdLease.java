@@ -0,0 +1,116 @@
+package com.upme.config;
+
+import com.upme.model.TimeOrderedIds;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+/**
+ * TimeOrderedIds 노드 번호를 DB(id_node_leases)에서 빌림 (UPME_NODE_ID를 지정하지 않은 경우)
+ * - 시작할 때 비어 있거나 만료된 번호 하나를 빌리고, 빌릴 번호가 없으면 시작 실패 (번호를 겹쳐 쓰지 않음)
+ * - ttl-seconds/3마다 만료 시각 연장, 연장에 실패하면(오래 멈춰서 다른 인스턴스가 가져감) 새 번호를 빌림
+ *   새 번호를 빌리지 못하면 노드 번호를 해제해 ID 발급을 멈추고(next() 예외) 다음 주기에 다시 빌림
+ * - 종료할 때 반납
+ * 테이블은 JPA(ddl-auto)가 만드므로 EntityManagerFactory 다음에 생성
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class NodeIdLease {
+
+    private static final String CLAIM_FREE_SQL = "INSERT IGNORE INTO id_node_leases (node_id, holder, expires_at) "
+            + "VALUES (?, ?, NOW(6) + INTERVAL ? SECOND)";
+    private static final String CLAIM_EXPIRED_SQL = "UPDATE id_node_leases SET holder = ?, "
+            + "expires_at = NOW(6) + INTERVAL ? SECOND WHERE node_id = ? AND expires_at < NOW(6)";
+    private static final String RENEW_SQL = "UPDATE id_node_leases SET expires_at = NOW(6) + INTERVAL ? SECOND "
+            + "WHERE node_id = ? AND holder = ?";
+    private static final String RELEASE_SQL = "DELETE FROM id_node_leases WHERE node_id = ? AND holder = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean leased;
+    private final long ttlSeconds;
+    private final String holder;
+    private volatile int nodeId = -1;
+
+    public NodeIdLease(
+            JdbcTemplate jdbcTemplate,
+            @Value("${upme.node-lease.ttl-seconds:60}") long ttlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlSeconds = ttlSeconds;
+        this.holder = hostName() + "/" + UUID.randomUUID();
+        this.leased = !TimeOrderedIds.isNodeConfigured();
+        if (leased) {
+            acquire();
+        } else {
+            log.info("ID 노드 번호는 UPME_NODE_ID 값 사용 (DB 임대 안 함)");
+        }
+    }
+
+    /**
+     * 임대 연장 (주기는 ttl의 1/3이라 한두 번 실패해도 만료 전에 다시 시도)
+     */
+    @Scheduled(fixedDelayString = "#{${upme.node-lease.ttl-seconds:60} * 1000 / 3}")
+    public void renew() {
+        if (!leased) {
+            return;
+        }
+        try {
+            if (nodeId < 0) {
+                acquire();
+            } else if (jdbcTemplate.update(RENEW_SQL, ttlSeconds, nodeId, holder) == 0) {
+                // 다른 인스턴스가 이미 같은 번호로 ID를 만들고 있을 수 있으므로 새로 빌리기 전에 먼저 해제
+                log.warn("ID 노드 번호 {} 임대를 잃음, 새 번호를 빌림", nodeId);
+                nodeId = -1;
+                TimeOrderedIds.releaseNode();
+                acquire();
+            }
+        } catch (DataAccessException e) {
+            log.warn("ID 노드 번호 임대 연장 실패, 다음 주기에 다시 시도: {}", e.getMessage());
+        } catch (IllegalStateException e) {
+            log.error("ID 노드 번호를 다시 빌리지 못해 ID 발급 중단, 다음 주기에 다시 시도: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        if (!leased || nodeId < 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(RELEASE_SQL, nodeId, holder);
+        } catch (DataAccessException e) {
+            log.warn("ID 노드 번호 반납 실패 (만료 후 재사용됨): {}", e.getMessage());
+        }
+    }
+
+    private void acquire() {
+        for (int candidate = 0; candidate <= TimeOrderedIds.MAX_NODE; candidate++) {
+            if (jdbcTemplate.update(CLAIM_FREE_SQL, candidate, holder, ttlSeconds) == 1
+                    || jdbcTemplate.update(CLAIM_EXPIRED_SQL, holder, ttlSeconds, candidate) == 1) {
+                nodeId = candidate;
+                TimeOrderedIds.assignNode(candidate);
+                log.info("ID 노드 번호 임대: {} ({})", candidate, holder);
+                return;
+            }
+        }
+        throw new IllegalStateException("빌릴 수 있는 ID 노드 번호가 없습니다 (0~" + TimeOrderedIds.MAX_NODE
+                + " 모두 사용 중). 인스턴스 수를 줄이거나 임대가 만료될 때까지 기다리세요.");
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
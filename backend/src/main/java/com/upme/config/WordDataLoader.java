@@ -24,6 +24,9 @@ public class WordDataLoader implements ApplicationRunner {
 
     private final WordRepository wordRepository;
 
+    // saveAll 한 번(트랜잭션 하나)에 넣는 단어 수 (hibernate.jdbc.batch_size 단위로 나눠 INSERT)
+    private static final int SAVE_CHUNK_SIZE = 500;
+
     // 첫 번째 한글 문자를 기준으로 영어/한국어 분리
     private static final Pattern KOREAN_SPLIT = Pattern.compile("^(.+?)\\s*([가-힣].*)$");
 
@@ -64,7 +67,10 @@ public class WordDataLoader implements ApplicationRunner {
             }
 
             if (!words.isEmpty()) {
-                wordRepository.saveAll(words);
+                // 묶음마다 커밋해서 영속성 컨텍스트가 전체 단어를 들고 있지 않도록
+                for (int from = 0; from < words.size(); from += SAVE_CHUNK_SIZE) {
+                    wordRepository.saveAll(words.subList(from, Math.min(from + SAVE_CHUNK_SIZE, words.size())));
+                }
                 log.info("단어 데이터 로딩 완료: {}개 저장됨", words.size());
             } else {
                 log.info("새로 저장할 단어가 없습니다.");
@@ -2,11 +2,15 @@ package com.upme.controller;
 
 import com.upme.dto.request.ChatRequest;
 import com.upme.dto.response.ChatResponse;
+import com.upme.security.CallerKeys;
+import com.upme.service.ConversationHistoryManager;
 import com.upme.service.GeminiService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.util.Map;
 
@@ -17,23 +21,29 @@ import java.util.Map;
 public class ChatController {
 
     private final GeminiService geminiService;
+    private final ConversationHistoryManager historyManager;
 
     /**
      * AI 회화 메시지 전송
      * POST /api/chat
+     * Gemini 응답을 기다리는 동안 요청 스레드를 반환하도록 Mono로 응답
      */
     @PostMapping
-    public ResponseEntity<ChatResponse> chat(@RequestBody ChatRequest request) {
+    public Mono<ResponseEntity<ChatResponse>> chat(@RequestBody ChatRequest request, HttpServletRequest httpRequest) {
         log.info("채팅 요청: topicId={}, message={}", request.getTopicId(),
                 request.getMessage().substring(0, Math.min(50, request.getMessage().length())));
 
-        ChatResponse response = geminiService.chat(request);
+        // 저장되지 않는 체험 모드 대화는 요약 없이 토큰 예산만 적용
+        historyManager.applyWindow(request);
 
-        log.info("AI 응답 완료: reply 길이={}, feedback 존재={}",
-                response.getReply().length(),
-                !response.getFeedback().isEmpty());
+        return geminiService.chat(request, CallerKeys.resolve(httpRequest))
+                .map(response -> {
+                    log.info("AI 응답 완료: reply 길이={}, feedback 존재={}",
+                            response.getReply().length(),
+                            !response.getFeedback().isEmpty());
 
-        return ResponseEntity.ok(response);
+                    return ResponseEntity.ok(response);
+                });
     }
 
     /**
@@ -2,11 +2,26 @@ package com.upme.controller;
 
 import com.upme.dto.request.CodeReviewRequest;
 import com.upme.dto.response.CodeReviewResponse;
+import com.upme.model.CodeReviewJob;
+import com.upme.security.CallerKeys;
+import com.upme.service.CodeReviewJobService;
 import com.upme.service.GeminiService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Slf4j
 @RestController
@@ -14,7 +29,11 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class CodeReviewController {
 
+    private static final Duration EVENT_HEARTBEAT = Duration.ofSeconds(15);
+    private static final Duration EVENT_TIMEOUT = Duration.ofMinutes(30);
+
     private final GeminiService geminiService;
+    private final CodeReviewJobService jobService;
 
     /**
      * AI 코드 리뷰 요청
@@ -22,14 +41,83 @@ public class CodeReviewController {
      * 인증 필요 (로그인 사용자만)
      */
     @PostMapping
-    public ResponseEntity<CodeReviewResponse> reviewCode(@RequestBody CodeReviewRequest request) {
+    public Mono<ResponseEntity<CodeReviewResponse>> reviewCode(
+            @RequestBody CodeReviewRequest request,
+            HttpServletRequest httpRequest) {
         log.info("코드 리뷰 요청: 문제 #{} ({}), 언어: {}",
                 request.getProblemId(), request.getProblemTitle(), request.getLanguage());
 
-        CodeReviewResponse response = geminiService.reviewCode(request);
+        return geminiService.reviewCode(request, CallerKeys.resolve(httpRequest))
+                .map(response -> {
+                    log.info("코드 리뷰 완료: summary 길이={}", response.getSummary().length());
+
+                    return ResponseEntity.ok(response);
+                });
+    }
+
+    /**
+     * 비동기 코드 리뷰 작업 등록 (바로 jobId 반환)
+     * POST /api/code-review/jobs?urgent=false 이면 배치 모드로 모아서 처리 (느리지만 저렴)
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> submitJob(
+            @RequestBody CodeReviewRequest request,
+            @RequestParam(defaultValue = "true") boolean urgent) {
+        CodeReviewJob job = jobService.submit(getCurrentUserId(), request, urgent);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(toMap(job));
+    }
 
-        log.info("코드 리뷰 완료: summary 길이={}", response.getSummary().length());
+    /**
+     * 작업 상태/결과 조회
+     * GET /api/code-review/jobs/{id}
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable Long id) {
+        return ResponseEntity.ok(toMap(jobService.getJob(id, getCurrentUserId())));
+    }
+
+    /**
+     * 작업 완료 알림 (SSE)
+     * GET /api/code-review/jobs/{id}/events
+     * 끝나면 "completed" 또는 "failed" 이벤트 하나를 보내고 종료, 그 전까지는 keep-alive 주석 전송
+     */
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Map<String, Object>>> jobEvents(@PathVariable Long id) {
+        Long userId = getCurrentUserId();
+
+        // 결과 이벤트와 keep-alive 종료 조건이 같은 구독을 공유하도록 cache
+        Mono<ServerSentEvent<Map<String, Object>>> result = jobService.awaitCompletion(id, userId)
+                .map(job -> ServerSentEvent.builder(toMap(job))
+                        .event(CodeReviewJob.COMPLETED.equals(job.getStatus()) ? "completed" : "failed")
+                        .build())
+                .cache();
+        Flux<ServerSentEvent<Map<String, Object>>> heartbeat = Flux.interval(EVENT_HEARTBEAT)
+                .map(tick -> ServerSentEvent.<Map<String, Object>>builder().comment("keep-alive").build());
+
+        return Flux.merge(result.flux(), heartbeat.takeUntilOther(result))
+                .take(EVENT_TIMEOUT);
+    }
+
+    private static Map<String, Object> toMap(CodeReviewJob job) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", job.getId());
+        map.put("status", job.getStatus());
+        map.put("batch", job.isBatchMode());
+        map.put("createdAt", job.getCreatedAt() != null ? job.getCreatedAt().toString() : null);
+        if (CodeReviewJob.COMPLETED.equals(job.getStatus())) {
+            map.put("result", new CodeReviewResponse(job.getSummary(), job.getStrengths(),
+                    job.getImprovements(), job.getTimeComplexity(), job.getTips()));
+        } else if (CodeReviewJob.FAILED.equals(job.getStatus())) {
+            map.put("error", job.getError());
+        }
+        if (job.getCompletedAt() != null) {
+            map.put("completedAt", job.getCompletedAt().toString());
+        }
+        return map;
+    }
 
-        return ResponseEntity.ok(response);
+    private Long getCurrentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return (Long) auth.getPrincipal();
     }
 }
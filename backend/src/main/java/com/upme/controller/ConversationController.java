@@ -2,20 +2,30 @@ package com.upme.controller;
 
 import com.upme.dto.request.ChatRequest;
 import com.upme.dto.response.ChatResponse;
+import com.upme.dto.response.ChatStreamEvent;
 import com.upme.model.ChatMessage;
 import com.upme.model.Conversation;
+import com.upme.security.CallerKeys;
+import com.upme.service.ConversationHistoryManager;
 import com.upme.service.ConversationService;
 import com.upme.service.GeminiService;
+import com.upme.service.search.ChatSearchIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @RestController
@@ -25,30 +35,50 @@ public class ConversationController {
 
     private final ConversationService conversationService;
     private final GeminiService geminiService;
+    private final ConversationHistoryManager historyManager;
+    private final Scheduler blockingScheduler;
 
     /**
-     * 내 대화 목록 조회
-     * GET /api/conversations
+     * 내 대화 목록 조회 (최근 대화부터, 커서 기반)
+     * GET /api/conversations?limit=20&cursor={이전 응답의 nextCursor}
+     * 응답: { conversations: [{ id, topicId, title, createdAt, updatedAt, messageCount, lastMessageRole,
+     * lastMessageSnippet }], hasMore, nextCursor }
      */
     @GetMapping
-    public ResponseEntity<List<Map<String, Object>>> getConversations() {
+    public ResponseEntity<Map<String, Object>> getConversations(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
         Long userId = getCurrentUserId();
-        List<Conversation> conversations = conversationService.getUserConversations(userId);
-
-        List<Map<String, Object>> result = conversations.stream()
-                .map(c -> Map.<String, Object>of(
-                        "id", c.getId(),
-                        "topicId", c.getTopicId() != null ? c.getTopicId() : 6,
-                        "title", c.getTitle() != null ? c.getTitle() : "대화",
-                        "createdAt", c.getCreatedAt() != null ? c.getCreatedAt().toString() : "",
-                        "updatedAt",
-                        c.getUpdatedAt() != null ? c.getUpdatedAt().toString()
-                                : c.getCreatedAt() != null ? c.getCreatedAt().toString() : ""))
-                .collect(Collectors.toList());
+        ConversationService.ConversationPage page = conversationService.getUserConversations(userId, cursor, limit);
 
+        Map<String, Object> result = new HashMap<>();
+        result.put("conversations", page.conversations());
+        result.put("hasMore", page.hasMore());
+        result.put("nextCursor", page.nextCursor());
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * 내 대화 메시지 검색 (본문과 AI 피드백, 영어/한국어, 관련도순)
+     * GET /api/conversations/search?q=since&page=0&size=20
+     * 응답: { hits: [{ messageId, conversationId, role, snippet, feedbackSnippet, createdAt, score }], page, hasMore }
+     * snippet은 HTML 이스케이프된 본문 일부이며 검색어 부분만 <mark>로 감쌈
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchMessages(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Long userId = getCurrentUserId();
+        ChatSearchIndex.SearchPage result = conversationService.searchMessages(userId, q, page, size);
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("hits", result.hits());
+        body.put("page", page);
+        body.put("hasMore", result.hasMore());
+        return ResponseEntity.ok(body);
+    }
+
     /**
      * 새 대화 생성
      * POST /api/conversations
@@ -67,54 +97,111 @@ public class ConversationController {
     }
 
     /**
-     * 대화 메시지 조회
-     * GET /api/conversations/{id}/messages
+     * 대화 메시지 조회 (최신 페이지부터, 커서 기반)
+     * GET /api/conversations/{id}/messages?limit=50&before={가장 오래된 메시지 ID}
+     * 응답: { messages: [오래된 것부터], hasMore, nextBefore, title(첫 페이지만) }
      */
     @GetMapping("/{id}/messages")
-    public ResponseEntity<List<Map<String, Object>>> getMessages(@PathVariable Long id) {
+    public ResponseEntity<Map<String, Object>> getMessages(
+            @PathVariable Long id,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "50") int limit) {
         Long userId = getCurrentUserId();
-        List<ChatMessage> messages = conversationService.getMessages(id, userId);
-
-        List<Map<String, Object>> result = messages.stream()
-                .map(m -> {
-                    Map<String, Object> map = new java.util.HashMap<>();
-                    map.put("id", m.getId());
-                    map.put("role", m.getRole());
-                    map.put("content", m.getContent());
-                    map.put("feedback", m.getFeedback());
-                    map.put("createdAt", m.getCreatedAt() != null ? m.getCreatedAt().toString() : "");
-                    return map;
-                })
-                .collect(Collectors.toList());
-
+        ConversationService.MessagePage page = conversationService.getMessages(id, userId, before, limit);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("messages", page.messages());
+        result.put("hasMore", page.hasMore());
+        result.put("nextBefore", page.hasMore() ? page.messages().get(0).id() : null);
+        if (page.title() != null) {
+            result.put("title", page.title());
+        }
         return ResponseEntity.ok(result);
     }
 
     /**
      * 메시지 전송 (유저 메시지 → AI 응답 → DB 저장)
      * POST /api/conversations/{id}/messages
+     * AI 응답 대기 중에는 요청 스레드를 점유하지 않음
      */
     @PostMapping("/{id}/messages")
-    public ResponseEntity<ChatResponse> sendMessage(
+    public Mono<ResponseEntity<ChatResponse>> sendMessage(
             @PathVariable Long id,
             @RequestBody ChatRequest request) {
 
         Long userId = getCurrentUserId();
 
-        // 본인 대화인지 확인 (getMessages에서 검증)
-        conversationService.getMessages(id, userId);
+        // 본인 대화인지 확인 + 서버의 최근 메시지 버퍼와 요약으로 히스토리 구성 (클라이언트는 새 메시지만 전송)
+        historyManager.prepare(request, id, userId);
+
+        // Gemini AI 호출 → DB에 메시지 저장 (JPA 호출이므로 별도 스레드에서)
+        return geminiService.chat(request, CallerKeys.forUser(userId))
+                .publishOn(blockingScheduler)
+                .map(response -> {
+                    List<ChatMessage> saved = conversationService.saveMessages(
+                            id,
+                            userId,
+                            request.getMessage(),
+                            response.getReply(),
+                            response.getFeedback());
+                    historyManager.onMessagesSaved(id, userId, saved);
+
+                    return ResponseEntity.ok(response);
+                });
+    }
 
-        // Gemini AI 호출
-        ChatResponse response = geminiService.chat(request);
+    /**
+     * 메시지 스트리밍 전송 (reply 조각을 SSE로 전송 → 스트림 종료 후 DB 저장)
+     * POST /api/conversations/{id}/messages/stream
+     * 이벤트: reply (조각, 여러 번) → feedback (1번) → done
+     * AI 호출이 거절되면 error 이벤트만 전송
+     */
+    @PostMapping(value = "/{id}/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamMessage(
+            @PathVariable Long id,
+            @RequestBody ChatRequest request) {
 
-        // DB에 메시지 저장
-        conversationService.saveMessages(
-                id,
-                request.getMessage(),
-                response.getReply(),
-                response.getFeedback());
+        Long userId = getCurrentUserId();
 
-        return ResponseEntity.ok(response);
+        // 본인 대화인지 확인 + 서버의 최근 메시지 버퍼와 요약으로 히스토리 구성 (클라이언트는 새 메시지만 전송)
+        historyManager.prepare(request, id, userId);
+
+        StringBuilder reply = new StringBuilder();
+        StringBuilder feedback = new StringBuilder();
+        AtomicBoolean rejected = new AtomicBoolean(false);
+
+        Flux<ServerSentEvent<String>> events = geminiService.chatStream(request, CallerKeys.forUser(userId))
+                .doOnNext(event -> {
+                    if (ChatStreamEvent.REPLY.equals(event.getType())) {
+                        reply.append(event.getText());
+                    } else if (ChatStreamEvent.FEEDBACK.equals(event.getType())) {
+                        feedback.append(event.getText());
+                    } else {
+                        rejected.set(true);
+                    }
+                })
+                .map(event -> ServerSentEvent.builder(event.getText())
+                        .event(event.getType())
+                        .build());
+
+        // 스트림이 끝나면 DB에 메시지 저장 (JPA 호출이므로 별도 스레드에서)
+        Mono<ServerSentEvent<String>> save = Mono.fromCallable(() -> {
+            List<ChatMessage> saved = conversationService.saveMessages(
+                    id,
+                    userId,
+                    request.getMessage(),
+                    reply.toString(),
+                    feedback.toString());
+            historyManager.onMessagesSaved(id, userId, saved);
+            return ServerSentEvent.builder("")
+                    .event("done")
+                    .build();
+        }).subscribeOn(blockingScheduler);
+
+        // 거절된 요청은 저장하지 않음
+        Mono<ServerSentEvent<String>> done = Mono.defer(() -> rejected.get() ? Mono.empty() : save);
+
+        return events.concatWith(done);
     }
 
     /**
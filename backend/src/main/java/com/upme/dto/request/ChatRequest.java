@@ -1,5 +1,7 @@
 package com.upme.dto.request;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public class ChatRequest {
@@ -8,6 +10,10 @@ public class ChatRequest {
     private int topicId;
     private List<MessageItem> history;
 
+    // 서버에서만 채우는 값 (히스토리 윈도우 밖의 이전 대화 요약)
+    @JsonIgnore
+    private String summary;
+
     public ChatRequest() {
     }
 
@@ -35,6 +41,14 @@ public class ChatRequest {
         this.history = history;
     }
 
+    public String getSummary() {
+        return summary;
+    }
+
+    public void setSummary(String summary) {
+        this.summary = summary;
+    }
+
     public static class MessageItem {
         private String role; // "user" or "ai"
         private String content;
@@ -42,6 +56,11 @@ public class ChatRequest {
         public MessageItem() {
         }
 
+        public MessageItem(String role, String content) {
+            this.role = role;
+            this.content = content;
+        }
+
         public String getRole() {
             return role;
         }
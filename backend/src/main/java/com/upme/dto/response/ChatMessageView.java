@@ -0,0 +1,16 @@
+package com.upme.dto.response;
+
+import com.upme.model.ChatMessage;
+
+import java.time.LocalDateTime;
+
+/**
+ * 대화 메시지 조회용 projection (엔티티를 만들지 않고 필요한 컬럼만 읽음)
+ */
+public record ChatMessageView(Long id, String role, String content, String feedback, LocalDateTime createdAt) {
+
+    public static ChatMessageView of(ChatMessage message) {
+        return new ChatMessageView(message.getId(), message.getRole(), message.getContent(), message.getFeedback(),
+                message.getCreatedAt());
+    }
+}
@@ -0,0 +1,47 @@
+package com.upme.dto.response;
+
+public class ChatStreamEvent {
+
+    public static final String REPLY = "reply";
+    public static final String FEEDBACK = "feedback";
+    public static final String ERROR = "error";
+
+    private String type; // "reply" (조각), "feedback" (마지막), "error" (호출 거절)
+    private String text;
+
+    public ChatStreamEvent() {
+    }
+
+    public ChatStreamEvent(String type, String text) {
+        this.type = type;
+        this.text = text;
+    }
+
+    public static ChatStreamEvent reply(String text) {
+        return new ChatStreamEvent(REPLY, text);
+    }
+
+    public static ChatStreamEvent feedback(String text) {
+        return new ChatStreamEvent(FEEDBACK, text);
+    }
+
+    public static ChatStreamEvent error(String text) {
+        return new ChatStreamEvent(ERROR, text);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
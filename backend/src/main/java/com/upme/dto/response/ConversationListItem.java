@@ -0,0 +1,17 @@
+package com.upme.dto.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * 대화 목록 항목 projection (목록 미리보기 포함, 엔티티를 만들지 않음)
+ */
+public record ConversationListItem(Long id, Integer topicId, String title, LocalDateTime createdAt,
+        LocalDateTime updatedAt, Integer messageCount, String lastMessageRole, String lastMessageSnippet) {
+
+    public ConversationListItem {
+        topicId = topicId != null ? topicId : 6;
+        title = title != null ? title : "대화";
+        updatedAt = updatedAt != null ? updatedAt : createdAt;
+        messageCount = messageCount != null ? messageCount : 0;
+    }
+}
@@ -0,0 +1,11 @@
+package com.upme.dto.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * 대화 메시지 검색 결과 한 건
+ * snippet/feedbackSnippet은 HTML 이스케이프된 본문 일부이며 검색어 부분만 &lt;mark&gt;로 감쌈 (피드백이 없으면 null)
+ */
+public record MessageSearchHit(Long messageId, Long conversationId, String role, String snippet,
+        String feedbackSnippet, LocalDateTime createdAt, float score) {
+}
@@ -7,7 +7,10 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+        // 대화별 메시지 keyset 페이지 (conversation_id로 찾고 id 순서로 읽음)
+        @Index(name = "idx_chat_messages_conversation_id_id", columnList = "conversation_id, id")
+})
 @Getter
 @Setter
 @Builder
@@ -16,7 +19,7 @@ import java.time.LocalDateTime;
 public class ChatMessage {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
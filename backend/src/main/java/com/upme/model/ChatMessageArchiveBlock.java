@@ -0,0 +1,57 @@
+package com.upme.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 오래 쓰지 않은 대화의 메시지 보관 블록 (ChatMessageArchiver가 JDBC로 읽고 씀)
+ * - 대화의 보관 메시지를 ID 순서로 block-size개씩 나눈 것 (마지막 블록만 덜 찰 수 있음)
+ * - 페이지 조회는 (conversation_id, first_message_id) 순서로 필요한 블록만 풀어서 읽음
+ * data는 메시지 목록 JSON을 deflate로 압축한 것
+ */
+@Entity
+@Table(name = "chat_message_archive_blocks", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_archive_block_conversation_first",
+                columnNames = {"conversation_id", "first_message_id"})
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatMessageArchiveBlock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // FK 없음 (대화 삭제 시 ConversationService/ConversationPurger가 함께 지움)
+    @Column(name = "conversation_id", nullable = false)
+    private Long conversationId;
+
+    // 블록에 든 메시지 ID 범위
+    @Column(name = "first_message_id", nullable = false)
+    private Long firstMessageId;
+
+    @Column(name = "last_message_id", nullable = false)
+    private Long lastMessageId;
+
+    @Column(name = "message_count", nullable = false)
+    private int messageCount;
+
+    // 압축 전/후 크기 (절약량 집계용)
+    @Column(name = "original_bytes", nullable = false)
+    private long originalBytes;
+
+    @Column(name = "compressed_bytes", nullable = false)
+    private long compressedBytes;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "LONGBLOB")
+    private byte[] data;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
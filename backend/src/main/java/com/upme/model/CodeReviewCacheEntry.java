@@ -0,0 +1,46 @@
+package com.upme.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "code_review_cache")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CodeReviewCacheEntry {
+
+    // 정규화된 코드 + 문제 번호 + 언어의 SHA-256 (hex)
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "problem_id")
+    private Integer problemId;
+
+    @Column(length = 30)
+    private String language;
+
+    @Column(columnDefinition = "TEXT")
+    private String summary;
+
+    @Column(columnDefinition = "TEXT")
+    private String strengths;
+
+    @Column(columnDefinition = "TEXT")
+    private String improvements;
+
+    @Column(name = "time_complexity", columnDefinition = "TEXT")
+    private String timeComplexity;
+
+    @Column(columnDefinition = "TEXT")
+    private String tips;
+
+    // 같은 키로 다시 저장할 때도 갱신되어야 하므로 직접 설정 (TTL 기준)
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,97 @@
+package com.upme.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 비동기 코드 리뷰 작업 (재시작 후에도 이어서 처리되도록 상태를 테이블에 저장)
+ * QUEUED → RUNNING → COMPLETED / FAILED
+ * 배치 모드는 QUEUED → BATCH_SUBMITTED → COMPLETED / FAILED
+ */
+@Entity
+@Table(name = "code_review_jobs", indexes = {
+        @Index(name = "idx_code_review_jobs_status", columnList = "status, batch_mode"),
+        @Index(name = "idx_code_review_jobs_user", columnList = "user_id")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CodeReviewJob {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String BATCH_SUBMITTED = "BATCH_SUBMITTED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    // true이면 급하지 않은 리뷰 → Gemini 배치 모드로 모아서 제출
+    @Column(name = "batch_mode", nullable = false)
+    private boolean batchMode;
+
+    // 제출된 Gemini 배치 이름 (batches/...)
+    @Column(name = "batch_name", length = 100)
+    private String batchName;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // 마지막으로 RUNNING으로 가져간 시각 (이보다 오래 RUNNING이면 처리하던 인스턴스가 죽은 것으로 보고 다시 대기열로)
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    @Column(name = "problem_id")
+    private Integer problemId;
+
+    @Column(name = "problem_title", length = 200)
+    private String problemTitle;
+
+    @Column(length = 30)
+    private String language;
+
+    @Column(columnDefinition = "TEXT")
+    private String code;
+
+    @Column(columnDefinition = "TEXT")
+    private String summary;
+
+    @Column(columnDefinition = "TEXT")
+    private String strengths;
+
+    @Column(columnDefinition = "TEXT")
+    private String improvements;
+
+    @Column(name = "time_complexity", columnDefinition = "TEXT")
+    private String timeComplexity;
+
+    @Column(columnDefinition = "TEXT")
+    private String tips;
+
+    @Column(length = 500)
+    private String error;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public boolean isFinished() {
+        return COMPLETED.equals(status) || FAILED.equals(status);
+    }
+}
@@ -8,7 +8,13 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "conversations")
+@Table(name = "conversations", indexes = {
+        // 대화 목록 keyset 페이지 (목록에 필요한 컬럼을 모두 넣어 인덱스만으로 응답, 삭제 표시 필터 포함)
+        @Index(name = "idx_conversations_user_list", columnList = "user_id, updated_at, id, topic_id, title, "
+                + "created_at, message_count, last_message_role, last_message_snippet, deleted_at"),
+        // 삭제 표시된 대화 정리 작업용
+        @Index(name = "idx_conversations_deleted_at", columnList = "deleted_at")
+})
 @Getter
 @Setter
 @Builder
@@ -17,7 +23,7 @@ import java.time.LocalDateTime;
 public class Conversation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -30,6 +36,32 @@ public class Conversation {
     @Column(length = 100)
     private String title;
 
+    // 히스토리 윈도우 밖으로 밀려난 오래된 대화의 요약 (백그라운드에서 갱신)
+    @Column(columnDefinition = "TEXT")
+    private String summary;
+
+    // 요약에 포함된 메시지 수 (대화 앞에서부터)
+    @Column(name = "summarized_message_count")
+    private Integer summarizedMessageCount;
+
+    // 요약에 포함된 마지막 메시지 ID
+    @Column(name = "summarized_until_message_id")
+    private Long summarizedUntilMessageId;
+
+    // 목록 미리보기용 (메시지 저장 시 함께 갱신)
+    @Column(name = "message_count")
+    private Integer messageCount;
+
+    @Column(name = "last_message_role", length = 10)
+    private String lastMessageRole;
+
+    @Column(name = "last_message_snippet", length = 100)
+    private String lastMessageSnippet;
+
+    // 삭제 표시 시각 (메시지가 많은 대화는 바로 숨기고 백그라운드에서 나눠서 삭제)
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,45 @@
+package com.upme.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 호출자별 일일 Gemini 토큰 사용량 (GeminiUsageTracker가 메모리에서 모아 주기적으로 누적 저장)
+ */
+@Entity
+@Table(name = "gemini_usage", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_gemini_usage_caller_date", columnNames = {"caller_key", "usage_date"})
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeminiUsage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // "user:{id}" 또는 "ip:{주소}"
+    @Column(name = "caller_key", nullable = false, length = 100)
+    private String callerKey;
+
+    @Column(name = "usage_date", nullable = false)
+    private LocalDate usageDate;
+
+    @Column(name = "prompt_tokens", nullable = false)
+    private long promptTokens;
+
+    @Column(name = "candidate_tokens", nullable = false)
+    private long candidateTokens;
+
+    @Column(nullable = false)
+    private long calls;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
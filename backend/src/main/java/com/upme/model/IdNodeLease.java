@@ -0,0 +1,32 @@
+package com.upme.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * TimeOrderedIds 노드 번호 임대 (NodeIdLease가 인스턴스마다 빈 번호 하나를 빌리고 주기적으로 연장)
+ * 테이블 생성용 엔티티이며 읽기/쓰기는 JdbcTemplate으로
+ */
+@Entity
+@Table(name = "id_node_leases")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdNodeLease {
+
+    // 0~15
+    @Id
+    @Column(name = "node_id")
+    private Integer nodeId;
+
+    // "호스트명/UUID" (재시작하면 새 값이라 이전 실행의 임대와 구분됨)
+    @Column(nullable = false, length = 100)
+    private String holder;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
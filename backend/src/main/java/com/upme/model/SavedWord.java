@@ -18,7 +18,7 @@ import java.time.LocalDateTime;
 public class SavedWord {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,17 @@
+package com.upme.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * persist 시점에 TimeOrderedIds로 ID를 채움 (IDENTITY와 달리 INSERT를 flush까지 미룰 수 있어 JDBC 배치 가능)
+ */
+@IdGeneratorType(TimeOrderedIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface TimeOrderedId {
+}
@@ -0,0 +1,23 @@
+package com.upme.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+
+/**
+ * @TimeOrderedId 필드의 Hibernate ID 생성기
+ */
+public class TimeOrderedIdGenerator implements IdentifierGenerator {
+
+    private static final long serialVersionUID = 1L;
+
+    public TimeOrderedIdGenerator(TimeOrderedId config, Member member, CustomIdGeneratorCreationContext context) {
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return TimeOrderedIds.next();
+    }
+}
@@ -0,0 +1,105 @@
+package com.upme.model;
+
+import java.time.Instant;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 애플리케이션에서 만드는 시간순 ID (DB 왕복 없이 INSERT 전에 ID를 정할 때 사용)
+ * - 53비트: 2025-01-01부터의 밀리초(40비트) | 노드(4비트) | 같은 밀리초 안의 순번(9비트)
+ * - JavaScript Number로도 정확히 표현되고(프론트엔드가 ID를 그대로 씀), 기존 AUTO_INCREMENT 값보다 항상 큼
+ * - 시계가 뒤로 가거나 순번이 넘치면 마지막 밀리초를 이어서 사용 (단조 증가 보장)
+ * 노드 번호(0~15)는 인스턴스마다 달라야 함
+ * - 시스템 프로퍼티 upme.node-id 또는 환경 변수 UPME_NODE_ID로 지정하면 그 값
+ * - 지정하지 않으면 시작할 때 NodeIdLease가 DB에서 빈 번호를 빌려 assignNode()로 설정
+ * - 번호가 정해지기 전이나 releaseNode()로 해제한 뒤에 next()를 호출하면 예외 (같은 번호로 ID가 겹치지 않도록)
+ */
+public final class TimeOrderedIds {
+
+    private static final long EPOCH_MS = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 4;
+    private static final int SEQUENCE_BITS = 9;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    private static final long CONFIGURED_NODE = resolveNode();
+
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static long lastMs = -1;
+    private static long sequence = 0;
+    private static long node = CONFIGURED_NODE;
+
+    private TimeOrderedIds() {
+    }
+
+    public static long next() {
+        lock.lock();
+        try {
+            if (node < 0) {
+                throw new IllegalStateException("ID 노드 번호가 정해지지 않았습니다 (UPME_NODE_ID 또는 NodeIdLease).");
+            }
+            long now = System.currentTimeMillis() - EPOCH_MS;
+            if (now > lastMs) {
+                lastMs = now;
+                sequence = 0;
+            } else if (++sequence > MAX_SEQUENCE) {
+                lastMs++;
+                sequence = 0;
+            }
+            return (lastMs << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * upme.node-id / UPME_NODE_ID로 노드 번호를 지정했는지 (지정했으면 DB에서 빌리지 않음)
+     */
+    public static boolean isNodeConfigured() {
+        return CONFIGURED_NODE >= 0;
+    }
+
+    /**
+     * DB에서 빌린 노드 번호 설정 (빌린 번호를 잃고 새로 빌린 경우에도 호출)
+     */
+    public static void assignNode(long newNode) {
+        if (newNode < 0 || newNode > MAX_NODE) {
+            throw new IllegalArgumentException("노드 번호는 0~" + MAX_NODE + " 사이여야 합니다: " + newNode);
+        }
+        lock.lock();
+        try {
+            node = newNode;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 빌린 노드 번호 해제 (임대를 잃고 새 번호를 빌리지 못한 경우, 다시 assignNode()할 때까지 next()가 예외)
+     */
+    public static void releaseNode() {
+        lock.lock();
+        try {
+            node = -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 주어진 시각(epoch 밀리초) 이후에 만들어진 ID의 하한 (ID로 시간 범위를 조회할 때 사용)
+     */
+    public static long firstIdAt(long epochMs) {
+        return Math.max(0, epochMs - EPOCH_MS) << (NODE_BITS + SEQUENCE_BITS);
+    }
+
+    private static long resolveNode() {
+        String value = System.getProperty("upme.node-id", System.getenv("UPME_NODE_ID"));
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        long node = Long.parseLong(value.strip());
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalStateException("upme.node-id는 0~" + MAX_NODE + " 사이여야 합니다: " + node);
+        }
+        return node;
+    }
+}
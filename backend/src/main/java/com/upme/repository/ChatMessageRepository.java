@@ -1,7 +1,12 @@
 package com.upme.repository;
 
+import com.upme.dto.response.ChatMessageView;
 import com.upme.model.ChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,5 +14,25 @@ import java.util.List;
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
 
-    List<ChatMessage> findByConversationIdOrderByCreatedAtAsc(Long conversationId);
+    long countByConversationId(Long conversationId);
+
+    List<ChatMessage> findByConversationIdOrderByIdDesc(Long conversationId, Pageable pageable);
+
+    List<ChatMessage> findByConversationIdAndIdGreaterThanOrderByIdAsc(Long conversationId, Long afterId,
+            Pageable pageable);
+
+    /**
+     * beforeId보다 오래된 메시지를 최신순으로 (keyset 페이지, (conversation_id, id) 인덱스만 따라감)
+     */
+    @Query("SELECT new com.upme.dto.response.ChatMessageView(m.id, m.role, m.content, m.feedback, m.createdAt) "
+            + "FROM ChatMessage m WHERE m.conversation.id = :conversationId AND m.id < :beforeId ORDER BY m.id DESC")
+    List<ChatMessageView> findViewsBefore(@Param("conversationId") Long conversationId,
+            @Param("beforeId") Long beforeId, Pageable pageable);
+
+    /**
+     * 대화의 메시지를 DELETE 한 문장으로 삭제 (엔티티를 읽지 않음)
+     */
+    @Modifying
+    @Query("DELETE FROM ChatMessage m WHERE m.conversation.id = :conversationId")
+    int deleteByConversationIdInBulk(@Param("conversationId") Long conversationId);
 }
@@ -0,0 +1,9 @@
+package com.upme.repository;
+
+import com.upme.model.CodeReviewCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CodeReviewCacheRepository extends JpaRepository<CodeReviewCacheEntry, String> {
+}
@@ -0,0 +1,48 @@
+package com.upme.repository;
+
+import com.upme.model.CodeReviewJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CodeReviewJobRepository extends JpaRepository<CodeReviewJob, Long> {
+
+    List<CodeReviewJob> findByStatusAndBatchModeOrderByIdAsc(String status, boolean batchMode, Pageable pageable);
+
+    List<CodeReviewJob> findByBatchNameAndStatus(String batchName, String status);
+
+    int countByUserIdAndStatusIn(Long userId, Collection<String> statuses);
+
+    @Query("SELECT DISTINCT j.batchName FROM CodeReviewJob j WHERE j.status = :status AND j.batchName IS NOT NULL")
+    List<String> findBatchNamesByStatus(@Param("status") String status);
+
+    /**
+     * 상태가 from일 때만 to로 변경 (여러 스레드/인스턴스가 같은 작업을 동시에 가져가지 않도록)
+     * 1이면 이 호출이 작업을 가져간 것
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE CodeReviewJob j SET j.status = :to, j.attempts = j.attempts + 1, j.claimedAt = :now "
+            + "WHERE j.id = :id AND j.status = :from")
+    int claim(@Param("id") Long id, @Param("from") String from, @Param("to") String to,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * claimedBefore 이전에 가져간 뒤 끝나지 않은 작업만 from → to (다른 인스턴스가 처리 중인 작업은 그대로)
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE CodeReviewJob j SET j.status = :to WHERE j.status = :from "
+            + "AND (j.claimedAt IS NULL OR j.claimedAt < :claimedBefore)")
+    int updateStaleStatus(@Param("from") String from, @Param("to") String to,
+            @Param("claimedBefore") LocalDateTime claimedBefore);
+}
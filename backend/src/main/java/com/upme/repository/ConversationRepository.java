@@ -1,15 +1,73 @@
 package com.upme.repository;
 
+import com.upme.dto.response.ConversationListItem;
 import com.upme.model.Conversation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
 
-    List<Conversation> findByUserIdOrderByUpdatedAtDesc(Long userId);
+    /**
+     * 사용자의 대화 목록 keyset 페이지 (updated_at, id 최신순, (user_id, updated_at, ...) 인덱스만 읽음)
+     */
+    @Query("SELECT new com.upme.dto.response.ConversationListItem(c.id, c.topicId, c.title, c.createdAt, "
+            + "c.updatedAt, c.messageCount, c.lastMessageRole, c.lastMessageSnippet) FROM Conversation c "
+            + "WHERE c.user.id = :userId AND c.deletedAt IS NULL AND (c.updatedAt < :beforeUpdatedAt "
+            + "OR (c.updatedAt = :beforeUpdatedAt AND c.id < :beforeId)) ORDER BY c.updatedAt DESC, c.id DESC")
+    List<ConversationListItem> findPageByUserId(@Param("userId") Long userId,
+            @Param("beforeUpdatedAt") LocalDateTime beforeUpdatedAt, @Param("beforeId") Long beforeId,
+            Pageable pageable);
 
     int countByUserId(Long userId);
+
+    /**
+     * 요약 컬럼만 갱신 (엔티티 저장과 달리 updated_at을 바꾸지 않아 대화 목록 순서 유지)
+     */
+    @Modifying
+    @Query("UPDATE Conversation c SET c.summary = :summary, c.summarizedMessageCount = :count, "
+            + "c.summarizedUntilMessageId = :untilId WHERE c.id = :id")
+    int updateSummary(@Param("id") Long id, @Param("summary") String summary, @Param("count") int count,
+            @Param("untilId") Long untilId);
+
+    /**
+     * 소유자 ID만 조회 (권한 확인용, User를 읽지 않음)
+     */
+    @Query("SELECT c.user.id FROM Conversation c WHERE c.id = :id AND c.deletedAt IS NULL")
+    Optional<Long> findOwnerIdById(@Param("id") Long id);
+
+    @Query("SELECT c.title FROM Conversation c WHERE c.id = :id AND c.deletedAt IS NULL")
+    Optional<String> findTitleById(@Param("id") Long id);
+
+    /**
+     * 목록 미리보기의 메시지 수 (삭제 방식 결정용, 채워지기 전의 대화는 -1)
+     */
+    @Query("SELECT COALESCE(c.messageCount, -1) FROM Conversation c WHERE c.id = :id AND c.deletedAt IS NULL")
+    Optional<Integer> findMessageCountById(@Param("id") Long id);
+
+    /**
+     * 삭제 표시 (목록/조회에서 바로 빠지고 메시지는 ConversationPurger가 나눠서 삭제)
+     */
+    @Modifying
+    @Query("UPDATE Conversation c SET c.deletedAt = :now WHERE c.id = :id AND c.deletedAt IS NULL")
+    int markDeleted(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * 본인 대화이면 메시지 저장 반영: updated_at, 메시지 수, 마지막 메시지 미리보기
+     * (조회 없이 UPDATE 한 번, 대화가 없거나 다른 사용자의 대화면 0 반환)
+     */
+    @Modifying
+    @Query("UPDATE Conversation c SET c.updatedAt = :now, c.messageCount = COALESCE(c.messageCount, 0) + :added, "
+            + "c.lastMessageRole = :lastRole, c.lastMessageSnippet = :lastSnippet "
+            + "WHERE c.id = :id AND c.user.id = :userId AND c.deletedAt IS NULL")
+    int recordMessages(@Param("id") Long id, @Param("userId") Long userId, @Param("now") LocalDateTime now,
+            @Param("added") int added, @Param("lastRole") String lastRole, @Param("lastSnippet") String lastSnippet);
 }
@@ -0,0 +1,38 @@
+package com.upme.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * 호출자 식별 키 (사용량 제한/공정 분배 단위)
+ * 로그인 사용자는 "user:{id}", 비로그인은 "ip:{주소}"
+ */
+public final class CallerKeys {
+
+    private CallerKeys() {
+    }
+
+    public static String resolve(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof Long userId) {
+            return forUser(userId);
+        }
+        return "ip:" + clientIp(request);
+    }
+
+    public static String forUser(Long userId) {
+        return "user:" + userId;
+    }
+
+    public static boolean isAnonymous(String callerKey) {
+        return callerKey.startsWith("ip:");
+    }
+
+    private static String clientIp(HttpServletRequest request) {
+        // X-Forwarded-For의 왼쪽 값은 클라이언트가 마음대로 넣을 수 있으므로 직접 읽지 않음
+        // server.forward-headers-strategy=native(기본값, UpMeApplication)면 Tomcat이 신뢰하는 프록시가 붙인
+        // 가장 오른쪽 주소를 remoteAddr로 바꿔 줌
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,372 @@
+package com.upme.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upme.dto.response.ChatMessageView;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 오래된 채팅 메시지 보관 (chat.archive.enabled=true)
+ * - interval-ms마다 idle-days일 넘게 메시지가 없던 대화의 메시지를 block-size개씩 압축 블록(chat_message_archive_blocks)으로
+ *   옮기고 chat_messages에서 삭제 (chat_messages와 그 인덱스를 작게 유지), 한 번에 최대 max-conversations-per-run개 대화
+ * - 보관 후 다시 대화하면 새 메시지는 chat_messages에 쌓이고, 다음 보관 때 마지막 블록을 채운 뒤 새 블록으로 이어짐
+ * - readBefore()/readAfter()로 ID 범위에 걸친 블록만 풀어서 읽음 (페이지 비용이 보관 메시지 수와 무관)
+ *   압축을 푼 블록은 cache-entries개까지 캐시 (archived_at이 바뀌면 다시 읽음)
+ * 메트릭: chat.archive.messages, chat.archive.original-bytes, chat.archive.compressed-bytes
+ */
+@Slf4j
+@Component
+public class ChatMessageArchiver {
+
+    private static final String FIND_SQL = "SELECT c.id FROM conversations c WHERE c.updated_at < ? "
+            + "AND c.deleted_at IS NULL AND c.message_count IS NOT NULL "
+            + "AND EXISTS (SELECT 1 FROM chat_messages m WHERE m.conversation_id = c.id) LIMIT ?";
+    // 보관 중 새 메시지 저장/삭제와 겹치지 않도록 대화 행을 잠그고 다시 확인
+    private static final String LOCK_SQL = "SELECT id FROM conversations WHERE id = ? AND updated_at < ? "
+            + "AND deleted_at IS NULL FOR UPDATE";
+    private static final String HOT_SQL = "SELECT id, role, content, feedback, created_at FROM chat_messages "
+            + "WHERE conversation_id = ? ORDER BY id";
+    private static final String BLOCKS_BEFORE_SQL = "SELECT id, first_message_id, archived_at "
+            + "FROM chat_message_archive_blocks WHERE conversation_id = ? AND first_message_id < ? "
+            + "ORDER BY first_message_id DESC LIMIT ?";
+    private static final String BLOCKS_AFTER_SQL = "SELECT id, first_message_id, archived_at "
+            + "FROM chat_message_archive_blocks WHERE conversation_id = ? AND last_message_id > ? "
+            + "AND first_message_id > ? ORDER BY first_message_id LIMIT ?";
+    private static final String DATA_SQL = "SELECT data FROM chat_message_archive_blocks WHERE id = ?";
+    private static final String TAIL_SQL = "SELECT id, last_message_id, data FROM chat_message_archive_blocks "
+            + "WHERE conversation_id = ? ORDER BY first_message_id DESC LIMIT 1";
+    private static final String INSERT_SQL = "INSERT INTO chat_message_archive_blocks (conversation_id, "
+            + "first_message_id, last_message_id, message_count, original_bytes, compressed_bytes, data, archived_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE chat_message_archive_blocks SET first_message_id = ?, "
+            + "last_message_id = ?, message_count = ?, original_bytes = ?, compressed_bytes = ?, data = ?, "
+            + "archived_at = ? WHERE id = ?";
+    private static final String DELETE_HOT_SQL = "DELETE FROM chat_messages WHERE id = ?";
+    private static final String DELETE_SQL = "DELETE FROM chat_message_archive_blocks WHERE conversation_id = ?";
+    private static final String TOTALS_SQL = "SELECT COALESCE(SUM(message_count), 0), COALESCE(SUM(original_bytes), 0), "
+            + "COALESCE(SUM(compressed_bytes), 0) FROM chat_message_archive_blocks";
+    private static final TypeReference<List<ChatMessageView>> MESSAGES_TYPE = new TypeReference<>() {
+    };
+    private static final RowMapper<BlockRef> BLOCK_MAPPER = (rs, rowNum) -> new BlockRef(
+            rs.getLong("id"), rs.getLong("first_message_id"), rs.getTimestamp("archived_at").toLocalDateTime());
+    private static final RowMapper<ChatMessageView> VIEW_MAPPER = (rs, rowNum) -> new ChatMessageView(
+            rs.getLong("id"), rs.getString("role"), rs.getString("content"), rs.getString("feedback"),
+            toLocalDateTime(rs.getTimestamp("created_at")));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int idleDays;
+    private final int batchSize;
+    private final int blockSize;
+    private final int maxConversationsPerRun;
+    private final int cacheEntries;
+
+    // 보관 합계 (시작 시와 보관 작업 후 DB에서 다시 읽음)
+    private final AtomicLong archivedMessages = new AtomicLong();
+    private final AtomicLong originalBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    private final ReentrantLock cacheLock = new ReentrantLock();
+    private final LinkedHashMap<Long, CachedBlock> cache;
+
+    public ChatMessageArchiver(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${chat.archive.enabled:false}") boolean enabled,
+            @Value("${chat.archive.idle-days:7}") int idleDays,
+            @Value("${chat.archive.batch-size:100}") int batchSize,
+            @Value("${chat.archive.block-size:100}") int blockSize,
+            @Value("${chat.archive.max-conversations-per-run:1000}") int maxConversationsPerRun,
+            @Value("${chat.archive.cache-entries:1000}") int cacheEntries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.idleDays = idleDays;
+        this.batchSize = batchSize;
+        this.blockSize = blockSize;
+        this.maxConversationsPerRun = maxConversationsPerRun;
+        this.cacheEntries = cacheEntries;
+        // accessOrder=true → 가장 오래 안 쓴 블록부터 제거
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedBlock> eldest) {
+                return size() > ChatMessageArchiver.this.cacheEntries;
+            }
+        };
+        meterRegistry.gauge("chat.archive.messages", archivedMessages);
+        meterRegistry.gauge("chat.archive.original-bytes", originalBytes);
+        meterRegistry.gauge("chat.archive.compressed-bytes", compressedBytes);
+    }
+
+    /**
+     * beforeId보다 오래된 보관 메시지 중 최신 limit개 (오래된 것부터, 필요한 블록만 읽음)
+     */
+    public List<ChatMessageView> readBefore(Long conversationId, long beforeId, int limit) {
+        List<ChatMessageView> newestFirst = new ArrayList<>();
+        // 마지막 블록과 beforeId가 걸친 블록은 덜 찰 수 있으므로 2개 더
+        int blocks = limit / blockSize + 2;
+        long cursor = beforeId;
+        while (newestFirst.size() < limit) {
+            List<BlockRef> refs = jdbcTemplate.query(BLOCKS_BEFORE_SQL, BLOCK_MAPPER, conversationId, cursor, blocks);
+            for (BlockRef ref : refs) {
+                List<ChatMessageView> messages = messagesOf(ref);
+                for (int i = messages.size() - 1; i >= 0 && newestFirst.size() < limit; i--) {
+                    if (messages.get(i).id() < beforeId) {
+                        newestFirst.add(messages.get(i));
+                    }
+                }
+                cursor = ref.firstMessageId();
+            }
+            if (refs.size() < blocks) {
+                break;
+            }
+        }
+        Collections.reverse(newestFirst);
+        return newestFirst;
+    }
+
+    /**
+     * afterId 이후 보관 메시지 중 오래된 limit개 (오래된 것부터, 필요한 블록만 읽음)
+     */
+    public List<ChatMessageView> readAfter(Long conversationId, long afterId, int limit) {
+        List<ChatMessageView> result = new ArrayList<>();
+        int blocks = limit / blockSize + 2;
+        long cursor = Long.MIN_VALUE;
+        while (result.size() < limit) {
+            List<BlockRef> refs = jdbcTemplate.query(BLOCKS_AFTER_SQL, BLOCK_MAPPER, conversationId, afterId, cursor,
+                    blocks);
+            for (BlockRef ref : refs) {
+                for (ChatMessageView view : messagesOf(ref)) {
+                    if (view.id() > afterId && result.size() < limit) {
+                        result.add(view);
+                    }
+                }
+                cursor = ref.firstMessageId();
+            }
+            if (refs.size() < blocks) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 대화의 보관 메시지 전부 (오래된 것부터, 검색 색인 재구성용)
+     */
+    public List<ChatMessageView> readAll(Long conversationId) {
+        return readAfter(conversationId, Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 대화의 보관 블록 삭제 (대화 삭제 트랜잭션 안에서 호출, 캐시는 archived_at 비교로 더 쓰이지 않음)
+     */
+    public void delete(Long conversationId) {
+        jdbcTemplate.update(DELETE_SQL, conversationId);
+    }
+
+    @Scheduled(initialDelayString = "${chat.archive.initial-delay-ms:60000}",
+            fixedDelayString = "${chat.archive.interval-ms:3600000}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(idleDays);
+        int conversations = 0;
+        int attempted = 0;
+        long messages = 0;
+        try {
+            // 한 번에 max-conversations-per-run개까지 (나머지는 다음 주기에)
+            while (attempted < maxConversationsPerRun) {
+                int limit = Math.min(batchSize, maxConversationsPerRun - attempted);
+                List<Long> ids = jdbcTemplate.queryForList(FIND_SQL, Long.class, cutoff, limit);
+                for (Long id : ids) {
+                    attempted++;
+                    Integer moved = transactionTemplate.execute(status -> archive(id, cutoff));
+                    if (moved != null && moved > 0) {
+                        conversations++;
+                        messages += moved;
+                    }
+                }
+                if (ids.size() < limit) {
+                    break;
+                }
+            }
+        } catch (DataAccessException | UncheckedIOException e) {
+            log.warn("채팅 메시지 보관 실패 (대화 {}개 완료), 다음 주기에 다시 시도: {}", conversations, e.getMessage());
+        }
+        refreshTotals();
+        if (conversations > 0) {
+            log.info("채팅 메시지 보관: 대화 {}개, 메시지 {}개 / 누적 {}개, {} → {} 바이트 ({}% 절약)",
+                    conversations, messages, archivedMessages.get(), originalBytes.get(), compressedBytes.get(),
+                    savedPercent());
+        }
+    }
+
+    /**
+     * 대화 하나 보관 (트랜잭션 안에서), 옮긴 메시지 수 반환
+     */
+    private int archive(Long conversationId, LocalDateTime cutoff) {
+        if (jdbcTemplate.queryForList(LOCK_SQL, Long.class, conversationId, cutoff).isEmpty()) {
+            return 0;
+        }
+        List<ChatMessageView> hot = jdbcTemplate.query(HOT_SQL, VIEW_MAPPER, conversationId);
+        if (hot.isEmpty()) {
+            return 0;
+        }
+
+        // 마지막 블록이 덜 찼거나 ID가 겹치면 그 블록과 합쳐서 다시 나눔 (ID 순서, 같은 ID는 하나만)
+        TreeMap<Long, ChatMessageView> merged = new TreeMap<>();
+        Long tailId = null;
+        List<TailBlock> tails = jdbcTemplate.query(TAIL_SQL, (rs, rowNum) -> new TailBlock(
+                rs.getLong("id"), rs.getLong("last_message_id"), rs.getBytes("data")), conversationId);
+        if (!tails.isEmpty()) {
+            TailBlock tail = tails.get(0);
+            List<ChatMessageView> tailMessages = decode(tail.data());
+            if (tailMessages.size() < blockSize || hot.get(0).id() <= tail.lastMessageId()) {
+                tailId = tail.id();
+                tailMessages.forEach(view -> merged.put(view.id(), view));
+            }
+        }
+        hot.forEach(view -> merged.put(view.id(), view));
+
+        List<ChatMessageView> all = new ArrayList<>(merged.values());
+        LocalDateTime archivedAt = LocalDateTime.now();
+        for (int from = 0; from < all.size(); from += blockSize) {
+            List<ChatMessageView> block = all.subList(from, Math.min(all.size(), from + blockSize));
+            byte[] json = toJson(block);
+            byte[] compressed = compress(json);
+            long first = block.get(0).id();
+            long last = block.get(block.size() - 1).id();
+            if (from == 0 && tailId != null) {
+                jdbcTemplate.update(UPDATE_SQL, first, last, block.size(), json.length, compressed.length, compressed,
+                        archivedAt, tailId);
+            } else {
+                jdbcTemplate.update(INSERT_SQL, conversationId, first, last, block.size(), json.length,
+                        compressed.length, compressed, archivedAt);
+            }
+        }
+        // 블록에 넣은 메시지만 삭제 (그 사이 저장된 메시지는 남김)
+        jdbcTemplate.batchUpdate(DELETE_HOT_SQL, hot.stream().map(view -> new Object[] {view.id()}).toList());
+        return hot.size();
+    }
+
+    private void refreshTotals() {
+        try {
+            jdbcTemplate.query(TOTALS_SQL, rs -> {
+                archivedMessages.set(rs.getLong(1));
+                originalBytes.set(rs.getLong(2));
+                compressedBytes.set(rs.getLong(3));
+            });
+        } catch (DataAccessException e) {
+            log.warn("채팅 메시지 보관 합계 조회 실패: {}", e.getMessage());
+        }
+    }
+
+    private long savedPercent() {
+        long original = originalBytes.get();
+        return original == 0 ? 0 : Math.round(100.0 * (original - compressedBytes.get()) / original);
+    }
+
+    /**
+     * 블록의 메시지 (캐시에 같은 archived_at으로 있으면 그대로, 없으면 풀어서 캐시)
+     */
+    private List<ChatMessageView> messagesOf(BlockRef ref) {
+        cacheLock.lock();
+        try {
+            CachedBlock cached = cache.get(ref.id());
+            if (cached != null && cached.archivedAt().equals(ref.archivedAt())) {
+                return cached.messages();
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+
+        List<byte[]> data = jdbcTemplate.queryForList(DATA_SQL, byte[].class, ref.id());
+        if (data.isEmpty()) {
+            return List.of();
+        }
+        List<ChatMessageView> messages = decode(data.get(0));
+        cacheLock.lock();
+        try {
+            cache.put(ref.id(), new CachedBlock(ref.archivedAt(), messages));
+        } finally {
+            cacheLock.unlock();
+        }
+        return messages;
+    }
+
+    private byte[] toJson(List<ChatMessageView> messages) {
+        try {
+            return objectMapper.writeValueAsBytes(messages);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<ChatMessageView> decode(byte[] data) {
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(data))) {
+            return List.copyOf(objectMapper.readValue(in, MESSAGES_TYPE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] compress(byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 3 + 64);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (OutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private record BlockRef(long id, long firstMessageId, LocalDateTime archivedAt) {
+    }
+
+    private record TailBlock(long id, long lastMessageId, byte[] data) {
+    }
+
+    private record CachedBlock(LocalDateTime archivedAt, List<ChatMessageView> messages) {
+    }
+}
@@ -0,0 +1,506 @@
+package com.upme.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upme.model.ChatMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 채팅 메시지 지연 저장 (chat.write-behind.enabled=true)
+ * - 저장 요청은 로컬 저널 파일(JSON 한 줄씩)에 추가하고 메모리 대기열에 넣은 뒤 바로 반환
+ * - flush-interval-ms마다(또는 batch-size만큼 쌓이면) 백그라운드에서 JDBC 배치로 INSERT
+ * - 메시지 ID는 넣을 때 TimeOrderedIds로 정함 (새 메시지는 일반 INSERT라 ID가 겹치면 저장 실패로 드러남)
+ * - 재시작 후 저널에서 다시 넣는 메시지만 이미 저장됐을 수 있으므로 INSERT IGNORE 후 메시지 수를 다시 셈
+ * - 대기열이 capacity만큼 차면 offer-timeout-ms까지 기다리고, 그래도 자리가 없으면 호출한 스레드에서 바로 저장
+ * - 아직 저장되지 않은 메시지는 pending()으로 조회 (getMessages, 히스토리 버퍼가 DB 결과와 합침)
+ * 메트릭: chat.write-behind.pending, chat.write-behind.flushed, chat.write-behind.sync-writes
+ */
+@Slf4j
+@Component
+public class ChatMessageWriteBehind {
+
+    private static final String INSERT_SQL = "INSERT INTO chat_messages "
+            + "(id, conversation_id, role, content, feedback, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    // 저널 복구분 전용 (이미 저장된 메시지나 삭제된 대화의 메시지는 건너뜀)
+    private static final String REPLAY_INSERT_SQL = "INSERT IGNORE INTO chat_messages "
+            + "(id, conversation_id, role, content, feedback, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    // updated_at과 목록 미리보기(메시지 수, 마지막 메시지) 갱신
+    private static final String TOUCH_CONVERSATION_SQL = "UPDATE conversations SET "
+            + "updated_at = GREATEST(COALESCE(updated_at, ?), ?), message_count = COALESCE(message_count, 0) + ?, "
+            + "last_message_role = ?, last_message_snippet = ? WHERE id = ?";
+    // 저널 복구분은 이미 저장됐다가 다시 넣는 것일 수 있으므로 메시지 수를 다시 셈
+    private static final String RECOUNT_SQL = "UPDATE conversations SET message_count = "
+            + "(SELECT COUNT(*) FROM chat_messages WHERE conversation_id = ?) + COALESCE((SELECT SUM(message_count) "
+            + "FROM chat_message_archive_blocks WHERE conversation_id = ?), 0) WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Scheduler blockingScheduler;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final long offerTimeoutNanos;
+    private final boolean fsync;
+    private final long maxJournalBytes;
+    private final Path journalPath;
+    private final Counter flushedCounter;
+    private final Counter syncWriteCounter;
+
+    // 대기열과 저널은 lock으로 보호 (저널 순서 = 대기열 순서)
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final LinkedHashMap<Long, QueuedMessage> queue = new LinkedHashMap<>();
+    private final Map<Long, List<QueuedMessage>> byConversation = new HashMap<>();
+    private FileChannel journal;
+    // 저널에서 복구한 메시지 ID (이 메시지를 저장할 때 그 대화의 메시지 수를 다시 셈)
+    private final Set<Long> recoveredIds = ConcurrentHashMap.newKeySet();
+
+    // 저장은 한 번에 하나만 (삭제된 대화의 메시지를 저장 도중에 빼낼 때도 사용)
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public ChatMessageWriteBehind(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper,
+            Scheduler blockingScheduler,
+            MeterRegistry meterRegistry,
+            @Value("${chat.write-behind.enabled:false}") boolean enabled,
+            @Value("${chat.write-behind.capacity:10000}") int capacity,
+            @Value("${chat.write-behind.batch-size:200}") int batchSize,
+            @Value("${chat.write-behind.offer-timeout-ms:2000}") long offerTimeoutMs,
+            @Value("${chat.write-behind.fsync:true}") boolean fsync,
+            @Value("${chat.write-behind.max-journal-mb:64}") long maxJournalMb,
+            @Value("${chat.write-behind.dir:chat-write-behind}") String directory) throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.blockingScheduler = blockingScheduler;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        this.fsync = fsync;
+        this.maxJournalBytes = maxJournalMb * 1024 * 1024;
+        this.journalPath = Path.of(directory, "chat-messages.journal");
+        this.flushedCounter = meterRegistry.counter("chat.write-behind.flushed");
+        this.syncWriteCounter = meterRegistry.counter("chat.write-behind.sync-writes");
+
+        if (enabled) {
+            Files.createDirectories(journalPath.getParent());
+            recover();
+            this.journal = openJournal();
+            log.info("채팅 메시지 지연 저장 사용: 저널 {}, 대기열 {}건", journalPath.toAbsolutePath(), queue.size());
+        }
+    }
+
+    /**
+     * 대기 건수 gauge 등록 (생성이 끝난 뒤 this를 넘김)
+     */
+    @PostConstruct
+    public void registerMetrics() {
+        meterRegistry.gauge("chat.write-behind.pending", this, ChatMessageWriteBehind::pendingCount);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 메시지들을 한 묶음으로 대기열에 추가 (ID와 createdAt이 채워진 ChatMessage, conversation은 없어도 됨)
+     */
+    public void enqueue(Long conversationId, List<ChatMessage> messages) {
+        List<QueuedMessage> items = messages.stream()
+                .map(message -> QueuedMessage.of(conversationId, message))
+                .toList();
+
+        boolean queued;
+        int size;
+        lock.lock();
+        try {
+            long remaining = offerTimeoutNanos;
+            while (queue.size() + items.size() > capacity && remaining > 0) {
+                remaining = notFull.awaitNanos(remaining);
+            }
+            queued = queue.size() + items.size() <= capacity;
+            if (queued) {
+                appendToJournal(items);
+                items.forEach(this::add);
+            }
+            size = queue.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("메시지 저장 대기 중 중단되었습니다.", e);
+        } catch (IOException e) {
+            throw new RuntimeException("메시지 저널 기록에 실패했습니다.", e);
+        } finally {
+            lock.unlock();
+        }
+
+        if (!queued) {
+            // 대기열이 가득 찬 상태가 계속되면 호출한 스레드에서 바로 저장 (요청이 느려지는 것으로 압력 전달)
+            syncWriteCounter.increment();
+            log.warn("지연 저장 대기열 가득 참 ({}건), 바로 저장: conversationId={}", size, conversationId);
+            write(items);
+            return;
+        }
+        if (size >= batchSize && !flushLock.isLocked()) {
+            blockingScheduler.schedule(this::flush);
+        }
+    }
+
+    /**
+     * 아직 DB에 저장되지 않은 대화의 메시지 (오래된 것부터)
+     */
+    public List<ChatMessage> pending(Long conversationId) {
+        if (!enabled) {
+            return List.of();
+        }
+        lock.lock();
+        try {
+            List<QueuedMessage> items = byConversation.get(conversationId);
+            if (items == null) {
+                return List.of();
+            }
+            return items.stream().map(QueuedMessage::toChatMessage).toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 삭제되는 대화의 대기 중인 메시지 버림 (진행 중인 저장이 끝날 때까지 기다림)
+     * 저널에 남은 줄은 재시작 시 복구분으로 다시 넣으므로 대화가 없으면 INSERT IGNORE로 건너뜀
+     */
+    public void discard(Long conversationId) {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            lock.lock();
+            try {
+                List<QueuedMessage> items = byConversation.remove(conversationId);
+                if (items != null) {
+                    items.forEach(item -> queue.remove(item.id()));
+                    notFull.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 대기열을 batch-size씩 저장 (실패하면 남겨두고 다음 주기에 다시 시도)
+     */
+    @Scheduled(fixedDelayString = "${chat.write-behind.flush-interval-ms:200}")
+    public void flush() {
+        if (!enabled || !flushLock.tryLock()) {
+            return;
+        }
+        try {
+            while (true) {
+                List<QueuedMessage> batch = peekBatch();
+                if (batch.isEmpty()) {
+                    return;
+                }
+                try {
+                    write(batch);
+                } catch (DataIntegrityViolationException e) {
+                    // 저장 전에 바로 삭제된 대화의 메시지면 버리고 계속, 아니면(ID 중복 등) 남겨두고 알림
+                    if (discardOrphans(batch)) {
+                        continue;
+                    }
+                    log.error("지연 저장 실패 (무결성 위반), 다음 주기에 다시 저장 ({}건 대기): {}", pendingCount(),
+                            e.getMessage());
+                    return;
+                } catch (DataAccessException e) {
+                    log.warn("지연 저장 실패, 다음 주기에 다시 저장 ({}건 대기): {}", pendingCount(), e.getMessage());
+                    return;
+                }
+                flushedCounter.increment(batch.size());
+                remove(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (!enabled) {
+            return;
+        }
+        flush();
+        lock.lock();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("메시지 저널 닫기 실패: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 메시지 INSERT와 대화 updated_at/목록 미리보기 갱신을 한 트랜잭션으로
+     */
+    private void write(List<QueuedMessage> batch) {
+        // 대화별 새 메시지 수와 마지막 메시지 (대기열은 대화 안에서 시간순)
+        // 저널 복구분은 무시됐을 수 있으므로 더하지 않고 RECOUNT_SQL로 다시 셈
+        Map<Long, Integer> counts = new HashMap<>();
+        Map<Long, QueuedMessage> lastMessages = new HashMap<>();
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        List<Object[]> replayRows = new ArrayList<>();
+        Set<Long> recounted = new LinkedHashSet<>();
+        for (QueuedMessage item : batch) {
+            Object[] row = {item.id(), item.conversationId(), item.role(), item.content(), item.feedback(),
+                    item.createdAt()};
+            if (recoveredIds.contains(item.id())) {
+                replayRows.add(row);
+                recounted.add(item.conversationId());
+                counts.putIfAbsent(item.conversationId(), 0);
+            } else {
+                rows.add(row);
+                counts.merge(item.conversationId(), 1, Integer::sum);
+            }
+            lastMessages.merge(item.conversationId(), item, (a, b) -> a.id() > b.id() ? a : b);
+        }
+        List<Object[]> touches = new ArrayList<>(lastMessages.size());
+        lastMessages.forEach((conversationId, last) -> touches.add(new Object[] {last.createdAt(), last.createdAt(),
+                counts.get(conversationId), last.role(), ConversationService.snippet(last.content()), conversationId}));
+        List<Object[]> recounts = recounted.stream()
+                .map(conversationId -> new Object[] {conversationId, conversationId, conversationId})
+                .toList();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            }
+            if (!replayRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(REPLAY_INSERT_SQL, replayRows);
+            }
+            jdbcTemplate.batchUpdate(TOUCH_CONVERSATION_SQL, touches);
+            if (!recounts.isEmpty()) {
+                jdbcTemplate.batchUpdate(RECOUNT_SQL, recounts);
+            }
+        });
+        if (!recounts.isEmpty()) {
+            batch.forEach(item -> recoveredIds.remove(item.id()));
+        }
+        log.debug("지연 저장 완료: 메시지 {}건 (복구분 {}건), 대화 {}개", batch.size(), replayRows.size(),
+                touches.size());
+    }
+
+    /**
+     * 배치 중 이미 없어진 대화의 메시지를 대기열에서 버림 (버린 것이 있으면 true)
+     */
+    private boolean discardOrphans(List<QueuedMessage> batch) {
+        List<Long> conversationIds = batch.stream().map(QueuedMessage::conversationId).distinct().toList();
+        String sql = "SELECT id FROM conversations WHERE id IN ("
+                + String.join(", ", Collections.nCopies(conversationIds.size(), "?")) + ")";
+        Set<Long> existing;
+        try {
+            existing = new HashSet<>(jdbcTemplate.queryForList(sql, Long.class, conversationIds.toArray()));
+        } catch (DataAccessException e) {
+            return false;
+        }
+        boolean discarded = false;
+        for (Long conversationId : conversationIds) {
+            if (!existing.contains(conversationId)) {
+                log.warn("삭제된 대화의 대기 메시지 버림: conversationId={}", conversationId);
+                discard(conversationId);
+                discarded = true;
+            }
+        }
+        return discarded;
+    }
+
+    private List<QueuedMessage> peekBatch() {
+        lock.lock();
+        try {
+            List<QueuedMessage> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+            Iterator<QueuedMessage> iterator = queue.values().iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                batch.add(iterator.next());
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 저장이 끝난 메시지를 대기열에서 제거하고, 비었으면 저널도 비움 (너무 커지면 남은 것만 다시 씀)
+     */
+    private void remove(List<QueuedMessage> batch) {
+        lock.lock();
+        try {
+            for (QueuedMessage item : batch) {
+                if (queue.remove(item.id()) == null) {
+                    continue;
+                }
+                List<QueuedMessage> items = byConversation.get(item.conversationId());
+                if (items != null) {
+                    items.remove(item);
+                    if (items.isEmpty()) {
+                        byConversation.remove(item.conversationId());
+                    }
+                }
+            }
+            notFull.signalAll();
+
+            if (queue.isEmpty()) {
+                journal.truncate(0);
+            } else if (journal.size() > maxJournalBytes) {
+                rewriteJournal();
+            }
+        } catch (IOException e) {
+            log.warn("메시지 저널 정리 실패 (재시작 시 중복은 무시됨): {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void add(QueuedMessage item) {
+        queue.put(item.id(), item);
+        byConversation.computeIfAbsent(item.conversationId(), id -> new ArrayList<>()).add(item);
+    }
+
+    private int pendingCount() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void appendToJournal(List<QueuedMessage> items) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (QueuedMessage item : items) {
+            lines.append(objectMapper.writeValueAsString(item)).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        if (fsync) {
+            journal.force(false);
+        }
+    }
+
+    private void rewriteJournal() throws IOException {
+        Path temp = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            StringBuilder lines = new StringBuilder();
+            for (QueuedMessage item : queue.values()) {
+                lines.append(objectMapper.writeValueAsString(item)).append('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        journal.close();
+        Files.move(temp, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal = openJournal();
+        log.info("메시지 저널 다시 씀: 대기 {}건", queue.size());
+    }
+
+    private FileChannel openJournal() throws IOException {
+        return FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 이전 실행에서 저장하지 못한 메시지를 대기열로 복구 (마지막 줄이 잘렸으면 그 줄만 버림)
+     */
+    private void recover() throws IOException {
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+        int skipped = 0;
+        for (String line : Files.readAllLines(journalPath, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                QueuedMessage item = objectMapper.readValue(line, QueuedMessage.class);
+                if (!queue.containsKey(item.id())) {
+                    add(item);
+                    recoveredIds.add(item.id());
+                }
+            } catch (IOException e) {
+                skipped++;
+            }
+        }
+        if (!queue.isEmpty() || skipped > 0) {
+            log.warn("메시지 저널 복구: {}건 대기열에 추가, 읽지 못한 줄 {}개", queue.size(), skipped);
+        }
+    }
+
+    /**
+     * 저널 한 줄 = 메시지 하나
+     */
+    record QueuedMessage(long id, long conversationId, String role, String content, String feedback,
+            LocalDateTime createdAt) {
+
+        static QueuedMessage of(Long conversationId, ChatMessage message) {
+            return new QueuedMessage(message.getId(), conversationId, message.getRole(), message.getContent(),
+                    message.getFeedback(), message.getCreatedAt());
+        }
+
+        ChatMessage toChatMessage() {
+            return ChatMessage.builder()
+                    .id(id)
+                    .role(role)
+                    .content(content)
+                    .feedback(feedback)
+                    .createdAt(createdAt)
+                    .build();
+        }
+    }
+}
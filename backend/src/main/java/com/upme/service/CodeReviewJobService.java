@@ -0,0 +1,433 @@
+package com.upme.service;
+
+import com.upme.dto.request.CodeReviewRequest;
+import com.upme.dto.response.CodeReviewResponse;
+import com.upme.model.CodeReviewJob;
+import com.upme.repository.CodeReviewJobRepository;
+import com.upme.security.CallerKeys;
+import com.upme.service.gemini.CodeReviewCache;
+import com.upme.service.gemini.GeminiRejectedException;
+import com.upme.service.gemini.GeminiResponseException;
+import com.upme.service.gemini.GeminiResponseParser;
+import com.upme.service.gemini.GeminiUsageTracker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 비동기 코드 리뷰 작업 처리
+ * - 작업은 code_review_jobs 테이블에 저장 (테이블이 곧 대기열이라 재시작 후에도 이어서 처리)
+ * - 급한 리뷰: 최대 workers개까지만 동시에 실행 (나머지는 QUEUED로 대기)
+ * - 급하지 않은 리뷰: batch.flush-interval-ms마다 모아서 Gemini 배치 모드로 제출 (비용 절감), 완료 여부는 주기적으로 조회
+ * - 작업이 끝나면 completions로 알림 (SSE 구독자에게 전달)
+ */
+@Slf4j
+@Service
+public class CodeReviewJobService {
+
+    private static final List<String> PENDING_STATUSES = List.of(
+            CodeReviewJob.QUEUED, CodeReviewJob.RUNNING, CodeReviewJob.BATCH_SUBMITTED);
+    // 다른 워커가 먼저 가져간 경우를 대비해 한 번에 확인할 후보 수
+    private static final int CLAIM_CANDIDATES = 20;
+    private static final String FAILURE_MESSAGE = "⚠️ AI 코드 리뷰에 일시적인 문제가 발생했습니다. 잠시 후 다시 시도해주세요.";
+
+    private final CodeReviewJobRepository jobRepository;
+    private final GeminiService geminiService;
+    private final CodeReviewCache codeReviewCache;
+    private final GeminiUsageTracker usageTracker;
+    private final Scheduler blockingScheduler;
+    private final int maxPendingPerUser;
+    private final int maxAttempts;
+    private final boolean batchEnabled;
+    private final int batchMaxSize;
+    private final Duration lease;
+    private final Duration awaitPollInterval;
+
+    // 동시에 실행 중인 급한 리뷰 수 제한
+    private final Semaphore workerPermits;
+
+    // 완료/실패한 작업 ID 알림 (여러 스레드에서 발행하므로 lock으로 직렬화)
+    private final Sinks.Many<Long> completions = Sinks.many().multicast().directBestEffort();
+    private final ReentrantLock completionLock = new ReentrantLock();
+
+    // 주기 작업이 겹쳐 실행되지 않도록
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private final AtomicBoolean flushingBatch = new AtomicBoolean();
+    private final AtomicBoolean pollingBatches = new AtomicBoolean();
+
+    public CodeReviewJobService(
+            CodeReviewJobRepository jobRepository,
+            GeminiService geminiService,
+            CodeReviewCache codeReviewCache,
+            GeminiUsageTracker usageTracker,
+            Scheduler blockingScheduler,
+            @Value("${code-review.jobs.workers:4}") int workers,
+            @Value("${code-review.jobs.max-pending-per-user:5}") int maxPendingPerUser,
+            @Value("${code-review.jobs.max-attempts:3}") int maxAttempts,
+            @Value("${code-review.jobs.batch.enabled:true}") boolean batchEnabled,
+            @Value("${code-review.jobs.batch.max-size:50}") int batchMaxSize,
+            @Value("${code-review.jobs.lease-minutes:10}") long leaseMinutes,
+            @Value("${code-review.jobs.await-poll-interval-ms:3000}") long awaitPollIntervalMs) {
+        this.jobRepository = jobRepository;
+        this.geminiService = geminiService;
+        this.codeReviewCache = codeReviewCache;
+        this.usageTracker = usageTracker;
+        this.blockingScheduler = blockingScheduler;
+        this.workerPermits = new Semaphore(workers);
+        this.maxPendingPerUser = maxPendingPerUser;
+        this.maxAttempts = maxAttempts;
+        this.batchEnabled = batchEnabled;
+        this.batchMaxSize = batchMaxSize;
+        this.lease = Duration.ofMinutes(leaseMinutes);
+        this.awaitPollInterval = Duration.ofMillis(awaitPollIntervalMs);
+    }
+
+    /**
+     * 작업 등록 후 바로 반환 (리뷰는 워커 또는 배치에서 처리)
+     * 처리 중인 작업이 너무 많거나 토큰 한도를 넘었으면 429
+     */
+    public CodeReviewJob submit(Long userId, CodeReviewRequest request, boolean urgent) {
+        // 배치 모드는 호출 스케줄러를 거치지 않으므로 등록 시점에 한도 확인
+        GeminiRejectedException overQuota = usageTracker.quotaRejection(CallerKeys.forUser(userId));
+        if (overQuota != null) {
+            throw overQuota;
+        }
+        if (jobRepository.countByUserIdAndStatusIn(userId, PENDING_STATUSES) >= maxPendingPerUser) {
+            throw new GeminiRejectedException(HttpStatus.TOO_MANY_REQUESTS,
+                    "처리 중인 코드 리뷰가 너무 많습니다. 이전 리뷰가 끝난 뒤 다시 요청해주세요.", 30);
+        }
+
+        CodeReviewJob job = jobRepository.save(CodeReviewJob.builder()
+                .userId(userId)
+                .status(CodeReviewJob.QUEUED)
+                .batchMode(!urgent && batchEnabled)
+                .problemId(request.getProblemId())
+                .problemTitle(request.getProblemTitle())
+                .language(request.getLanguage())
+                .code(request.getCode())
+                .build());
+        log.info("코드 리뷰 작업 등록: jobId={}, 문제 #{}, 배치={}", job.getId(), job.getProblemId(), job.isBatchMode());
+
+        if (!job.isBatchMode()) {
+            dispatchLater();
+        }
+        return job;
+    }
+
+    /**
+     * 본인 작업 조회
+     */
+    public CodeReviewJob getJob(Long jobId, Long userId) {
+        CodeReviewJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("코드 리뷰 작업을 찾을 수 없습니다."));
+        if (!job.getUserId().equals(userId)) {
+            throw new RuntimeException("접근 권한이 없습니다.");
+        }
+        return job;
+    }
+
+    /**
+     * 작업이 끝날 때 한 번 발행 (이미 끝난 작업이면 바로 발행)
+     * - 이 인스턴스에서 끝난 작업: completions 알림으로 바로 발행
+     * - 다른 인스턴스에서 끝난 작업: 알림이 오지 않으므로 await-poll-interval-ms마다 DB 상태를 확인
+     * 알림을 먼저 구독한 뒤 DB를 확인하므로 그 사이에 끝난 작업도 놓치지 않음
+     */
+    public Mono<CodeReviewJob> awaitCompletion(Long jobId, Long userId) {
+        Flux<CodeReviewJob> notified = completions.asFlux()
+                .filter(jobId::equals)
+                .take(1)
+                .publishOn(blockingScheduler)
+                .map(id -> getJob(id, userId));
+        // 첫 확인은 바로 (이미 끝난 작업), 조회가 밀리면 겹쳐 실행하지 않고 다음 주기로
+        Flux<CodeReviewJob> polled = Flux.interval(Duration.ZERO, awaitPollInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.fromCallable(() -> getJob(jobId, userId))
+                        .subscribeOn(blockingScheduler), 1)
+                .filter(CodeReviewJob::isFinished);
+
+        return Flux.merge(notified, polled).next();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        blockingScheduler.schedule(() -> {
+            requeueStale();
+            dispatch();
+        });
+    }
+
+    /**
+     * 워커 자리가 날 때 놓친 작업(재시도 대기, 다른 인스턴스에서 등록 등)을 주기적으로 확인
+     * 블로킹 스레드에서 실행 (스케줄러 스레드는 다른 @Scheduled 작업과 공유)
+     */
+    @Scheduled(fixedDelayString = "${code-review.jobs.poll-interval-ms:5000}")
+    public void poll() {
+        runInBackground(polling, () -> {
+            requeueStale();
+            dispatch();
+        });
+    }
+
+    /**
+     * lease-minutes보다 오래 RUNNING인 작업은 처리하던 인스턴스가 죽은 것으로 보고 다시 대기열로
+     * (배치로 제출된 작업은 배치 조회로 이어서 처리, 다른 인스턴스가 처리 중인 작업은 건드리지 않음)
+     */
+    private void requeueStale() {
+        int requeued = jobRepository.updateStaleStatus(CodeReviewJob.RUNNING, CodeReviewJob.QUEUED,
+                LocalDateTime.now().minus(lease));
+        if (requeued > 0) {
+            log.info("중단된 코드 리뷰 작업 {}건을 다시 대기열에 추가", requeued);
+        }
+    }
+
+    /**
+     * 같은 작업이 아직 실행 중이면 건너뜀
+     */
+    private void runInBackground(AtomicBoolean running, Runnable task) {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        blockingScheduler.schedule(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("코드 리뷰 백그라운드 작업 실패: {}", e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    private void dispatchLater() {
+        blockingScheduler.schedule(this::dispatch);
+    }
+
+    /**
+     * 빈 워커 수만큼 대기 중인 급한 작업을 가져와 실행 (블로킹 스레드에서 호출)
+     */
+    private void dispatch() {
+        while (workerPermits.tryAcquire()) {
+            CodeReviewJob job = claimNext();
+            if (job == null) {
+                workerPermits.release();
+                return;
+            }
+
+            run(job)
+                    .doFinally(signal -> {
+                        workerPermits.release();
+                        dispatchLater();
+                    })
+                    .subscribe(
+                            unused -> {
+                            },
+                            e -> log.error("코드 리뷰 작업 처리 실패: jobId={}, {}", job.getId(), e.getMessage()));
+        }
+    }
+
+    private CodeReviewJob claimNext() {
+        LocalDateTime now = LocalDateTime.now();
+        for (CodeReviewJob candidate : jobRepository.findByStatusAndBatchModeOrderByIdAsc(
+                CodeReviewJob.QUEUED, false, PageRequest.of(0, CLAIM_CANDIDATES))) {
+            if (jobRepository.claim(candidate.getId(), CodeReviewJob.QUEUED, CodeReviewJob.RUNNING, now) == 1) {
+                candidate.setStatus(CodeReviewJob.RUNNING);
+                candidate.setClaimedAt(now);
+                candidate.setAttempts(candidate.getAttempts() + 1);
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private Mono<Void> run(CodeReviewJob job) {
+        return geminiService.loadCodeReview(toRequest(job), CallerKeys.forUser(job.getUserId()))
+                .publishOn(blockingScheduler)
+                .doOnNext(response -> complete(job, response))
+                .onErrorResume(e -> Mono.<CodeReviewResponse>fromRunnable(() -> fail(job, e))
+                        .subscribeOn(blockingScheduler))
+                .then();
+    }
+
+    /**
+     * 대기 중인 배치 작업 제출 (캐시에 있는 리뷰는 바로 완료 처리)
+     * 제출이 오래 걸릴 수 있어 블로킹 스레드에서 실행
+     */
+    @Scheduled(fixedDelayString = "${code-review.jobs.batch.flush-interval-ms:60000}")
+    public void flushBatch() {
+        runInBackground(flushingBatch, this::flushBatchNow);
+    }
+
+    private void flushBatchNow() {
+        LocalDateTime now = LocalDateTime.now();
+        List<CodeReviewJob> claimed = new ArrayList<>();
+        for (CodeReviewJob candidate : jobRepository.findByStatusAndBatchModeOrderByIdAsc(
+                CodeReviewJob.QUEUED, true, PageRequest.of(0, batchMaxSize))) {
+            if (jobRepository.claim(candidate.getId(), CodeReviewJob.QUEUED, CodeReviewJob.RUNNING, now) == 1) {
+                candidate.setStatus(CodeReviewJob.RUNNING);
+                candidate.setClaimedAt(now);
+                candidate.setAttempts(candidate.getAttempts() + 1);
+                claimed.add(candidate);
+            }
+        }
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        Map<String, CodeReviewRequest> requests = new LinkedHashMap<>();
+        List<CodeReviewJob> batched = new ArrayList<>();
+        for (CodeReviewJob job : claimed) {
+            CodeReviewResponse cached = codeReviewCache.lookup(toRequest(job)).block();
+            if (cached != null) {
+                complete(job, cached);
+            } else {
+                requests.put(batchKey(job), toRequest(job));
+                batched.add(job);
+            }
+        }
+        if (batched.isEmpty()) {
+            return;
+        }
+
+        try {
+            String batchName = geminiService.submitCodeReviewBatch("code-review-" + batched.get(0).getId(), requests)
+                    .block();
+            for (CodeReviewJob job : batched) {
+                job.setStatus(CodeReviewJob.BATCH_SUBMITTED);
+                job.setBatchName(batchName);
+            }
+            jobRepository.saveAll(batched);
+        } catch (RuntimeException e) {
+            // 배치 모드를 쓸 수 없으면(모델 미지원 등) 일반 워커로 처리
+            log.warn("코드 리뷰 배치 제출 실패, {}건을 일반 작업으로 전환: {}", batched.size(), e.getMessage());
+            for (CodeReviewJob job : batched) {
+                job.setStatus(CodeReviewJob.QUEUED);
+                job.setBatchMode(false);
+            }
+            jobRepository.saveAll(batched);
+            dispatchLater();
+        }
+    }
+
+    /**
+     * 제출된 배치의 완료 여부 확인 후 결과 반영
+     * 결과가 없거나 실패한 항목은 일반 작업으로 다시 처리 (블로킹 스레드에서 실행)
+     */
+    @Scheduled(fixedDelayString = "${code-review.jobs.batch.status-interval-ms:30000}")
+    public void pollBatches() {
+        runInBackground(pollingBatches, this::pollBatchesNow);
+    }
+
+    private void pollBatchesNow() {
+        for (String batchName : jobRepository.findBatchNamesByStatus(CodeReviewJob.BATCH_SUBMITTED)) {
+            GeminiResponseParser.BatchStatus status;
+            try {
+                status = geminiService.getBatch(batchName).block();
+            } catch (RuntimeException e) {
+                log.warn("코드 리뷰 배치 상태 조회 실패: {}, {}", batchName, e.getMessage());
+                continue;
+            }
+            if (status == null || !status.done()) {
+                continue;
+            }
+
+            log.info("코드 리뷰 배치 종료: {} ({}), 결과 {}건", batchName, status.state(), status.responses().size());
+            boolean requeued = false;
+            for (CodeReviewJob job : jobRepository.findByBatchNameAndStatus(batchName, CodeReviewJob.BATCH_SUBMITTED)) {
+                String responseJson = status.responses().get(batchKey(job));
+                if (responseJson != null) {
+                    try {
+                        CodeReviewResponse response = geminiService.parseCodeReviewResponse(
+                                responseJson, CallerKeys.forUser(job.getUserId()));
+                        codeReviewCache.store(toRequest(job), response).block();
+                        complete(job, response);
+                        continue;
+                    } catch (GeminiResponseException e) {
+                        log.warn("배치 결과 파싱 실패: jobId={}, {}", job.getId(), e.getMessage());
+                    }
+                }
+                job.setStatus(CodeReviewJob.QUEUED);
+                job.setBatchMode(false);
+                job.setBatchName(null);
+                jobRepository.save(job);
+                requeued = true;
+            }
+            if (requeued) {
+                dispatchLater();
+            }
+        }
+    }
+
+    private void complete(CodeReviewJob job, CodeReviewResponse response) {
+        job.setStatus(CodeReviewJob.COMPLETED);
+        job.setSummary(response.getSummary());
+        job.setStrengths(response.getStrengths());
+        job.setImprovements(response.getImprovements());
+        job.setTimeComplexity(response.getTimeComplexity());
+        job.setTips(response.getTips());
+        job.setError(null);
+        job.setCompletedAt(LocalDateTime.now());
+        jobRepository.save(job);
+        log.info("코드 리뷰 작업 완료: jobId={}", job.getId());
+        notifyCompletion(job.getId());
+    }
+
+    /**
+     * 일시적인 거절(대기열 초과, 서킷 브레이커)은 max-attempts까지 다시 대기, 그 외에는 실패 처리
+     */
+    private void fail(CodeReviewJob job, Throwable e) {
+        if (e instanceof GeminiRejectedException && job.getAttempts() < maxAttempts) {
+            log.info("코드 리뷰 작업 재대기: jobId={} ({}회 시도), {}", job.getId(), job.getAttempts(), e.getMessage());
+            job.setStatus(CodeReviewJob.QUEUED);
+            jobRepository.save(job);
+            return;
+        }
+
+        log.error("코드 리뷰 작업 실패: jobId={}, {}", job.getId(), e.getMessage());
+        job.setStatus(CodeReviewJob.FAILED);
+        job.setError(e instanceof GeminiResponseException ? e.getMessage() : FAILURE_MESSAGE);
+        job.setCompletedAt(LocalDateTime.now());
+        jobRepository.save(job);
+        notifyCompletion(job.getId());
+    }
+
+    private void notifyCompletion(Long jobId) {
+        completionLock.lock();
+        try {
+            completions.tryEmitNext(jobId);
+        } finally {
+            completionLock.unlock();
+        }
+    }
+
+    private static String batchKey(CodeReviewJob job) {
+        return "job-" + job.getId();
+    }
+
+    private static CodeReviewRequest toRequest(CodeReviewJob job) {
+        CodeReviewRequest request = new CodeReviewRequest();
+        request.setCode(job.getCode());
+        request.setLanguage(job.getLanguage());
+        request.setProblemId(job.getProblemId() != null ? job.getProblemId() : 0);
+        request.setProblemTitle(job.getProblemTitle());
+        return request;
+    }
+}
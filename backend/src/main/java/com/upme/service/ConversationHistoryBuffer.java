@@ -0,0 +1,300 @@
+package com.upme.service;
+
+import com.upme.dto.response.ChatMessageView;
+import com.upme.model.ChatMessage;
+import com.upme.model.Conversation;
+import com.upme.repository.ChatMessageRepository;
+import com.upme.repository.ConversationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 활성 대화별 최근 메시지 링 버퍼 (Gemini 히스토리를 서버에서 구성하기 위한 용도)
+ * - 버퍼가 없으면 DB에서 최근 메시지 capacity개를 읽어 채움 (모자라면 보관 메시지로 채움)
+ * - 이후 턴은 conversations.message_count만 PK로 조회해 버퍼가 아는 메시지 수보다 많으면 다시 읽음
+ *   (같은 대화에 다른 인스턴스가 저장한 메시지 반영, 요청이 항상 같은 인스턴스로 가는 sticky 라우팅이면
+ *   chat.history.buffer.validate=false로 끌 수 있음. 다른 인스턴스의 지연 저장 대기 메시지는 저장된 뒤에 반영)
+ * - 요약도 함께 보관 (권한 확인은 ConversationOwnerCache)
+ * - 일정 시간 사용하지 않은 대화는 제거
+ */
+@Slf4j
+@Component
+public class ConversationHistoryBuffer {
+
+    private final ConversationRepository conversationRepository;
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatMessageWriteBehind writeBehind;
+    private final ChatMessageArchiver archiver;
+    private final int capacity;
+    private final int maxConversations;
+    private final long idleNanos;
+    private final boolean validate;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public ConversationHistoryBuffer(
+            ConversationRepository conversationRepository,
+            ChatMessageRepository chatMessageRepository,
+            ChatMessageWriteBehind writeBehind,
+            ChatMessageArchiver archiver,
+            @Value("${chat.history.buffer.capacity:40}") int capacity,
+            @Value("${chat.history.buffer.max-conversations:10000}") int maxConversations,
+            @Value("${chat.history.buffer.idle-minutes:30}") long idleMinutes,
+            @Value("${chat.history.buffer.validate:true}") boolean validate) {
+        this.conversationRepository = conversationRepository;
+        this.chatMessageRepository = chatMessageRepository;
+        this.writeBehind = writeBehind;
+        this.archiver = archiver;
+        this.capacity = capacity;
+        this.maxConversations = maxConversations;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+        this.validate = validate;
+    }
+
+    /**
+     * 대화의 요약, 요약 이후 최근 메시지 (오래된 것부터)
+     */
+    public Snapshot get(Long conversationId) {
+        Entry entry = entries.computeIfAbsent(conversationId, Entry::new);
+        entry.lock.lock();
+        try {
+            if (entry.loaded && validate && isStale(entry)) {
+                log.debug("대화 히스토리 버퍼가 DB와 달라 다시 적재: conversationId={}", conversationId);
+                entry.reset();
+            }
+            if (!entry.loaded) {
+                load(entry);
+            }
+            entry.lastAccess = System.nanoTime();
+            return entry.snapshot();
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * 저장된 메시지 추가 (버퍼가 없으면 다음 조회 때 DB에서 읽으므로 무시)
+     */
+    public void append(Long conversationId, List<ChatMessage> messages) {
+        Entry entry = entries.get(conversationId);
+        if (entry == null) {
+            return;
+        }
+        entry.lock.lock();
+        try {
+            if (!entry.loaded) {
+                return;
+            }
+            for (ChatMessage message : messages) {
+                if (entry.add(new BufferedMessage(message.getId(), message.getRole(), message.getContent()))
+                        && entry.knownCount >= 0) {
+                    entry.knownCount++;
+                }
+            }
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * 요약 이후 메시지 수 (버퍼가 없거나 오래된 메시지가 밀려나서 정확히 모르면 -1)
+     * 요약할 만큼 쌓였는지 DB 조회 없이 판단하는 용도
+     */
+    public int unsummarizedCount(Long conversationId) {
+        Entry entry = entries.get(conversationId);
+        if (entry == null) {
+            return -1;
+        }
+        entry.lock.lock();
+        try {
+            if (!entry.loaded) {
+                return -1;
+            }
+            long afterId = entry.summarizedUntilId != null ? entry.summarizedUntilId : 0L;
+            BufferedMessage first = entry.messages.peekFirst();
+            // 처음부터 모두 들고 있거나, 이미 요약된 메시지가 남아 있으면 그 뒤는 빠짐없이 있음
+            if (!entry.complete && (first == null || first.id() > afterId)) {
+                return -1;
+            }
+            int count = 0;
+            for (BufferedMessage message : entry.messages) {
+                if (message.id() > afterId) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * 백그라운드 요약 갱신 반영
+     */
+    public void updateSummary(Long conversationId, String summary, Long summarizedUntilMessageId) {
+        Entry entry = entries.get(conversationId);
+        if (entry == null) {
+            return;
+        }
+        entry.lock.lock();
+        try {
+            entry.summary = summary;
+            entry.summarizedUntilId = summarizedUntilMessageId;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    public void evict(Long conversationId) {
+        entries.remove(conversationId);
+    }
+
+    /**
+     * 오래 사용하지 않은 대화 제거 (최대 개수를 넘으면 가장 오래된 것부터 추가 제거)
+     */
+    @Scheduled(fixedDelayString = "${chat.history.buffer.evict-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.lastAccess > idleNanos);
+
+        int overflow = entries.size() - maxConversations;
+        if (overflow > 0) {
+            entries.values().stream()
+                    .sorted((a, b) -> Long.compare(a.lastAccess, b.lastAccess))
+                    .limit(overflow)
+                    .map(entry -> entry.conversationId)
+                    .toList()
+                    .forEach(entries::remove);
+        }
+    }
+
+    /**
+     * DB의 메시지 수가 버퍼가 아는 메시지 수보다 많으면 다른 곳에서 저장된 메시지가 있음
+     * (이 인스턴스의 지연 저장 대기 메시지 때문에 DB 쪽이 적은 것은 정상, 대화가 삭제됐으면 다시 적재하면서 예외)
+     */
+    private boolean isStale(Entry entry) {
+        if (entry.knownCount < 0) {
+            return false;
+        }
+        return conversationRepository.findMessageCountById(entry.conversationId)
+                .map(count -> count > entry.knownCount)
+                .orElse(true);
+    }
+
+    private void load(Entry entry) {
+        // 지연 저장 대기 중인 메시지를 DB보다 먼저 읽고 뒤에 붙임 (이미 저장된 것은 ID로 걸러짐)
+        List<ChatMessage> pending = writeBehind.pending(entry.conversationId);
+        Conversation conversation = conversationRepository.findById(entry.conversationId)
+                .filter(c -> c.getDeletedAt() == null)
+                .orElse(null);
+        if (conversation == null) {
+            entries.remove(entry.conversationId);
+            throw new RuntimeException("대화를 찾을 수 없습니다.");
+        }
+
+        List<ChatMessage> recent = new ArrayList<>(chatMessageRepository.findByConversationIdOrderByIdDesc(
+                entry.conversationId, PageRequest.of(0, capacity)));
+        // 최근 메시지가 모자라면 보관된 오래된 메시지를 앞에 채움
+        List<ChatMessageView> archived = List.of();
+        if (recent.size() < capacity) {
+            long oldestId = recent.isEmpty() ? Long.MAX_VALUE : recent.get(recent.size() - 1).getId();
+            archived = archiver.readBefore(entry.conversationId, oldestId, capacity - recent.size());
+        }
+        for (ChatMessageView view : archived) {
+            entry.add(new BufferedMessage(view.id(), view.role(), view.content()));
+        }
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            ChatMessage message = recent.get(i);
+            entry.add(new BufferedMessage(message.getId(), message.getRole(), message.getContent()));
+        }
+        // 아직 DB에 없는 대기 메시지만 메시지 수에 더함 (목록 미리보기가 채워지기 전의 대화는 확인하지 않음)
+        int pendingAdded = 0;
+        for (ChatMessage message : pending) {
+            if (entry.add(new BufferedMessage(message.getId(), message.getRole(), message.getContent()))) {
+                pendingAdded++;
+            }
+        }
+
+        entry.complete = recent.size() + archived.size() < capacity;
+        entry.knownCount = conversation.getMessageCount() != null ? conversation.getMessageCount() + pendingAdded : -1;
+        entry.summary = conversation.getSummary();
+        entry.summarizedUntilId = conversation.getSummarizedUntilMessageId();
+        entry.loaded = true;
+        log.debug("대화 히스토리 버퍼 적재: conversationId={}, 메시지 {}개 (저장 대기 {}개)",
+                entry.conversationId, recent.size(), pending.size());
+    }
+
+    public record Snapshot(String summary, List<BufferedMessage> recent) {
+    }
+
+    public record BufferedMessage(Long id, String role, String content) {
+    }
+
+    /**
+     * 대화 하나의 버퍼 (lock으로 보호)
+     */
+    private final class Entry {
+
+        private final Long conversationId;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<BufferedMessage> messages = new ArrayDeque<>(capacity);
+        private volatile long lastAccess = System.nanoTime();
+        private boolean loaded = false;
+        // 대화의 메시지를 하나도 밀어내지 않고 모두 들고 있는지
+        private boolean complete = false;
+        // 버퍼를 채운 뒤 알고 있는 대화 전체 메시지 수 (DB message_count와 비교, 모르면 -1)
+        private int knownCount = -1;
+        private String summary;
+        private Long summarizedUntilId;
+
+        private Entry(Long conversationId) {
+            this.conversationId = conversationId;
+        }
+
+        /**
+         * 추가했으면 true (이미 들고 있는 메시지면 false)
+         */
+        private boolean add(BufferedMessage message) {
+            // DB 적재와 저장 직후 추가가 겹쳐도 같은 메시지를 두 번 넣지 않음
+            BufferedMessage last = messages.peekLast();
+            if (last != null && last.id() >= message.id()) {
+                return false;
+            }
+            if (messages.size() >= capacity) {
+                messages.pollFirst();
+                complete = false;
+            }
+            messages.addLast(message);
+            return true;
+        }
+
+        private void reset() {
+            messages.clear();
+            loaded = false;
+            complete = false;
+            knownCount = -1;
+        }
+
+        private Snapshot snapshot() {
+            long afterId = summarizedUntilId != null ? summarizedUntilId : 0L;
+            List<BufferedMessage> recent = new ArrayList<>(messages.size());
+            for (BufferedMessage message : messages) {
+                if (message.id() > afterId) {
+                    recent.add(message);
+                }
+            }
+            return new Snapshot(summary, recent);
+        }
+    }
+}
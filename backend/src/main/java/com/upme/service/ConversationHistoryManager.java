@@ -0,0 +1,244 @@
+package com.upme.service;
+
+import com.upme.dto.request.ChatRequest;
+import com.upme.model.ChatMessage;
+import com.upme.model.Conversation;
+import com.upme.repository.ChatMessageRepository;
+import com.upme.repository.ConversationRepository;
+import com.upme.security.CallerKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gemini에 보낼 대화 히스토리 관리
+ * - 저장된 대화는 클라이언트가 보낸 history 대신 서버의 최근 메시지 버퍼로 히스토리 구성
+ * - 최근 메시지만 토큰 예산(chat.history.token-budget) 안에서 전송
+ * - 그보다 오래된 메시지는 Conversation.summary에 요약으로 접어서 전송
+ * - 요약은 summary-every-turns 턴마다 백그라운드에서 갱신 (응답 지연에 영향 없음)
+ * - 토큰 예산 때문에 요약되지 않은 메시지가 윈도우에서 빠지면 그 앞까지 바로 요약 (빠진 메시지가 요약에도 없이 사라지지 않도록)
+ */
+@Slf4j
+@Service
+public class ConversationHistoryManager {
+
+    private final ConversationRepository conversationRepository;
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatMessageArchiver archiver;
+    private final ConversationService conversationService;
+    private final GeminiService geminiService;
+    private final ConversationHistoryBuffer historyBuffer;
+    private final ConversationOwnerCache ownerCache;
+    private final Scheduler blockingScheduler;
+    private final int tokenBudget;
+    private final int summaryEveryMessages;
+    private final int keepRecentMessages;
+
+    // 요약 작업이 진행 중인 대화 ID (같은 대화의 요약을 동시에 두 번 만들지 않도록)
+    private final Set<Long> summarizing = ConcurrentHashMap.newKeySet();
+
+    public ConversationHistoryManager(
+            ConversationRepository conversationRepository,
+            ChatMessageRepository chatMessageRepository,
+            ChatMessageArchiver archiver,
+            ConversationService conversationService,
+            GeminiService geminiService,
+            ConversationHistoryBuffer historyBuffer,
+            ConversationOwnerCache ownerCache,
+            Scheduler blockingScheduler,
+            @Value("${chat.history.token-budget:2000}") int tokenBudget,
+            @Value("${chat.history.summary-every-turns:10}") int summaryEveryTurns,
+            @Value("${chat.history.keep-recent-turns:6}") int keepRecentTurns) {
+        this.conversationRepository = conversationRepository;
+        this.chatMessageRepository = chatMessageRepository;
+        this.archiver = archiver;
+        this.conversationService = conversationService;
+        this.geminiService = geminiService;
+        this.historyBuffer = historyBuffer;
+        this.ownerCache = ownerCache;
+        this.blockingScheduler = blockingScheduler;
+        this.tokenBudget = tokenBudget;
+        // 1턴 = 사용자 메시지 + AI 응답
+        this.summaryEveryMessages = summaryEveryTurns * 2;
+        this.keepRecentMessages = keepRecentTurns * 2;
+    }
+
+    /**
+     * 저장된 대화의 히스토리 구성: 본인 대화인지 확인하고, 서버 버퍼의 최근 메시지와 요약으로 히스토리를 채움
+     * 클라이언트가 보낸 history는 사용하지 않는다.
+     */
+    public void prepare(ChatRequest request, Long conversationId, Long userId) {
+        ownerCache.requireOwner(conversationId, userId);
+        ConversationHistoryBuffer.Snapshot snapshot = historyBuffer.get(conversationId);
+        List<ConversationHistoryBuffer.BufferedMessage> recent = snapshot.recent();
+
+        request.setSummary(snapshot.summary());
+        request.setHistory(recent.stream()
+                .map(m -> new ChatRequest.MessageItem(m.role(), m.content()))
+                .toList());
+        applyWindow(request);
+
+        // 버퍼의 메시지는 모두 요약 이후 것이므로 빠진 게 있으면 윈도우 첫 메시지 앞까지 요약
+        int sent = request.getHistory().size();
+        if (sent < recent.size()) {
+            summarizeInBackground(conversationId, userId, recent.get(recent.size() - sent).id());
+        }
+    }
+
+    /**
+     * 요청 히스토리를 토큰 예산 안의 최근 메시지로 줄임 (비로그인 체험 모드는 이것만 적용)
+     */
+    public void applyWindow(ChatRequest request) {
+        List<ChatRequest.MessageItem> history = request.getHistory();
+        if (history == null || history.isEmpty()) {
+            return;
+        }
+
+        int budget = tokenBudget - estimateTokens(request.getMessage()) - estimateTokens(request.getSummary());
+        Deque<ChatRequest.MessageItem> window = new ArrayDeque<>();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            ChatRequest.MessageItem item = history.get(i);
+            budget -= estimateTokens(item.getContent());
+            if (budget < 0) {
+                break;
+            }
+            window.addFirst(item);
+        }
+
+        if (window.size() < history.size()) {
+            log.debug("히스토리 윈도우 적용: {}개 중 최근 {}개 전송 (요약 {})",
+                    history.size(), window.size(), request.getSummary() != null);
+        }
+        request.setHistory(new ArrayList<>(window));
+    }
+
+    /**
+     * 메시지 저장 후 호출: 버퍼에 추가하고, 요약되지 않은 오래된 메시지가 충분히 쌓였으면 백그라운드에서 요약 갱신
+     */
+    public void onMessagesSaved(Long conversationId, Long userId, List<ChatMessage> saved) {
+        historyBuffer.append(conversationId, saved);
+
+        // 버퍼로 요약할 만큼 쌓이지 않은 게 확실하면 DB를 보지 않음
+        int unsummarized = historyBuffer.unsummarizedCount(conversationId);
+        if (unsummarized >= 0 && unsummarized - keepRecentMessages < summaryEveryMessages) {
+            return;
+        }
+        summarizeInBackground(conversationId, userId, null);
+    }
+
+    /**
+     * 백그라운드 요약 갱신 (keepFromId가 있으면 그 앞의 요약되지 않은 메시지를 개수와 상관없이 요약)
+     */
+    private void summarizeInBackground(Long conversationId, Long userId, Long keepFromId) {
+        if (!summarizing.add(conversationId)) {
+            return;
+        }
+
+        Mono.fromCallable(() -> pendingMessages(conversationId, keepFromId))
+                .subscribeOn(blockingScheduler)
+                .flatMap(pending -> summarize(conversationId, userId, pending))
+                .doFinally(signal -> summarizing.remove(conversationId))
+                .subscribe(
+                        unused -> {
+                        },
+                        e -> log.warn("대화 요약 갱신 실패: conversationId={}, {}", conversationId, e.getMessage()));
+    }
+
+    private PendingMessages pendingMessages(Long conversationId, Long keepFromId) {
+        Conversation conversation = conversationRepository.findById(conversationId).orElse(null);
+        if (conversation == null || conversation.getDeletedAt() != null) {
+            return null;
+        }
+
+        // 요약 이후 메시지를 필요한 만큼만 읽음 (전체 개수를 세지 않아 대화 길이와 무관)
+        Long afterId = conversation.getSummarizedUntilMessageId() != null
+                ? conversation.getSummarizedUntilMessageId()
+                : 0L;
+        int needed = summaryEveryMessages + keepRecentMessages;
+        List<ChatMessage> messages = chatMessageRepository.findByConversationIdAndIdGreaterThanOrderByIdAsc(
+                conversationId, afterId, PageRequest.of(0, needed));
+        if (messages.size() < needed) {
+            // 요약되지 않은 메시지가 보관 블록에 있으면 앞에 붙임 (보관 메시지는 모두 chat_messages보다 오래됨)
+            List<ChatMessage> archived = archiver.readAfter(conversationId, afterId, needed).stream()
+                    .map(view -> ChatMessage.builder().id(view.id()).role(view.role()).content(view.content()).build())
+                    .toList();
+            if (!archived.isEmpty()) {
+                List<ChatMessage> merged = new ArrayList<>(archived);
+                merged.addAll(messages);
+                messages = merged.subList(0, Math.min(needed, merged.size()));
+            }
+        }
+        List<ChatMessage> pending;
+        if (keepFromId != null) {
+            // 한 번에 needed개까지 (더 남았으면 다음 요청에서 다시 윈도우에서 빠지므로 이어서 요약)
+            pending = messages.stream().filter(m -> m.getId() < keepFromId).toList();
+        } else {
+            int count = messages.size() - keepRecentMessages;
+            if (count < summaryEveryMessages) {
+                return null;
+            }
+            pending = messages.subList(0, count);
+        }
+        if (pending.isEmpty()) {
+            return null;
+        }
+        return new PendingMessages(conversation.getSummary(), summarizedCount(conversation), pending);
+    }
+
+    private Mono<Void> summarize(Long conversationId, Long userId, PendingMessages pending) {
+        if (pending.messages().isEmpty()) {
+            return Mono.empty();
+        }
+
+        List<ChatRequest.MessageItem> items = pending.messages().stream()
+                .map(m -> new ChatRequest.MessageItem(m.getRole(), m.getContent()))
+                .toList();
+        ChatMessage last = pending.messages().get(pending.messages().size() - 1);
+
+        return geminiService.summarize(pending.previousSummary(), items, CallerKeys.forUser(userId))
+                .publishOn(blockingScheduler)
+                .doOnNext(summary -> {
+                    conversationService.updateSummary(
+                            conversationId, summary, pending.summarizedCount() + items.size(), last.getId());
+                    historyBuffer.updateSummary(conversationId, summary, last.getId());
+                })
+                .then();
+    }
+
+    private static int summarizedCount(Conversation conversation) {
+        return conversation.getSummarizedMessageCount() != null ? conversation.getSummarizedMessageCount() : 0;
+    }
+
+    /**
+     * 대략적인 토큰 수 추정 (영문 약 4자당 1토큰, 한글 등 비ASCII 문자는 1자당 1토큰 + 메시지당 오버헤드)
+     */
+    static int estimateTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 128) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return (ascii + 3) / 4 + other + 4;
+    }
+
+    private record PendingMessages(String previousSummary, int summarizedCount, List<ChatMessage> messages) {
+    }
+}
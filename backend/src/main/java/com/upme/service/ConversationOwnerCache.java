@@ -0,0 +1,85 @@
+package com.upme.service;
+
+import com.upme.repository.ConversationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 대화 ID → 소유자 ID 캐시 (권한 확인용, 최대 개수 LRU)
+ * - 없으면 소유자 ID 컬럼만 조회 (Conversation/User 엔티티를 읽지 않음)
+ * - 대화의 소유자는 바뀌지 않으므로 만료 없이 삭제 시에만 제거
+ */
+@Component
+public class ConversationOwnerCache {
+
+    private final ConversationRepository conversationRepository;
+    private final int maxEntries;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Long, Long> owners;
+
+    public ConversationOwnerCache(
+            ConversationRepository conversationRepository,
+            @Value("${chat.owner-cache.max-entries:50000}") int maxEntries) {
+        this.conversationRepository = conversationRepository;
+        this.maxEntries = maxEntries;
+        // accessOrder=true → 가장 오래 안 쓴 항목부터 제거
+        this.owners = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > ConversationOwnerCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 본인 대화인지 확인 (대화가 없거나 다른 사용자의 대화면 예외)
+     */
+    public void requireOwner(Long conversationId, Long userId) {
+        if (!userId.equals(ownerOf(conversationId))) {
+            throw new RuntimeException("접근 권한이 없습니다.");
+        }
+    }
+
+    public Long ownerOf(Long conversationId) {
+        Long ownerId = get(conversationId);
+        if (ownerId != null) {
+            return ownerId;
+        }
+        ownerId = conversationRepository.findOwnerIdById(conversationId)
+                .orElseThrow(() -> new RuntimeException("대화를 찾을 수 없습니다."));
+        put(conversationId, ownerId);
+        return ownerId;
+    }
+
+    public void put(Long conversationId, Long ownerId) {
+        lock.lock();
+        try {
+            owners.put(conversationId, ownerId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void evict(Long conversationId) {
+        lock.lock();
+        try {
+            owners.remove(conversationId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Long get(Long conversationId) {
+        lock.lock();
+        try {
+            return owners.get(conversationId);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.upme.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+
+/**
+ * 목록 미리보기 컬럼(message_count 등)이 생기기 전에 만들어진 대화를 채움
+ * 시작 후 백그라운드에서 CHUNK_SIZE개씩 (채울 대화가 없으면 SELECT 한 번으로 끝)
+ */
+@Slf4j
+@Component
+public class ConversationPreviewBackfill {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final String FIND_SQL = "SELECT id FROM conversations WHERE message_count IS NULL LIMIT "
+            + CHUNK_SIZE;
+    private static final String FILL_SQL = "UPDATE conversations c SET "
+            + "message_count = (SELECT COUNT(*) FROM chat_messages m WHERE m.conversation_id = c.id), "
+            + "last_message_role = (SELECT m.role FROM chat_messages m WHERE m.conversation_id = c.id "
+            + "ORDER BY m.id DESC LIMIT 1), "
+            + "last_message_snippet = (SELECT LEFT(m.content, " + ConversationService.SNIPPET_LENGTH + ") "
+            + "FROM chat_messages m WHERE m.conversation_id = c.id ORDER BY m.id DESC LIMIT 1), "
+            + "updated_at = COALESCE(c.updated_at, c.created_at) WHERE c.id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Scheduler blockingScheduler;
+
+    public ConversationPreviewBackfill(JdbcTemplate jdbcTemplate, Scheduler blockingScheduler) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        blockingScheduler.schedule(this::backfill);
+    }
+
+    private void backfill() {
+        int filled = 0;
+        try {
+            while (true) {
+                List<Object[]> ids = jdbcTemplate.queryForList(FIND_SQL, Long.class).stream()
+                        .map(id -> new Object[] {id})
+                        .toList();
+                if (ids.isEmpty()) {
+                    break;
+                }
+                jdbcTemplate.batchUpdate(FILL_SQL, ids);
+                filled += ids.size();
+            }
+        } catch (DataAccessException e) {
+            log.warn("대화 목록 미리보기 채우기 실패 ({}개 완료): {}", filled, e.getMessage());
+            return;
+        }
+        if (filled > 0) {
+            log.info("대화 목록 미리보기 채우기 완료: {}개", filled);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.upme.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 삭제 표시된 대화를 백그라운드에서 정리
+ * - 메시지를 chunk-size개씩 DELETE (문장마다 자동 커밋이라 행 잠금이 짧음)
+ * - 메시지가 다 지워지면 보관 블록 삭제 (그 사이 지연 저장된 메시지가 있으면 다음 주기에 다시 시도)
+ * - 대화 행은 삭제 표시 후 tombstone-minutes가 지나면 삭제 (그동안 각 인스턴스의 검색 색인이 동기화 때 삭제를 반영)
+ * 메시지 수가 sync-max-messages 이하인 대화는 요청 안에서 메시지를 바로 삭제하고 대화 행만 남김
+ */
+@Slf4j
+@Component
+public class ConversationPurger {
+
+    private static final int CONVERSATIONS_PER_RUN = 20;
+    private static final int TOMBSTONES_PER_RUN = 500;
+    // 메시지나 보관 블록이 남은 삭제 표시 대화
+    private static final String FIND_SQL = "SELECT c.id FROM conversations c WHERE c.deleted_at IS NOT NULL "
+            + "AND (EXISTS (SELECT 1 FROM chat_messages m WHERE m.conversation_id = c.id) "
+            + "OR EXISTS (SELECT 1 FROM chat_message_archive_blocks a WHERE a.conversation_id = c.id)) "
+            + "ORDER BY c.deleted_at LIMIT " + CONVERSATIONS_PER_RUN;
+    private static final String DELETE_MESSAGES_SQL = "DELETE FROM chat_messages WHERE conversation_id = ? LIMIT ?";
+    private static final String DELETE_ARCHIVE_SQL = "DELETE FROM chat_message_archive_blocks "
+            + "WHERE conversation_id = ?";
+    private static final String DELETE_TOMBSTONES_SQL = "DELETE FROM conversations WHERE deleted_at < ? "
+            + "AND NOT EXISTS (SELECT 1 FROM chat_messages m WHERE m.conversation_id = conversations.id) "
+            + "AND NOT EXISTS (SELECT 1 FROM chat_message_archive_blocks a WHERE a.conversation_id = conversations.id) "
+            + "LIMIT " + TOMBSTONES_PER_RUN;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int syncMaxMessages;
+    private final int chunkSize;
+    private final long tombstoneMinutes;
+
+    public ConversationPurger(
+            JdbcTemplate jdbcTemplate,
+            @Value("${chat.delete.sync-max-messages:500}") int syncMaxMessages,
+            @Value("${chat.delete.purge-chunk-size:1000}") int chunkSize,
+            @Value("${chat.delete.tombstone-minutes:60}") long tombstoneMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.syncMaxMessages = syncMaxMessages;
+        this.chunkSize = chunkSize;
+        this.tombstoneMinutes = tombstoneMinutes;
+    }
+
+    /**
+     * 요청 안에서 바로 지우기엔 메시지가 많은 대화인지 (메시지 수를 모르면 많은 것으로 봄)
+     */
+    public boolean shouldDefer(int messageCount) {
+        return messageCount < 0 || messageCount > syncMaxMessages;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.delete.purge-interval-ms:10000}")
+    public void purge() {
+        List<Long> ids;
+        try {
+            ids = jdbcTemplate.queryForList(FIND_SQL, Long.class);
+        } catch (DataAccessException e) {
+            log.warn("삭제 표시된 대화 조회 실패: {}", e.getMessage());
+            return;
+        }
+        for (Long id : ids) {
+            try {
+                purge(id);
+            } catch (DataAccessException e) {
+                log.warn("대화 정리 실패, 다음 주기에 다시 시도: conversationId={}, {}", id, e.getMessage());
+            }
+        }
+        try {
+            int removed = jdbcTemplate.update(DELETE_TOMBSTONES_SQL,
+                    Timestamp.valueOf(LocalDateTime.now().minusMinutes(tombstoneMinutes)));
+            if (removed > 0) {
+                log.info("삭제 표시된 대화 행 정리: {}개", removed);
+            }
+        } catch (DataAccessException e) {
+            log.warn("삭제 표시된 대화 행 정리 실패: {}", e.getMessage());
+        }
+    }
+
+    private void purge(Long conversationId) {
+        long deleted = 0;
+        int count;
+        do {
+            count = jdbcTemplate.update(DELETE_MESSAGES_SQL, conversationId, chunkSize);
+            deleted += count;
+        } while (count == chunkSize);
+        jdbcTemplate.update(DELETE_ARCHIVE_SQL, conversationId);
+        log.info("삭제 표시된 대화 정리: conversationId={}, 메시지 {}개", conversationId, deleted);
+    }
+}
@@ -1,18 +1,31 @@
 package com.upme.service;
 
+import com.upme.dto.response.ChatMessageView;
+import com.upme.dto.response.ConversationListItem;
 import com.upme.model.ChatMessage;
 import com.upme.model.Conversation;
+import com.upme.model.TimeOrderedIds;
 import com.upme.model.User;
 import com.upme.repository.ChatMessageRepository;
 import com.upme.repository.ConversationRepository;
 import com.upme.repository.UserRepository;
+import com.upme.service.search.ChatSearchIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 @Slf4j
 @Service
@@ -27,9 +40,23 @@ public class ConversationService {
             5, "기술 토론",
             6, "자유 주제");
 
+    // 메시지/대화 목록 조회 한 페이지 최대 크기
+    private static final int MAX_PAGE_SIZE = 200;
+    // 대화 목록 미리보기 길이 (conversations.last_message_snippet)
+    static final int SNIPPET_LENGTH = 100;
+    // 대화 목록 첫 페이지의 기준 시각 (MySQL DATETIME 최대값)
+    private static final LocalDateTime CURSOR_START = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     private final ConversationRepository conversationRepository;
     private final ChatMessageRepository chatMessageRepository;
     private final UserRepository userRepository;
+    private final ConversationHistoryBuffer historyBuffer;
+    private final ConversationOwnerCache ownerCache;
+    private final ChatMessageWriteBehind writeBehind;
+    private final ConversationPurger conversationPurger;
+    private final ChatMessageArchiver archiver;
+    private final ChatSearchIndex searchIndex;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * 새 대화 생성
@@ -40,22 +67,27 @@ public class ConversationService {
                 .orElseThrow(() -> new RuntimeException("사용자를 찾을 수 없습니다."));
 
         String topicName = TOPIC_NAMES.getOrDefault(topicId, "자유 주제");
+        String greetingText = "Hello! I'm your AI conversation partner. Let's practice English together! "
+                + "Today's topic is \"" + topicName + "\". What would you like to talk about?";
 
         Conversation conversation = Conversation.builder()
                 .user(user)
                 .topicId(topicId)
                 .title(topicName)
+                .messageCount(1)
+                .lastMessageRole("ai")
+                .lastMessageSnippet(snippet(greetingText))
                 .build();
 
         conversation = conversationRepository.save(conversation);
+        ownerCache.put(conversation.getId(), userId);
         log.info("새 대화 생성: conversationId={}, userId={}, topic={}", conversation.getId(), userId, topicName);
 
-        // 첫 AI 인사 메시지 저장
+        // 첫 AI 인사 메시지 저장 (ID를 앱에서 정하므로 대화와 함께 커밋 시점에 INSERT)
         ChatMessage greeting = ChatMessage.builder()
                 .conversation(conversation)
                 .role("ai")
-                .content("Hello! I'm your AI conversation partner. Let's practice English together! Today's topic is \""
-                        + topicName + "\". What would you like to talk about?")
+                .content(greetingText)
                 .build();
         chatMessageRepository.save(greeting);
 
@@ -63,77 +95,227 @@ public class ConversationService {
     }
 
     /**
-     * 사용자의 대화 목록 조회
+     * 사용자의 대화 목록 한 페이지 (최근 대화부터, cursor는 이전 페이지의 nextCursor)
+     * 미리보기(메시지 수, 마지막 메시지)는 conversations에 함께 저장되어 있어 쿼리 한 번으로 끝남
      */
     @Transactional(readOnly = true)
-    public List<Conversation> getUserConversations(Long userId) {
-        return conversationRepository.findByUserIdOrderByUpdatedAtDesc(userId);
+    public ConversationPage getUserConversations(Long userId, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        LocalDateTime beforeUpdatedAt = CURSOR_START;
+        long beforeId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                int separator = cursor.lastIndexOf('_');
+                beforeUpdatedAt = LocalDateTime.parse(cursor.substring(0, separator));
+                beforeId = Long.parseLong(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("잘못된 cursor입니다.");
+            }
+        }
+
+        // 하나 더 읽어서 다음 페이지가 있는지 판단
+        List<ConversationListItem> page = conversationRepository.findPageByUserId(
+                userId, beforeUpdatedAt, beforeId, PageRequest.of(0, size + 1));
+        boolean hasMore = page.size() > size;
+        List<ConversationListItem> items = hasMore ? page.subList(0, size) : page;
+
+        String nextCursor = null;
+        if (hasMore) {
+            ConversationListItem last = items.get(items.size() - 1);
+            nextCursor = last.updatedAt() + "_" + last.id();
+        }
+        return new ConversationPage(items, hasMore, nextCursor);
     }
 
     /**
-     * 대화 메시지 조회
+     * 대화 메시지 한 페이지 조회 (beforeId보다 오래된 메시지 중 최신 limit개, 페이지 안에서는 오래된 것부터)
+     * beforeId가 없으면 가장 최근 페이지 + 대화 제목
+     * (conversation_id, id) 인덱스를 따라 limit + 1개만 읽으므로 대화 길이와 무관 (보관된 대화는 보관 블록에서 읽음)
      */
     @Transactional(readOnly = true)
-    public List<ChatMessage> getMessages(Long conversationId, Long userId) {
-        Conversation conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("대화를 찾을 수 없습니다."));
+    public MessagePage getMessages(Long conversationId, Long userId, Long beforeId, int limit) {
+        // 아직 저장되지 않은 메시지를 DB보다 먼저 읽어야 그 사이 저장된 메시지를 놓치지 않음
+        // (트랜잭션의 읽기 스냅샷은 첫 조회 때 정해짐, 겹치는 메시지는 ID로 제거)
+        List<ChatMessage> pending = writeBehind.pending(conversationId);
 
-        // 본인 대화인지 확인
-        if (!conversation.getUser().getId().equals(userId)) {
-            throw new RuntimeException("접근 권한이 없습니다.");
+        // 본인 대화인지 확인 (소유자 캐시, 없으면 소유자 ID만 조회)
+        ownerCache.requireOwner(conversationId, userId);
+
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        long before = beforeId != null ? beforeId : Long.MAX_VALUE;
+        // 하나 더 읽어서 더 오래된 페이지가 있는지 판단
+        List<ChatMessageView> page = chatMessageRepository.findViewsBefore(
+                conversationId, before, PageRequest.of(0, size + 1));
+
+        // chat_messages에서 페이지가 다 안 차면 보관된 오래된 메시지로 이어서 채움 (걸친 압축 블록만 풀어서 읽음)
+        // 보관 메시지는 모두 chat_messages보다 오래됐으므로 page의 가장 오래된 메시지 앞에서부터 모자란 만큼
+        List<ChatMessageView> archived = List.of();
+        if (page.size() <= size) {
+            long archivedBefore = page.isEmpty() ? before : Math.min(before, page.get(page.size() - 1).id());
+            archived = archiver.readBefore(conversationId, archivedBefore, size + 1 - page.size());
+        }
+
+        if (!pending.isEmpty() || !archived.isEmpty()) {
+            TreeMap<Long, ChatMessageView> merged = new TreeMap<>(Comparator.reverseOrder());
+            page.forEach(view -> merged.put(view.id(), view));
+            archived.stream()
+                    .filter(view -> view.id() < before)
+                    .forEach(view -> merged.putIfAbsent(view.id(), view));
+            pending.stream()
+                    .filter(message -> message.getId() < before)
+                    .forEach(message -> merged.putIfAbsent(message.getId(), ChatMessageView.of(message)));
+            page = merged.values().stream().limit(size + 1).toList();
         }
 
-        return chatMessageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId);
+        boolean hasMore = page.size() > size;
+        List<ChatMessageView> messages = new ArrayList<>(page.subList(0, Math.min(size, page.size())));
+        Collections.reverse(messages);
+
+        String title = beforeId == null ? conversationRepository.findTitleById(conversationId).orElse(null) : null;
+        return new MessagePage(title, messages, hasMore);
     }
 
     /**
-     * 메시지 저장 (유저 메시지 + AI 응답)
+     * 메시지 저장 (유저 메시지 + AI 응답), 저장된 두 메시지를 순서대로 반환
+     * 권한 확인 + updated_at 갱신 UPDATE 1회, 메시지 배치 INSERT 1회를 한 트랜잭션에서 (대화 길이와 무관)
+     * 지연 저장 모드에서는 저널과 대기열에 넣고 바로 반환 (DB에는 ChatMessageWriteBehind가 나중에 저장)
      */
-    @Transactional
-    public void saveMessages(Long conversationId, String userContent, String aiReply, String aiFeedback) {
-        Conversation conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("대화를 찾을 수 없습니다."));
+    public List<ChatMessage> saveMessages(Long conversationId, Long userId, String userContent, String aiReply,
+            String aiFeedback) {
+        if (writeBehind.isEnabled()) {
+            ownerCache.requireOwner(conversationId, userId);
+            List<ChatMessage> messages = List.of(
+                    newMessage("user", userContent, null),
+                    newMessage("ai", aiReply, aiFeedback));
+            writeBehind.enqueue(conversationId, messages);
+            searchIndex.index(conversationId, userId, messages);
+            log.info("메시지 저장 대기열 추가: conversationId={}", conversationId);
+            return messages;
+        }
+        List<ChatMessage> messages = transactionTemplate.execute(
+                status -> saveMessagesNow(conversationId, userId, userContent, aiReply, aiFeedback));
+        searchIndex.index(conversationId, userId, messages);
+        return messages;
+    }
 
-        // 유저 메시지 저장
+    /**
+     * 내 대화 메시지 검색 (본문/피드백, 점수순, 검색 색인만 읽음)
+     */
+    public ChatSearchIndex.SearchPage searchMessages(Long userId, String query, int page, int size) {
+        return searchIndex.search(userId, query, page, size);
+    }
+
+    private List<ChatMessage> saveMessagesNow(Long conversationId, Long userId, String userContent, String aiReply,
+            String aiFeedback) {
+        // 대화 updatedAt + 목록 미리보기 갱신 (조회 없이 UPDATE 한 번으로 존재 여부와 소유자도 확인)
+        if (conversationRepository.recordMessages(conversationId, userId, LocalDateTime.now(), 2, "ai",
+                snippet(aiReply)) == 0) {
+            // 없는 대화인지 다른 사용자의 대화인지 구분해서 예외 (그 사이 삭제된 경우도 포함)
+            ownerCache.evict(conversationId);
+            ownerCache.requireOwner(conversationId, userId);
+            throw new RuntimeException("대화를 찾을 수 없습니다.");
+        }
+        Conversation conversation = conversationRepository.getReferenceById(conversationId);
+
+        // 유저 메시지 + AI 응답 (커밋 시 JDBC 배치 한 번으로 INSERT)
         ChatMessage userMsg = ChatMessage.builder()
                 .conversation(conversation)
                 .role("user")
                 .content(userContent)
                 .build();
-        chatMessageRepository.save(userMsg);
-
-        // AI 응답 저장
         ChatMessage aiMsg = ChatMessage.builder()
                 .conversation(conversation)
                 .role("ai")
                 .content(aiReply)
                 .feedback(aiFeedback)
                 .build();
-        chatMessageRepository.save(aiMsg);
-
-        // 대화 updatedAt 갱신
-        conversationRepository.save(conversation);
+        chatMessageRepository.saveAll(List.of(userMsg, aiMsg));
 
         log.info("메시지 저장 완료: conversationId={}", conversationId);
+        return List.of(userMsg, aiMsg);
     }
 
     /**
-     * 대화 삭제
+     * 대화 요약 갱신 (updated_at은 유지)
+     */
+    @Transactional
+    public void updateSummary(Long conversationId, String summary, int summarizedMessageCount,
+            Long summarizedUntilMessageId) {
+        conversationRepository.updateSummary(conversationId, summary, summarizedMessageCount,
+                summarizedUntilMessageId);
+        log.info("대화 요약 갱신: conversationId={}, 요약된 메시지 수={}", conversationId, summarizedMessageCount);
+    }
+
+    /**
+     * 대화 삭제 (대화 행은 항상 삭제 표시)
+     * - 메시지가 적으면 DELETE 몇 문장으로 메시지와 보관 블록을 바로 삭제
+     * - 많으면 삭제 표시만 하고 반환 (ConversationPurger가 나눠서 삭제)
      */
     @Transactional
     public void deleteConversation(Long conversationId, Long userId) {
-        Conversation conversation = conversationRepository.findById(conversationId)
+        ownerCache.requireOwner(conversationId, userId);
+        int messageCount = conversationRepository.findMessageCountById(conversationId)
                 .orElseThrow(() -> new RuntimeException("대화를 찾을 수 없습니다."));
 
-        if (!conversation.getUser().getId().equals(userId)) {
-            throw new RuntimeException("접근 권한이 없습니다.");
+        // 대기 중인 메시지를 먼저 버림
+        writeBehind.discard(conversationId);
+        // 대화 행은 삭제 표시로 남김 (다른 인스턴스의 검색 색인이 동기화 때 삭제를 알 수 있도록, 행은 ConversationPurger가 삭제)
+        conversationRepository.markDeleted(conversationId, LocalDateTime.now());
+        boolean deferred = conversationPurger.shouldDefer(messageCount);
+        if (!deferred) {
+            chatMessageRepository.deleteByConversationIdInBulk(conversationId);
+            archiver.delete(conversationId);
         }
+        historyBuffer.evict(conversationId);
+        ownerCache.evict(conversationId);
+        // 검색 색인은 커밋 후에 지움 (롤백되면 색인도 그대로)
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                searchIndex.deleteConversation(conversationId);
+            }
+        });
+
+        log.info("대화 삭제: conversationId={}, userId={}, 메시지 수={}, 백그라운드 정리={}",
+                conversationId, userId, messageCount, deferred);
+    }
 
-        // 메시지 먼저 삭제 후 대화 삭제
-        List<ChatMessage> messages = chatMessageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId);
-        chatMessageRepository.deleteAll(messages);
-        conversationRepository.delete(conversation);
+    /**
+     * 지연 저장용 메시지 (ID와 생성 시각을 미리 정함)
+     */
+    private static ChatMessage newMessage(String role, String content, String feedback) {
+        return ChatMessage.builder()
+                .id(TimeOrderedIds.next())
+                .role(role)
+                .content(content)
+                .feedback(feedback)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
 
-        log.info("대화 삭제: conversationId={}, userId={}", conversationId, userId);
+    /**
+     * 목록 미리보기용 마지막 메시지 앞부분 (공백은 하나로)
+     */
+    static String snippet(String content) {
+        if (content == null) {
+            return null;
+        }
+        String text = content.strip().replaceAll("\\s+", " ");
+        if (text.codePointCount(0, text.length()) <= SNIPPET_LENGTH) {
+            return text;
+        }
+        return text.substring(0, text.offsetByCodePoints(0, SNIPPET_LENGTH - 1)) + "…";
+    }
+
+    /**
+     * 대화 목록 한 페이지
+     */
+    public record ConversationPage(List<ConversationListItem> conversations, boolean hasMore, String nextCursor) {
+    }
+
+    /**
+     * 메시지 한 페이지 (title은 가장 최근 페이지에만)
+     */
+    public record MessagePage(String title, List<ChatMessageView> messages, boolean hasMore) {
     }
 }
@@ -1,327 +1,293 @@
 package com.upme.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.upme.dto.request.ChatRequest;
 import com.upme.dto.request.CodeReviewRequest;
 import com.upme.dto.response.ChatResponse;
+import com.upme.dto.response.ChatStreamEvent;
 import com.upme.dto.response.CodeReviewResponse;
+import com.upme.service.gemini.CodeReviewCache;
+import com.upme.service.gemini.GeminiCallScheduler;
+import com.upme.service.gemini.GeminiCallScheduler.Priority;
+import com.upme.service.gemini.GeminiModelRouter;
+import com.upme.service.gemini.GeminiProvider;
+import com.upme.service.gemini.GeminiRejectedException;
+import com.upme.service.gemini.GeminiResponseException;
+import com.upme.service.gemini.GeminiResponseParser;
+import com.upme.service.gemini.GeminiUsageTracker;
+import com.upme.service.llm.LlmPrompt;
+import com.upme.service.llm.LlmPrompts;
+import com.upme.service.llm.LlmProviderChain;
+import com.upme.service.llm.LlmResult;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * 회화/요약/코드 리뷰 (프롬프트 조립 → 스케줄링 → 제공자 호출 → 응답 파싱)
+ * 프롬프트는 LlmPrompts, 전송은 LlmProviderChain(Gemini 우선, 장애 시 다음 제공자)이 담당
+ * 배치 모드는 Gemini에만 있으므로 GeminiProvider를 직접 사용
+ */
 @Slf4j
 @Service
 public class GeminiService {
 
-    private final WebClient webClient;
-    private final ObjectMapper objectMapper;
-
-    @Value("${gemini.api.key}")
-    private String apiKey;
-
-    @Value("${gemini.model:gemini-2.0-flash}")
-    private String model;
-
-    public GeminiService(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
-        this.webClient = WebClient.builder()
-                .baseUrl("https://generativelanguage.googleapis.com")
-                .build();
+    private final LlmProviderChain providers;
+    private final GeminiProvider geminiProvider;
+    private final LlmPrompts prompts;
+    private final GeminiResponseParser responseParser;
+    private final GeminiCallScheduler callScheduler;
+    private final CodeReviewCache codeReviewCache;
+    private final GeminiUsageTracker usageTracker;
+    private final GeminiModelRouter modelRouter;
+
+    public GeminiService(LlmProviderChain providers, GeminiProvider geminiProvider, LlmPrompts prompts,
+            GeminiResponseParser responseParser, GeminiCallScheduler callScheduler, CodeReviewCache codeReviewCache,
+            GeminiUsageTracker usageTracker, GeminiModelRouter modelRouter) {
+        this.providers = providers;
+        this.geminiProvider = geminiProvider;
+        this.prompts = prompts;
+        this.responseParser = responseParser;
+        this.callScheduler = callScheduler;
+        this.codeReviewCache = codeReviewCache;
+        this.usageTracker = usageTracker;
+        this.modelRouter = modelRouter;
     }
 
     /**
-     * Gemini API 메시지 보내고 응답 받기
+     * 메시지 보내고 응답 받기
+     * 요청 스레드를 점유하지 않도록 Mono로 반환 (block 하지 않음)
+     * 회화 턴은 INTERACTIVE 우선순위로 스케줄링되며, 거절되면 GeminiRejectedException이 그대로 전달된다.
+     * 모델은 주제/입력 길이/모델별 최근 지연에 따라 GeminiModelRouter가 선택
      */
-    public ChatResponse chat(ChatRequest request) {
-        try {
-            log.info("Gemini API 호출 시작 - model: {}", model);
-            String systemPrompt = buildSystemPrompt(request.getTopicId());
-            Map<String, Object> requestBody = buildRequestBody(systemPrompt, request);
-
-            log.debug("Request body: {}", requestBody);
-
-            String responseJson = webClient.post()
-                    .uri("/v1beta/models/{model}:generateContent?key={key}", model, apiKey)
-                    .header("Content-Type", "application/json")
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
-                            clientResponse -> clientResponse.bodyToMono(String.class)
-                                    .map(body -> {
-                                        log.error("Gemini API 에러 응답 ({}): {}", clientResponse.statusCode(), body);
-                                        return new RuntimeException(
-                                                "Gemini API error " + clientResponse.statusCode() + ": " + body);
-                                    }))
-                    .bodyToMono(String.class)
-                    .block();
-
-            log.debug("Gemini 응답 원본: {}", responseJson);
-            return parseResponse(responseJson);
-        } catch (Exception e) {
-            log.error("Gemini API 호출 실패: {}", e.getMessage(), e);
-            return new ChatResponse(
-                    "I'm sorry, I'm having trouble responding right now. Please try again!",
-                    "⚠️ AI 서비스에 일시적인 문제가 발생했습니다. 잠시 후 다시 시도해주세요.");
-        }
+    public Mono<ChatResponse> chat(ChatRequest request, String callerKey) {
+        return callScheduler.submit(callerKey, Priority.INTERACTIVE, () -> {
+            LlmPrompt prompt = prompts.chat(request, routeChat(request));
+            log.info("LLM 호출 시작 - model: {}", prompt.model());
+            log.debug("Request contents: {}개 메시지", prompt.contents().size());
+
+            return providers.generate(prompt);
+        })
+                .map(result -> parseResponse(result, callerKey))
+                .onErrorResume(e -> !(e instanceof GeminiRejectedException), e -> {
+                    log.error("LLM 호출 실패: {}", e.getMessage(), e);
+                    return Mono.just(new ChatResponse(
+                            "I'm sorry, I'm having trouble responding right now. Please try again!",
+                            "⚠️ AI 서비스에 일시적인 문제가 발생했습니다. 잠시 후 다시 시도해주세요."));
+                });
     }
 
     /**
-     * 주제별 시스템 프롬프트 생성
+     * 이번 턴의 입력(사용자 메시지) 길이와 주제로 모델 선택
      */
-    private String buildSystemPrompt(int topicId) {
-        String basePrompt = """
-                You are a friendly and helpful English conversation partner for Korean learners.
-
-                RULES:
-                1. Always reply to the user IN ENGLISH for the conversation part.
-                2. If the user makes grammar mistakes, vocabulary errors, or unnatural expressions, provide feedback IN KOREAN.
-                3. Keep your English replies natural, encouraging, and at an intermediate level.
-                4. If the user's English is perfect, leave feedback empty.
-                5. Be conversational and ask follow-up questions to keep the chat going.
-
-                You MUST respond in the following JSON format ONLY (no markdown, no code blocks):
-                {"reply": "Your English conversation response here", "feedback": "한국어로 문법/단어 피드백 (없으면 빈 문자열)"}
-
-                IMPORTANT: Output ONLY the JSON object. No other text before or after it.
-                """;
-
-        String topicContext = switch (topicId) {
-            case 1 -> "\nTOPIC: Daily conversation (일상 대화) - Talk about everyday life, hobbies, weather, food, etc.";
-            case 2 -> "\nTOPIC: Travel (여행) - Discuss travel plans, experiences, destinations, and travel tips.";
-            case 3 ->
-                "\nTOPIC: Business (비즈니스) - Practice business meetings, email writing, and professional communication.";
-            case 4 ->
-                "\nTOPIC: Job Interview (면접 준비) - Practice common interview questions and professional responses.";
-            case 5 ->
-                "\nTOPIC: Tech Discussion (기술 토론) - Discuss programming, technology trends, and software development.";
-            case 6 -> "\nTOPIC: Free Topic (자유 주제) - Talk about anything the user wants.";
-            default -> "\nTOPIC: Free conversation - Talk about anything.";
-        };
-
-        return basePrompt + topicContext;
+    private String routeChat(ChatRequest request) {
+        return modelRouter.route(request.getTopicId(), ConversationHistoryManager.estimateTokens(request.getMessage()));
     }
 
     /**
-     * Gemini API 요청 바디 구성
+     * 회화 응답 파싱 (토큰 사용량은 호출자별로 기록)
      */
-    private Map<String, Object> buildRequestBody(String systemPrompt, ChatRequest request) {
-        // System instruction
-        Map<String, Object> systemInstruction = Map.of(
-                "parts", List.of(Map.of("text", systemPrompt)));
-
-        // Conversation history + current message
-        List<Map<String, Object>> contents = new ArrayList<>();
-
-        // Add history
-        if (request.getHistory() != null) {
-            for (ChatRequest.MessageItem item : request.getHistory()) {
-                String role = "user".equals(item.getRole()) ? "user" : "model";
-                contents.add(Map.of(
-                        "role", role,
-                        "parts", List.of(Map.of("text", item.getContent()))));
-            }
+    private ChatResponse parseResponse(LlmResult result, String callerKey) {
+        recordUsage(callerKey, result);
+        if (result.text() == null) {
+            return new ChatResponse(
+                    "I couldn't generate a response. Could you try rephrasing?",
+                    "");
         }
-
-        // Add current user message
-        contents.add(Map.of(
-                "role", "user",
-                "parts", List.of(Map.of("text", request.getMessage()))));
-
-        // Build full request
-        Map<String, Object> body = new HashMap<>();
-        body.put("system_instruction", systemInstruction);
-        body.put("contents", contents);
-        body.put("generationConfig", Map.of(
-                "temperature", 0.8,
-                "maxOutputTokens", 1024));
-
-        return body;
+        log.debug("LLM 응답 원본 ({}): {}", result.provider(), result.text());
+        return parseChatText(result.text());
     }
 
     /**
-     * Gemini API 응답 파싱
+     * 모델이 생성한 텍스트({"reply": ..., "feedback": ...}) 파싱
+     * 앞뒤 코드 펜스/설명은 무시하고, JSON 없이 문장으로만 답했으면 그 문장을 reply로 사용
      */
-    private ChatResponse parseResponse(String responseJson) {
-        try {
-            JsonNode root = objectMapper.readTree(responseJson);
-            JsonNode candidates = root.path("candidates");
-
-            if (candidates.isEmpty()) {
-                log.warn("Gemini 응답에 candidates가 없습니다: {}", responseJson);
-                return new ChatResponse(
-                        "I couldn't generate a response. Could you try rephrasing?",
-                        "");
-            }
-
-            String text = candidates.get(0)
-                    .path("content")
-                    .path("parts")
-                    .get(0)
-                    .path("text")
-                    .asText();
-
-            // Clean up markdown code blocks if present
-            text = text.trim();
-            if (text.startsWith("```json")) {
-                text = text.substring(7);
-            }
-            if (text.startsWith("```")) {
-                text = text.substring(3);
-            }
-            if (text.endsWith("```")) {
-                text = text.substring(0, text.length() - 3);
+    private ChatResponse parseChatText(String text) {
+        Map<String, String> fields = responseParser.readFields(text, LlmPrompts.CHAT_FIELDS);
+        String reply = fields.get("reply");
+        if (reply == null) {
+            if (text.indexOf('{') >= 0 || text.isBlank()) {
+                log.warn("응답에서 reply를 찾지 못했습니다: {}", text);
+                return parseFailureResponse();
             }
-            text = text.trim();
+            return new ChatResponse(text.strip(), "");
+        }
 
-            // Parse JSON response
-            JsonNode parsed = objectMapper.readTree(text);
-            String reply = parsed.path("reply").asText("I'm not sure how to respond to that.");
-            String feedback = parsed.path("feedback").asText("");
+        String feedback = fields.get("feedback");
+        return new ChatResponse(reply, feedback != null ? feedback : "");
+    }
 
-            return new ChatResponse(reply, feedback);
-        } catch (Exception e) {
-            log.error("Gemini 응답 파싱 실패: {}", e.getMessage());
-            log.debug("원본 응답: {}", responseJson);
-            return new ChatResponse(
-                    "I had trouble understanding. Could you say that again?",
-                    "⚠️ AI 응답을 처리하는 중 오류가 발생했습니다.");
-        }
+    private ChatResponse parseFailureResponse() {
+        return new ChatResponse(
+                "I had trouble understanding. Could you say that again?",
+                "⚠️ AI 응답을 처리하는 중 오류가 발생했습니다.");
     }
 
     /**
-     * 코드 리뷰 요청을 Gemini API에 보내고 피드백을 받습니다.
+     * 스트리밍으로 응답 받기
+     * reply는 도착하는 대로 조각(reply 이벤트)으로 내보내고, 스트림이 끝나면 feedback 이벤트를 내보낸다.
+     * 스케줄러에서 거절되면 error 이벤트 하나만 내보낸다 (SSE 응답은 이미 시작되어 상태 코드를 바꿀 수 없음).
      */
-    public CodeReviewResponse reviewCode(CodeReviewRequest request) {
-        try {
-            log.info("코드 리뷰 요청 - 문제: #{} ({}), 언어: {}",
-                    request.getProblemId(), request.getProblemTitle(), request.getLanguage());
-
-            String systemPrompt = buildCodeReviewPrompt();
-            Map<String, Object> requestBody = buildCodeReviewBody(systemPrompt, request);
+    public Flux<ChatStreamEvent> chatStream(ChatRequest request, String callerKey) {
+        return callScheduler.submitMany(callerKey, Priority.INTERACTIVE, () -> {
+            LlmPrompt prompt = prompts.chat(request, routeChat(request));
+            log.info("LLM 스트리밍 호출 시작 - model: {}", prompt.model());
+            ReplyStreamExtractor extractor = new ReplyStreamExtractor();
+            // 사용량은 조각마다 누적 합계로 오므로 마지막 값만 기록
+            AtomicReference<LlmResult> lastUsage = new AtomicReference<>();
+
+            Flux<ChatStreamEvent> replies = providers.stream(prompt)
+                    .map(result -> {
+                        if (result.hasUsage()) {
+                            lastUsage.set(result);
+                        }
+                        return result.text() != null ? result.text() : "";
+                    })
+                    .map(extractor::append)
+                    .filter(delta -> !delta.isEmpty())
+                    .map(ChatStreamEvent::reply);
+
+            // 스트림 종료 후 전체 텍스트를 파싱해서 남은 reply와 feedback 전송
+            Flux<ChatStreamEvent> tail = Flux.defer(() -> {
+                log.debug("LLM 스트리밍 응답 원본: {}", extractor.getFullText());
+                ChatResponse parsed = parseChatText(extractor.getFullText());
+
+                List<ChatStreamEvent> events = new ArrayList<>();
+                String emitted = extractor.getEmittedReply();
+                if (emitted.isEmpty()) {
+                    events.add(ChatStreamEvent.reply(parsed.getReply()));
+                } else if (parsed.getReply().startsWith(emitted) && parsed.getReply().length() > emitted.length()) {
+                    events.add(ChatStreamEvent.reply(parsed.getReply().substring(emitted.length())));
+                }
+                events.add(ChatStreamEvent.feedback(parsed.getFeedback()));
+                return Flux.fromIterable(events);
+            });
+
+            return replies.concatWith(tail)
+                    .doFinally(signal -> recordUsage(callerKey, lastUsage.get()))
+                    .onErrorResume(e -> !(e instanceof GeminiRejectedException), e -> {
+                        log.error("LLM 스트리밍 호출 실패: {}", e.getMessage(), e);
+                        String feedback = "⚠️ AI 서비스에 일시적인 문제가 발생했습니다. 잠시 후 다시 시도해주세요.";
+                        if (!extractor.getEmittedReply().isEmpty()) {
+                            return Flux.just(ChatStreamEvent.feedback(feedback));
+                        }
+                        return Flux.just(
+                                ChatStreamEvent.reply(
+                                        "I'm sorry, I'm having trouble responding right now. Please try again!"),
+                                ChatStreamEvent.feedback(feedback));
+                    });
+        }).onErrorResume(GeminiRejectedException.class,
+                e -> Flux.just(ChatStreamEvent.error(e.getReason())));
+    }
 
-            String responseJson = webClient.post()
-                    .uri("/v1beta/models/{model}:generateContent?key={key}", model, apiKey)
-                    .header("Content-Type", "application/json")
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
-                            clientResponse -> clientResponse.bodyToMono(String.class)
-                                    .map(body -> {
-                                        log.error("Gemini API 에러 응답 ({}): {}", clientResponse.statusCode(), body);
-                                        return new RuntimeException(
-                                                "Gemini API error " + clientResponse.statusCode() + ": " + body);
-                                    }))
-                    .bodyToMono(String.class)
-                    .block();
+    /**
+     * 이전 요약 + 오래된 메시지들을 새 요약으로 합치기 (백그라운드 작업이므로 BATCH 우선순위)
+     */
+    public Mono<String> summarize(String previousSummary, List<ChatRequest.MessageItem> messages, String callerKey) {
+        return callScheduler.submit(callerKey, Priority.BATCH,
+                () -> providers.generate(prompts.summary(previousSummary, messages)))
+                .map(result -> parseSummaryResponse(result, callerKey));
+    }
 
-            return parseCodeReviewResponse(responseJson);
-        } catch (Exception e) {
-            log.error("코드 리뷰 실패: {}", e.getMessage(), e);
-            return new CodeReviewResponse(
-                    "⚠️ AI 코드 리뷰에 일시적인 문제가 발생했습니다. 잠시 후 다시 시도해주세요.",
-                    "", "", "", "");
+    private String parseSummaryResponse(LlmResult result, String callerKey) {
+        recordUsage(callerKey, result);
+        String text = result.text();
+        if (text == null || text.isBlank()) {
+            throw new GeminiResponseException("대화 요약을 생성하지 못했습니다.");
         }
+        return text.strip();
     }
 
     /**
-     * 코드 리뷰용 시스템 프롬프트
+     * 코드 리뷰 요청을 보내고 피드백을 받습니다.
+     * 같은 코드/문제/언어의 리뷰는 캐시에서 바로 반환 (실패한 리뷰는 캐시하지 않음)
      */
-    private String buildCodeReviewPrompt() {
-        return """
-                당신은 알고리즘 코딩 테스트 전문 멘토입니다.
-                사용자가 제출한 코드를 분석하고 한국어로 피드백을 제공하세요.
-
-                규칙:
-                1. 모든 피드백은 한국어로 작성하세요.
-                2. 격려하는 톤으로 작성하되, 구체적인 개선점을 제시하세요.
-                3. 코드가 비어있거나 너무 짧으면 그에 맞는 안내를 해주세요.
-
-                반드시 아래 JSON 형식으로만 응답하세요 (마크다운 코드 블록 없이):
-                {"summary": "전체적인 코드 평가 요약 (2-3문장)", "strengths": "잘한 점 (구체적으로)", "improvements": "개선할 점과 제안 (구체적 코드 수정 방향 포함)", "timeComplexity": "시간/공간 복잡도 분석", "tips": "관련 학습 팁이나 추천 알고리즘"}
+    public Mono<CodeReviewResponse> reviewCode(CodeReviewRequest request, String callerKey) {
+        return loadCodeReview(request, callerKey)
+                .onErrorResume(e -> !(e instanceof GeminiRejectedException), e -> {
+                    log.error("코드 리뷰 실패: {}", e.getMessage(), e);
+                    String summary = e instanceof GeminiResponseException
+                            ? e.getMessage()
+                            : "⚠️ AI 코드 리뷰에 일시적인 문제가 발생했습니다. 잠시 후 다시 시도해주세요.";
+                    return Mono.just(new CodeReviewResponse(summary, "", "", "", ""));
+                });
+    }
 
-                중요: JSON 객체만 출력하세요. 다른 텍스트는 절대 포함하지 마세요.
-                """;
+    /**
+     * 캐시를 거친 코드 리뷰 (실패하면 에러를 그대로 전달, 비동기 작업에서 실패 상태를 기록할 때 사용)
+     */
+    public Mono<CodeReviewResponse> loadCodeReview(CodeReviewRequest request, String callerKey) {
+        return codeReviewCache.getOrLoad(request, () -> requestCodeReview(request, callerKey));
     }
 
     /**
-     * 코드 리뷰 요청 바디 구성
+     * 코드 리뷰 여러 건을 Gemini 배치 모드로 제출하고 배치 이름(batches/...)을 반환
+     * 제출은 멱등이 아니므로 재시도하지 않음 (실패하면 호출 측에서 다음 주기에 다시 제출)
      */
-    private Map<String, Object> buildCodeReviewBody(String systemPrompt, CodeReviewRequest request) {
-        Map<String, Object> systemInstruction = Map.of(
-                "parts", List.of(Map.of("text", systemPrompt)));
+    public Mono<String> submitCodeReviewBatch(String displayName, Map<String, CodeReviewRequest> requests) {
+        Map<String, LlmPrompt> batch = new LinkedHashMap<>();
+        requests.forEach((key, request) -> batch.put(key, prompts.codeReview(request)));
+        return geminiProvider.submitBatch(displayName, batch);
+    }
 
-        String userMessage = String.format(
-                "문제: #%d %s\n언어: %s\n\n코드:\n```%s\n%s\n```",
-                request.getProblemId(),
-                request.getProblemTitle(),
-                request.getLanguage(),
-                request.getLanguage(),
-                request.getCode());
+    /**
+     * 배치 상태와 (완료된 경우) 인라인 결과 조회
+     */
+    public Mono<GeminiResponseParser.BatchStatus> getBatch(String batchName) {
+        return geminiProvider.getBatch(batchName);
+    }
 
-        List<Map<String, Object>> contents = List.of(
-                Map.of("role", "user",
-                        "parts", List.of(Map.of("text", userMessage))));
+    private Mono<CodeReviewResponse> requestCodeReview(CodeReviewRequest request, String callerKey) {
+        return callScheduler.submit(callerKey, Priority.BATCH, () -> {
+            log.info("코드 리뷰 요청 - 문제: #{} ({}), 언어: {}",
+                    request.getProblemId(), request.getProblemTitle(), request.getLanguage());
 
-        Map<String, Object> body = new HashMap<>();
-        body.put("system_instruction", systemInstruction);
-        body.put("contents", contents);
-        body.put("generationConfig", Map.of(
-                "temperature", 0.7,
-                "maxOutputTokens", 2048));
+            return providers.generate(prompts.codeReview(request));
+        })
+                .map(result -> parseCodeReview(result, callerKey));
+    }
 
-        return body;
+    /**
+     * 배치 결과 하나(GenerateContentResponse JSON) 파싱 (사용할 수 없는 응답이면 GeminiResponseException)
+     */
+    public CodeReviewResponse parseCodeReviewResponse(String responseJson, String callerKey) {
+        return parseCodeReview(geminiProvider.readResult(responseJson), callerKey);
     }
 
     /**
-     * 코드 리뷰 응답 파싱
+     * 코드 리뷰 응답 파싱 (사용할 수 없는 응답이면 GeminiResponseException)
      */
-    private CodeReviewResponse parseCodeReviewResponse(String responseJson) {
-        try {
-            JsonNode root = objectMapper.readTree(responseJson);
-            JsonNode candidates = root.path("candidates");
+    private CodeReviewResponse parseCodeReview(LlmResult result, String callerKey) {
+        recordUsage(callerKey, result);
+        String text = result.text();
+        if (text == null) {
+            throw new GeminiResponseException("응답을 생성하지 못했습니다. 다시 시도해주세요.");
+        }
 
-            if (candidates.isEmpty()) {
-                return new CodeReviewResponse(
-                        "응답을 생성하지 못했습니다. 다시 시도해주세요.",
-                        "", "", "", "");
+        Map<String, String> fields = responseParser.readFields(text, LlmPrompts.CODE_REVIEW_FIELDS);
+        if (fields.isEmpty()) {
+            // JSON 없이 문장으로만 리뷰한 경우 요약으로 사용
+            if (text.indexOf('{') < 0 && !text.isBlank()) {
+                return new CodeReviewResponse(text.strip(), "", "", "", "");
             }
+            log.error("코드 리뷰 응답 파싱 실패: {}", text);
+            throw new GeminiResponseException("⚠️ AI 응답을 처리하는 중 오류가 발생했습니다.");
+        }
 
-            String text = candidates.get(0)
-                    .path("content")
-                    .path("parts")
-                    .get(0)
-                    .path("text")
-                    .asText();
-
-            // Clean up markdown code blocks if present
-            text = text.trim();
-            if (text.startsWith("```json")) {
-                text = text.substring(7);
-            }
-            if (text.startsWith("```")) {
-                text = text.substring(3);
-            }
-            if (text.endsWith("```")) {
-                text = text.substring(0, text.length() - 3);
-            }
-            text = text.trim();
+        return new CodeReviewResponse(
+                fields.getOrDefault("summary", "코드를 분석했습니다."),
+                fields.getOrDefault("strengths", ""),
+                fields.getOrDefault("improvements", ""),
+                fields.getOrDefault("timeComplexity", ""),
+                fields.getOrDefault("tips", ""));
+    }
 
-            JsonNode parsed = objectMapper.readTree(text);
-            return new CodeReviewResponse(
-                    parsed.path("summary").asText("코드를 분석했습니다."),
-                    parsed.path("strengths").asText(""),
-                    parsed.path("improvements").asText(""),
-                    parsed.path("timeComplexity").asText(""),
-                    parsed.path("tips").asText(""));
-        } catch (Exception e) {
-            log.error("코드 리뷰 응답 파싱 실패: {}", e.getMessage());
-            return new CodeReviewResponse(
-                    "⚠️ AI 응답을 처리하는 중 오류가 발생했습니다.",
-                    "", "", "", "");
+    private void recordUsage(String callerKey, LlmResult result) {
+        if (result != null && result.hasUsage()) {
+            usageTracker.record(callerKey, result.promptTokens(), result.candidateTokens());
         }
     }
 }
@@ -0,0 +1,148 @@
+package com.upme.service;
+
+/**
+ * 스트리밍으로 도착하는 Gemini JSON 텍스트 조각에서 "reply" 문자열 값만 점진적으로 꺼낸다.
+ * {"reply": "...", "feedback": "..."} 형식이 완성되기 전에도 reply를 먼저 보여주기 위한 용도
+ * JSON이 중간에 잘린 응답에서 다른 문자열 필드를 최대한 살려낼 때도 사용 (필드 이름 지정)
+ */
+public class ReplyStreamExtractor {
+
+    private final String key;
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    // buffer에서 다음에 읽을 위치
+    private int position = 0;
+
+    // reply 문자열 값 내부를 읽는 중인지
+    private boolean inReply = false;
+
+    // reply 문자열이 끝났는지
+    private boolean replyDone = false;
+
+    // 지금까지 내보낸 reply 전체
+    private final StringBuilder emitted = new StringBuilder();
+
+    public ReplyStreamExtractor() {
+        this("reply");
+    }
+
+    public ReplyStreamExtractor(String fieldName) {
+        this.key = "\"" + fieldName + "\"";
+    }
+
+    /**
+     * 새 텍스트 조각을 추가하고, 이번에 새로 해석된 reply 부분을 반환 (없으면 빈 문자열)
+     */
+    public String append(String chunk) {
+        buffer.append(chunk);
+
+        if (replyDone) {
+            return "";
+        }
+
+        if (!inReply && !seekReplyStart()) {
+            return "";
+        }
+
+        StringBuilder delta = new StringBuilder();
+        while (position < buffer.length()) {
+            char c = buffer.charAt(position);
+
+            if (c == '"') {
+                position++;
+                replyDone = true;
+                break;
+            }
+
+            if (c != '\\') {
+                delta.append(c);
+                position++;
+                continue;
+            }
+
+            // 이스케이프 시퀀스가 조각 경계에서 잘렸으면 다음 조각을 기다림
+            if (position + 1 >= buffer.length()) {
+                break;
+            }
+
+            char escaped = buffer.charAt(position + 1);
+            if (escaped == 'u') {
+                if (position + 6 > buffer.length()) {
+                    break;
+                }
+                try {
+                    delta.append((char) Integer.parseInt(buffer.substring(position + 2, position + 6), 16));
+                } catch (NumberFormatException e) {
+                    // 잘못된 유니코드 이스케이프는 그대로 둔다
+                    delta.append(buffer, position, position + 6);
+                }
+                position += 6;
+                continue;
+            }
+
+            delta.append(switch (escaped) {
+                case 'n' -> '\n';
+                case 't' -> '\t';
+                case 'r' -> '\r';
+                case 'b' -> '\b';
+                case 'f' -> '\f';
+                default -> escaped; // \" \\ \/
+            });
+            position += 2;
+        }
+
+        emitted.append(delta);
+        return delta.toString();
+    }
+
+    /**
+     * 지금까지 받은 원본 텍스트 전체
+     */
+    public String getFullText() {
+        return buffer.toString();
+    }
+
+    /**
+     * 지금까지 내보낸 reply 전체
+     */
+    public String getEmittedReply() {
+        return emitted.toString();
+    }
+
+    /**
+     * 필드를 찾아 값을 읽기 시작했는지
+     */
+    public boolean isFound() {
+        return inReply;
+    }
+
+    /**
+     * 필드 키 뒤의 여는 따옴표까지 이동. 아직 도착하지 않았으면 false
+     */
+    private boolean seekReplyStart() {
+        int keyIndex = buffer.indexOf(key);
+        if (keyIndex < 0) {
+            return false;
+        }
+
+        int i = keyIndex + key.length();
+        while (i < buffer.length() && Character.isWhitespace(buffer.charAt(i))) {
+            i++;
+        }
+        if (i >= buffer.length() || buffer.charAt(i) != ':') {
+            return false;
+        }
+        i++;
+        while (i < buffer.length() && Character.isWhitespace(buffer.charAt(i))) {
+            i++;
+        }
+        if (i >= buffer.length() || buffer.charAt(i) != '"') {
+            return false;
+        }
+
+        position = i + 1;
+        inReply = true;
+        return true;
+    }
+}
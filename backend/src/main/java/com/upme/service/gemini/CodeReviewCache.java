@@ -0,0 +1,222 @@
+package com.upme.service.gemini;
+
+import com.upme.dto.request.CodeReviewRequest;
+import com.upme.dto.response.CodeReviewResponse;
+import com.upme.model.CodeReviewCacheEntry;
+import com.upme.repository.CodeReviewCacheRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * AI 코드 리뷰 캐시 (정규화된 코드 + 문제 + 언어의 해시로 식별)
+ * - 메모리: 최대 개수(LRU) + TTL
+ * - DB: code-review.cache.persist=true 일 때 code_review_cache 테이블에도 저장 (재시작 후에도 재사용)
+ * - 같은 키의 동시 요청은 하나의 Gemini 호출을 공유 (single-flight)
+ */
+@Slf4j
+@Component
+public class CodeReviewCache {
+
+    private final CodeReviewCacheRepository cacheRepository;
+    private final Scheduler blockingScheduler;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final boolean persist;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, CachedReview> entries;
+    private final Map<String, Mono<CodeReviewResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public CodeReviewCache(
+            CodeReviewCacheRepository cacheRepository,
+            Scheduler blockingScheduler,
+            @Value("${code-review.cache.max-entries:1000}") int maxEntries,
+            @Value("${code-review.cache.ttl-hours:24}") long ttlHours,
+            @Value("${code-review.cache.persist:false}") boolean persist) {
+        this.cacheRepository = cacheRepository;
+        this.blockingScheduler = blockingScheduler;
+        this.maxEntries = maxEntries;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.persist = persist;
+        // accessOrder=true → 가장 오래 안 쓴 항목부터 제거
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedReview> eldest) {
+                return size() > CodeReviewCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 캐시에 있으면 바로 반환, 없으면 loader로 Gemini를 호출해 저장
+     * loader가 에러를 내면 캐시에 저장하지 않고 그대로 전달
+     */
+    public Mono<CodeReviewResponse> getOrLoad(CodeReviewRequest request, Supplier<Mono<CodeReviewResponse>> loader) {
+        String key = keyOf(request);
+
+        CodeReviewResponse cached = getLocal(key);
+        if (cached != null) {
+            log.debug("코드 리뷰 캐시 적중 (메모리): key={}", key);
+            return Mono.just(cached);
+        }
+
+        return inFlight.computeIfAbsent(key, k -> loadShared(k, request, loader));
+    }
+
+    /**
+     * 캐시 조회만 (메모리 → DB), 없으면 empty
+     * 배치 모드처럼 Gemini 호출을 따로 하는 경우에 사용
+     */
+    public Mono<CodeReviewResponse> lookup(CodeReviewRequest request) {
+        String key = keyOf(request);
+
+        CodeReviewResponse cached = getLocal(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return loadFromDatabase(key)
+                .doOnNext(response -> putLocal(key, response));
+    }
+
+    /**
+     * 따로 받아온 리뷰 결과 저장
+     */
+    public Mono<Void> store(CodeReviewRequest request, CodeReviewResponse response) {
+        String key = keyOf(request);
+        putLocal(key, response);
+        return saveToDatabase(key, request, response);
+    }
+
+    private Mono<CodeReviewResponse> loadShared(String key, CodeReviewRequest request,
+            Supplier<Mono<CodeReviewResponse>> loader) {
+        return loadFromDatabase(key)
+                .switchIfEmpty(Mono.defer(loader)
+                        .flatMap(response -> saveToDatabase(key, request, response).thenReturn(response)))
+                .doOnNext(response -> putLocal(key, response))
+                .doFinally(signal -> inFlight.remove(key))
+                // 먼저 구독한 요청이 취소되어도 나머지 요청은 같은 결과를 받도록 공유
+                .cache();
+    }
+
+    private CodeReviewResponse getLocal(String key) {
+        lock.lock();
+        try {
+            CachedReview cached = entries.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (cached.isExpired()) {
+                entries.remove(key);
+                return null;
+            }
+            return cached.response();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void putLocal(String key, CodeReviewResponse response) {
+        lock.lock();
+        try {
+            entries.put(key, new CachedReview(response, System.nanoTime() + ttl.toNanos()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Mono<CodeReviewResponse> loadFromDatabase(String key) {
+        if (!persist) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> cacheRepository.findById(key)
+                .filter(entry -> entry.getCreatedAt() != null
+                        && entry.getCreatedAt().isAfter(LocalDateTime.now().minus(ttl)))
+                .map(entry -> {
+                    log.debug("코드 리뷰 캐시 적중 (DB): key={}", key);
+                    return new CodeReviewResponse(entry.getSummary(), entry.getStrengths(),
+                            entry.getImprovements(), entry.getTimeComplexity(), entry.getTips());
+                })
+                .orElse(null))
+                .subscribeOn(blockingScheduler)
+                .onErrorResume(e -> {
+                    log.warn("코드 리뷰 캐시 DB 조회 실패: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> saveToDatabase(String key, CodeReviewRequest request, CodeReviewResponse response) {
+        if (!persist) {
+            return Mono.empty();
+        }
+        return Mono.fromRunnable(() -> cacheRepository.save(CodeReviewCacheEntry.builder()
+                .contentHash(key)
+                .problemId(request.getProblemId())
+                .language(request.getLanguage())
+                .summary(response.getSummary())
+                .strengths(response.getStrengths())
+                .improvements(response.getImprovements())
+                .timeComplexity(response.getTimeComplexity())
+                .tips(response.getTips())
+                .createdAt(LocalDateTime.now())
+                .build()))
+                .subscribeOn(blockingScheduler)
+                .onErrorResume(e -> {
+                    log.warn("코드 리뷰 캐시 DB 저장 실패: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * 캐시 키: 언어 + 문제 번호 + 정규화된 코드의 SHA-256
+     */
+    static String keyOf(CodeReviewRequest request) {
+        String language = request.getLanguage() == null ? "" : request.getLanguage().trim().toLowerCase(Locale.ROOT);
+        String source = language + '\u0000' + request.getProblemId() + '\u0000' + normalize(request.getCode());
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256을 사용할 수 없습니다.", e);
+        }
+    }
+
+    /**
+     * 줄바꿈 통일, 각 줄 끝 공백 제거, 앞뒤 빈 줄 제거 (리뷰 결과에 영향 없는 차이만 무시)
+     */
+    private static String normalize(String code) {
+        if (code == null) {
+            return "";
+        }
+
+        StringBuilder normalized = new StringBuilder(code.length());
+        for (String line : code.replace("\r\n", "\n").replace('\r', '\n').split("\n", -1)) {
+            normalized.append(line.stripTrailing()).append('\n');
+        }
+        return normalized.toString().strip();
+    }
+
+    private record CachedReview(CodeReviewResponse response, long expiresAtNanos) {
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos > 0;
+        }
+    }
+}
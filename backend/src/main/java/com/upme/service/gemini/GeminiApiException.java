@@ -0,0 +1,22 @@
+package com.upme.service.gemini;
+
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * Gemini API가 4xx/5xx로 응답한 경우
+ */
+public class GeminiApiException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HttpStatusCode statusCode;
+
+    public GeminiApiException(HttpStatusCode statusCode, String body) {
+        super("Gemini API error " + statusCode + ": " + body);
+        this.statusCode = statusCode;
+    }
+
+    public HttpStatusCode getStatusCode() {
+        return statusCode;
+    }
+}
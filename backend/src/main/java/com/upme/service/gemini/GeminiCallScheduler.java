@@ -0,0 +1,300 @@
+package com.upme.service.gemini;
+
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 컨트롤러와 Gemini WebClient 사이의 호출 스케줄러
+ * - 전체 동시 호출 수 제한 (max-concurrent)
+ * - 호출자(사용자/IP)별 라운드 로빈으로 공정하게 분배
+ * - 회화(INTERACTIVE)를 코드 리뷰(BATCH)보다 우선 실행 (배치가 굶지 않도록 interactive-burst마다 1번 양보)
+ * - 대기 예산 안에 시작하지 못한 호출은 503, 호출자 대기열이 가득 차면 429로 즉시 거절
+ * - 일/월 토큰 한도(GeminiUsageTracker)를 넘은 호출자는 429로 즉시 거절
+ */
+@Slf4j
+@Component
+public class GeminiCallScheduler {
+
+    public enum Priority {
+        INTERACTIVE, BATCH
+    }
+
+    private final int maxConcurrent;
+    private final int maxQueuedPerCaller;
+    private final long interactiveWaitBudgetMs;
+    private final long batchWaitBudgetMs;
+    private final int interactiveBurst;
+    private final GeminiUsageTracker usageTracker;
+
+    // 가상 스레드에서 carrier 스레드를 고정하지 않도록 synchronized 대신 ReentrantLock 사용
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Priority, FairQueue> queues = new EnumMap<>(Priority.class);
+    private int running = 0;
+    private int interactiveStreak = 0;
+
+    public GeminiCallScheduler(
+            GeminiUsageTracker usageTracker,
+            @Value("${gemini.scheduler.max-concurrent:8}") int maxConcurrent,
+            @Value("${gemini.scheduler.max-queued-per-caller:3}") int maxQueuedPerCaller,
+            @Value("${gemini.scheduler.interactive-wait-budget-ms:5000}") long interactiveWaitBudgetMs,
+            @Value("${gemini.scheduler.batch-wait-budget-ms:20000}") long batchWaitBudgetMs,
+            @Value("${gemini.scheduler.interactive-burst:4}") int interactiveBurst) {
+        this.usageTracker = usageTracker;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueuedPerCaller = maxQueuedPerCaller;
+        this.interactiveWaitBudgetMs = interactiveWaitBudgetMs;
+        this.batchWaitBudgetMs = batchWaitBudgetMs;
+        this.interactiveBurst = interactiveBurst;
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new FairQueue());
+        }
+    }
+
+    /**
+     * 단일 응답 호출 스케줄링
+     */
+    public <T> Mono<T> submit(String callerKey, Priority priority, Supplier<? extends Mono<T>> call) {
+        return submitMany(callerKey, priority, call).singleOrEmpty();
+    }
+
+    /**
+     * 스트리밍 호출 스케줄링 (스트림이 끝날 때까지 슬롯을 점유)
+     */
+    public <T> Flux<T> submitMany(String callerKey, Priority priority, Supplier<? extends Publisher<T>> call) {
+        return Flux.create(sink -> enqueue(new Ticket<>(callerKey, priority, sink, call)));
+    }
+
+    private <T> void enqueue(Ticket<T> ticket) {
+        // 토큰 한도를 넘은 호출자는 대기열에 넣지 않고 바로 거절
+        GeminiRejectedException overQuota = usageTracker.quotaRejection(ticket.callerKey);
+        if (overQuota != null) {
+            ticket.sink.error(overQuota);
+            return;
+        }
+
+        FairQueue queue = queues.get(ticket.priority);
+        GeminiRejectedException rejection = null;
+
+        lock.lock();
+        try {
+            if (queue.size(ticket.callerKey) >= maxQueuedPerCaller) {
+                rejection = new GeminiRejectedException(HttpStatus.TOO_MANY_REQUESTS,
+                        "이전 AI 요청이 아직 처리 중입니다. 잠시 후 다시 시도해주세요.", 1);
+            } else {
+                queue.add(ticket);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (rejection != null) {
+            log.warn("Gemini 호출 거절 (호출자 대기열 초과): caller={}, priority={}", ticket.callerKey, ticket.priority);
+            ticket.sink.error(rejection);
+            return;
+        }
+
+        long budgetMs = ticket.priority == Priority.INTERACTIVE ? interactiveWaitBudgetMs : batchWaitBudgetMs;
+        ticket.timeout = Schedulers.parallel().schedule(() -> expire(ticket), budgetMs, TimeUnit.MILLISECONDS);
+        ticket.sink.onDispose(() -> cancel(ticket));
+
+        dispatch();
+    }
+
+    /**
+     * 빈 슬롯만큼 대기열에서 꺼내 실행 (실제 구독은 락 밖에서)
+     */
+    private void dispatch() {
+        List<Ticket<?>> toStart = new ArrayList<>();
+
+        lock.lock();
+        try {
+            while (running < maxConcurrent) {
+                Ticket<?> next = pollNext();
+                if (next == null) {
+                    break;
+                }
+                next.started = true;
+                running++;
+                toStart.add(next);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        toStart.forEach(Ticket::start);
+    }
+
+    private Ticket<?> pollNext() {
+        FairQueue interactive = queues.get(Priority.INTERACTIVE);
+        FairQueue batch = queues.get(Priority.BATCH);
+
+        if (batch.isEmpty()) {
+            interactiveStreak = 0;
+        } else if (interactive.isEmpty() || interactiveStreak >= interactiveBurst) {
+            interactiveStreak = 0;
+            return batch.poll();
+        }
+
+        if (!interactive.isEmpty()) {
+            interactiveStreak++;
+            return interactive.poll();
+        }
+        return null;
+    }
+
+    private void expire(Ticket<?> ticket) {
+        boolean removed;
+        lock.lock();
+        try {
+            removed = !ticket.started && queues.get(ticket.priority).remove(ticket);
+        } finally {
+            lock.unlock();
+        }
+
+        if (removed) {
+            log.warn("Gemini 호출 거절 (대기 시간 초과): caller={}, priority={}", ticket.callerKey, ticket.priority);
+            ticket.sink.error(new GeminiRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "AI 요청이 많아 처리하지 못했습니다. 잠시 후 다시 시도해주세요.", 5));
+        }
+    }
+
+    private void cancel(Ticket<?> ticket) {
+        ticket.timeout.dispose();
+
+        boolean started;
+        lock.lock();
+        try {
+            started = ticket.started;
+            if (!started) {
+                queues.get(ticket.priority).remove(ticket);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (started) {
+            ticket.subscription.dispose();
+        }
+    }
+
+    private void release(Ticket<?> ticket) {
+        lock.lock();
+        try {
+            if (ticket.released) {
+                return;
+            }
+            ticket.released = true;
+            running--;
+        } finally {
+            lock.unlock();
+        }
+        dispatch();
+    }
+
+    /**
+     * 대기 중이거나 실행 중인 호출 하나
+     */
+    private final class Ticket<T> {
+
+        private final String callerKey;
+        private final Priority priority;
+        private final FluxSink<T> sink;
+        private final Supplier<? extends Publisher<T>> call;
+        private final Disposable.Swap subscription = Disposables.swap();
+        private final long enqueuedAt = System.nanoTime();
+        private volatile Disposable timeout = Disposables.disposed();
+
+        // lock으로 보호
+        private boolean started = false;
+        private boolean released = false;
+
+        private Ticket(String callerKey, Priority priority, FluxSink<T> sink, Supplier<? extends Publisher<T>> call) {
+            this.callerKey = callerKey;
+            this.priority = priority;
+            this.sink = sink;
+            this.call = call;
+        }
+
+        private void start() {
+            timeout.dispose();
+            log.debug("Gemini 호출 시작: caller={}, priority={}, 대기 {}ms", callerKey, priority,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueuedAt));
+
+            subscription.update(Flux.defer(call)
+                    .doFinally(signal -> release(this))
+                    .subscribe(sink::next, sink::error, sink::complete));
+        }
+    }
+
+    /**
+     * 호출자별 라운드 로빈 대기열 (lock 안에서만 접근)
+     */
+    private static final class FairQueue {
+
+        private final Map<String, ArrayDeque<Ticket<?>>> byCaller = new HashMap<>();
+        private final ArrayDeque<String> rotation = new ArrayDeque<>();
+
+        int size(String callerKey) {
+            ArrayDeque<Ticket<?>> tickets = byCaller.get(callerKey);
+            return tickets == null ? 0 : tickets.size();
+        }
+
+        boolean isEmpty() {
+            return rotation.isEmpty();
+        }
+
+        void add(Ticket<?> ticket) {
+            byCaller.computeIfAbsent(ticket.callerKey, key -> {
+                rotation.addLast(key);
+                return new ArrayDeque<>();
+            }).addLast(ticket);
+        }
+
+        Ticket<?> poll() {
+            String callerKey = rotation.pollFirst();
+            if (callerKey == null) {
+                return null;
+            }
+
+            ArrayDeque<Ticket<?>> tickets = byCaller.get(callerKey);
+            Ticket<?> ticket = tickets.pollFirst();
+            if (tickets.isEmpty()) {
+                byCaller.remove(callerKey);
+            } else {
+                rotation.addLast(callerKey);
+            }
+            return ticket;
+        }
+
+        boolean remove(Ticket<?> ticket) {
+            ArrayDeque<Ticket<?>> tickets = byCaller.get(ticket.callerKey);
+            if (tickets == null || !tickets.remove(ticket)) {
+                return false;
+            }
+            if (tickets.isEmpty()) {
+                byCaller.remove(ticket.callerKey);
+                rotation.remove(ticket.callerKey);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.upme.service.gemini;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 재생 서버 응답에 장애를 섞는 주입기 (재시도/재시도 예산/헤징/서킷 브레이커 동작 확인용)
+ * - 요청마다 비율에 따라 429, 503, 연결 끊기(RST), 추가 지연 중 하나를 적용 (gemini.fault.*)
+ * - failNext()로 다음 n개 요청의 장애를 순서대로 정할 수 있음 (테스트에서 결과를 고정할 때)
+ * 지연은 다른 장애와 겹칠 수 있음 (지연 후 503 등)
+ */
+@Slf4j
+public class GeminiFaultInjector {
+
+    public enum Kind {
+        NONE, RATE_LIMITED, UNAVAILABLE, RESET, SLOW
+    }
+
+    /**
+     * 요청 하나에 적용할 장애 (delay 후 kind대로 응답)
+     */
+    public record Fault(Kind kind, Duration delay) {
+
+        static final Fault NONE = new Fault(Kind.NONE, Duration.ZERO);
+
+        /**
+         * 정상 응답 대신 respond()로 장애 응답을 보내야 하는지
+         */
+        public boolean failing() {
+            return kind == Kind.RATE_LIMITED || kind == Kind.UNAVAILABLE || kind == Kind.RESET;
+        }
+    }
+
+    /**
+     * 요청마다 적용할 장애 비율 (0~1, 429/503/끊기는 합이 1 이하), latencyMs는 SLOW 장애의 추가 지연
+     */
+    public record Settings(double rateLimitedRatio, double unavailableRatio, double resetRatio, double slowRatio,
+            long latencyMs) {
+
+        public static final Settings NONE = new Settings(0, 0, 0, 0, 0);
+
+        public boolean active() {
+            return rateLimitedRatio > 0 || unavailableRatio > 0 || resetRatio > 0 || slowRatio > 0;
+        }
+    }
+
+    private static final byte[] RATE_LIMITED_BODY = ("{\"error\":{\"code\":429,\"message\":\"Resource has been "
+            + "exhausted (fault injected)\",\"status\":\"RESOURCE_EXHAUSTED\"}}").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] UNAVAILABLE_BODY = ("{\"error\":{\"code\":503,\"message\":\"The model is "
+            + "overloaded (fault injected)\",\"status\":\"UNAVAILABLE\"}}").getBytes(StandardCharsets.UTF_8);
+
+    private volatile Settings settings;
+    // 순서대로 정한 장애 (scriptedCount개 남은 동안 scriptedFault 적용)
+    private volatile Fault scriptedFault = Fault.NONE;
+    private final AtomicInteger scriptedCount = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injected = new AtomicLong();
+
+    public GeminiFaultInjector(Settings settings) {
+        this.settings = settings;
+    }
+
+    public Settings settings() {
+        return settings;
+    }
+
+    public void update(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * 다음 count개 요청에 delay 후 kind 장애 적용 (SLOW면 delay 후 정상 응답), 비율 설정보다 우선
+     */
+    public void failNext(int count, Kind kind, Duration delay) {
+        scriptedFault = new Fault(kind, delay);
+        scriptedCount.set(count);
+    }
+
+    /**
+     * 받은 요청 수 (장애를 넣은 요청 포함)
+     */
+    public long requests() {
+        return requests.get();
+    }
+
+    public long injected() {
+        return injected.get();
+    }
+
+    /**
+     * 이번 요청에 적용할 장애
+     */
+    public Fault next() {
+        requests.incrementAndGet();
+        if (scriptedCount.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            injected.incrementAndGet();
+            return scriptedFault;
+        }
+
+        Settings current = settings;
+        if (!current.active()) {
+            return Fault.NONE;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Duration delay = random.nextDouble() < current.slowRatio()
+                ? Duration.ofMillis(current.latencyMs())
+                : Duration.ZERO;
+        double roll = random.nextDouble();
+        Kind kind;
+        if (roll < current.rateLimitedRatio()) {
+            kind = Kind.RATE_LIMITED;
+        } else if (roll < current.rateLimitedRatio() + current.unavailableRatio()) {
+            kind = Kind.UNAVAILABLE;
+        } else if (roll < current.rateLimitedRatio() + current.unavailableRatio() + current.resetRatio()) {
+            kind = Kind.RESET;
+        } else {
+            kind = delay.isZero() ? Kind.NONE : Kind.SLOW;
+        }
+        if (kind != Kind.NONE) {
+            injected.incrementAndGet();
+        }
+        return new Fault(kind, delay);
+    }
+
+    /**
+     * 장애 응답 전송 (failing()인 장애만, 지연은 호출 측이 먼저 적용)
+     */
+    public Mono<Void> respond(Fault fault, HttpServerResponse response) {
+        return switch (fault.kind()) {
+            case RATE_LIMITED -> error(response, 429, RATE_LIMITED_BODY)
+                    .doOnSubscribe(s -> log.debug("장애 주입: 429"));
+            case UNAVAILABLE -> error(response, 503, UNAVAILABLE_BODY)
+                    .doOnSubscribe(s -> log.debug("장애 주입: 503"));
+            case RESET -> Mono.fromRunnable(() -> response.withConnection(connection -> {
+                // SO_LINGER 0으로 닫아서 FIN 대신 RST 전송
+                log.debug("장애 주입: 연결 끊기");
+                connection.channel().config().setOption(ChannelOption.SO_LINGER, 0);
+                connection.channel().close();
+            }));
+            case NONE, SLOW -> Mono.error(new IllegalArgumentException("장애 응답이 아닙니다: " + fault.kind()));
+        };
+    }
+
+    private static Mono<Void> error(HttpServerResponse response, int status, byte[] body) {
+        return response.status(status)
+                .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                .sendByteArray(Mono.just(body))
+                .then();
+    }
+}
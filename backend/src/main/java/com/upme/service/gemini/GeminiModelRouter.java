@@ -0,0 +1,321 @@
+package com.upme.service.gemini;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 회화 턴의 모델 선택
+ * - 기본은 FAST 모델 (짧은 일상 대화는 가장 싸고 빠른 모델)
+ * - standard-topics(기본: 4 면접)이거나 입력이 long-input-tokens 이상이면 STANDARD 모델 선호
+ * - 선호 모델의 최근 p95 지연(단일 응답), TTFT p95(스트리밍)나 오류율이 SLO를 넘으면 FAST 모델로 대체 (probe-ratio만큼은 계속 보내서 회복 여부 관찰)
+ * - 반대로 FAST 모델의 오류율만 SLO를 넘으면 STANDARD 모델로 대체
+ * 모델별 지연/오류는 실제 호출 결과로 최근 window-seconds 동안만 집계 (단일 응답은 observe, 스트리밍은 observeStream)
+ */
+@Slf4j
+@Component
+public class GeminiModelRouter {
+
+    public enum Tier {
+        FAST, STANDARD
+    }
+
+    private final boolean enabled;
+    private final String fastModel;
+    private final String standardModel;
+    private final Set<Integer> standardTopics;
+    private final int longInputTokens;
+    private final long sloP95Ms;
+    private final long sloTtftP95Ms;
+    private final long windowMs;
+    private final double sloErrorRate;
+    private final double probeRatio;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ModelHealth> health = new ConcurrentHashMap<>();
+
+    public GeminiModelRouter(
+            MeterRegistry meterRegistry,
+            @Value("${gemini.router.enabled:true}") boolean enabled,
+            @Value("${gemini.router.fast-model:gemini-2.0-flash-lite}") String fastModel,
+            @Value("${gemini.router.standard-model:${gemini.model:gemini-2.0-flash}}") String standardModel,
+            @Value("${gemini.router.standard-topics:4}") List<Integer> standardTopics,
+            @Value("${gemini.router.long-input-tokens:200}") int longInputTokens,
+            @Value("${gemini.router.slo.p95-ms:6000}") long sloP95Ms,
+            @Value("${gemini.router.slo.ttft-p95-ms:3000}") long sloTtftP95Ms,
+            @Value("${gemini.router.slo.error-rate:0.2}") double sloErrorRate,
+            @Value("${gemini.router.probe-ratio:0.05}") double probeRatio,
+            @Value("${gemini.router.window-seconds:60}") long windowSeconds) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.fastModel = fastModel;
+        this.standardModel = standardModel;
+        this.standardTopics = Set.copyOf(standardTopics);
+        this.longInputTokens = longInputTokens;
+        this.sloP95Ms = sloP95Ms;
+        this.sloTtftP95Ms = sloTtftP95Ms;
+        this.windowMs = TimeUnit.SECONDS.toMillis(windowSeconds);
+        this.sloErrorRate = sloErrorRate;
+        this.probeRatio = probeRatio;
+    }
+
+    /**
+     * 회화 턴에 사용할 모델
+     */
+    public String route(int topicId, int inputTokens) {
+        if (!enabled || fastModel.equals(standardModel)) {
+            return standardModel;
+        }
+
+        Tier preferred = standardTopics.contains(topicId) || inputTokens >= longInputTokens
+                ? Tier.STANDARD
+                : Tier.FAST;
+        String model = modelOf(preferred);
+        String reason = preferred == Tier.STANDARD ? "preferred-standard" : "preferred-fast";
+
+        ModelHealth preferredHealth = healthOf(model);
+        boolean probing = ThreadLocalRandom.current().nextDouble() < probeRatio;
+        if (!probing) {
+            if (preferred == Tier.STANDARD && preferredHealth.violates(sloP95Ms, sloTtftP95Ms, sloErrorRate)) {
+                model = fastModel;
+                reason = "slo-fallback";
+            } else if (preferred == Tier.FAST && preferredHealth.errorRate() > sloErrorRate
+                    && !healthOf(standardModel).violates(sloP95Ms, sloTtftP95Ms, sloErrorRate)) {
+                model = standardModel;
+                reason = "error-fallback";
+            }
+        }
+
+        meterRegistry.counter("gemini.router.routed", "model", model, "reason", reason).increment();
+        return model;
+    }
+
+    /**
+     * 컨텍스트 캐시 등록 등에 쓰는 전체 모델 목록
+     */
+    public Set<String> models() {
+        Set<String> models = new LinkedHashSet<>();
+        models.add(standardModel);
+        if (enabled) {
+            models.add(fastModel);
+        }
+        return models;
+    }
+
+    public String modelOf(Tier tier) {
+        return tier == Tier.FAST ? fastModel : standardModel;
+    }
+
+    /**
+     * 단일 응답 호출의 지연/성공 여부 집계
+     */
+    public <T> Mono<T> observe(String model, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call
+                    .doOnSuccess(value -> healthOf(model).record(false, elapsedMs(start), true))
+                    .doOnError(e -> recordFailure(model, false, start, e));
+        });
+    }
+
+    /**
+     * 스트리밍 호출은 첫 이벤트까지의 지연(TTFT)으로 집계
+     */
+    public <T> Flux<T> observeStream(String model, Flux<T> call) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean recorded = new AtomicBoolean(false);
+            return call
+                    .doOnNext(item -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            healthOf(model).record(true, elapsedMs(start), true);
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            recordFailure(model, true, start, e);
+                        }
+                    });
+        });
+    }
+
+    private void recordFailure(String model, boolean streaming, long start, Throwable e) {
+        // 로컬 거절이나 잘못된 요청(4xx)은 모델 상태와 무관
+        if (GeminiResilience.isRetryable(e)) {
+            healthOf(model).record(streaming, elapsedMs(start), false);
+        }
+    }
+
+    private ModelHealth healthOf(String model) {
+        return health.computeIfAbsent(model, key -> {
+            ModelHealth created = new ModelHealth(windowMs);
+            meterRegistry.gauge("gemini.router.p95-ms", List.of(Tag.of("model", key)),
+                    created, ModelHealth::p95Millis);
+            meterRegistry.gauge("gemini.router.ttft-p95-ms", List.of(Tag.of("model", key)),
+                    created, ModelHealth::ttftP95Millis);
+            meterRegistry.gauge("gemini.router.error-rate", List.of(Tag.of("model", key)),
+                    created, ModelHealth::errorRate);
+            return created;
+        });
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 모델별 최근 window-seconds 동안의 단일 응답 지연(p95), 스트리밍 첫 이벤트 지연(TTFT p95), 오류율
+     * 시간 구간(BUCKETS개)마다 따로 모으고 오래된 구간은 버리므로 호출이 뜸해져도 예전 결과가 남지 않음
+     */
+    static final class ModelHealth {
+
+        private final TimedWindow unary;
+        private final TimedWindow stream;
+
+        ModelHealth(long windowMs) {
+            this.unary = new TimedWindow(windowMs);
+            this.stream = new TimedWindow(windowMs);
+        }
+
+        void record(boolean streaming, long latencyMs, boolean success) {
+            (streaming ? stream : unary).record(nowMillis(), latencyMs, success);
+        }
+
+        long p95Millis() {
+            return unary.p95Millis(nowMillis());
+        }
+
+        long ttftP95Millis() {
+            return stream.p95Millis(nowMillis());
+        }
+
+        /**
+         * 단일 응답과 스트리밍을 합친 오류율 (결과가 MIN_OUTCOMES개 미만이면 0)
+         */
+        double errorRate() {
+            long now = nowMillis();
+            int[] unaryCounts = unary.outcomes(now);
+            int[] streamCounts = stream.outcomes(now);
+            int total = unaryCounts[0] + streamCounts[0];
+            return total < TimedWindow.MIN_OUTCOMES ? 0 : (double) (unaryCounts[1] + streamCounts[1]) / total;
+        }
+
+        boolean violates(long sloP95Ms, long sloTtftP95Ms, double sloErrorRate) {
+            return p95Millis() > sloP95Ms || ttftP95Millis() > sloTtftP95Ms || errorRate() > sloErrorRate;
+        }
+
+        private static long nowMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+        }
+    }
+
+    /**
+     * 시간 구간별 지연 표본과 성공/실패 수 (구간마다 최대 SAMPLES_PER_BUCKET개, 넘치면 그 구간 안에서 덮어씀)
+     */
+    static final class TimedWindow {
+
+        private static final int BUCKETS = 6;
+        private static final int SAMPLES_PER_BUCKET = 64;
+        private static final int MIN_SAMPLES = 20;
+        private static final int MIN_OUTCOMES = 10;
+
+        private final long bucketMs;
+        private final long[] epochs = new long[BUCKETS];
+        private final long[][] samples = new long[BUCKETS][SAMPLES_PER_BUCKET];
+        private final int[] sampleCounts = new int[BUCKETS];
+        private final int[] outcomes = new int[BUCKETS];
+        private final int[] failures = new int[BUCKETS];
+        private final ReentrantLock lock = new ReentrantLock();
+
+        TimedWindow(long windowMs) {
+            this.bucketMs = Math.max(1, windowMs / BUCKETS);
+            Arrays.fill(epochs, Long.MIN_VALUE);
+        }
+
+        void record(long nowMs, long latencyMs, boolean success) {
+            long epoch = Math.floorDiv(nowMs, bucketMs);
+            int slot = (int) Math.floorMod(epoch, (long) BUCKETS);
+            lock.lock();
+            try {
+                if (epochs[slot] != epoch) {
+                    epochs[slot] = epoch;
+                    sampleCounts[slot] = 0;
+                    outcomes[slot] = 0;
+                    failures[slot] = 0;
+                }
+                outcomes[slot]++;
+                if (success) {
+                    samples[slot][sampleCounts[slot] % SAMPLES_PER_BUCKET] = latencyMs;
+                    sampleCounts[slot]++;
+                } else {
+                    failures[slot]++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 최근 구간들의 p95 (표본이 MIN_SAMPLES개 미만이면 0)
+         */
+        long p95Millis(long nowMs) {
+            long oldest = Math.floorDiv(nowMs, bucketMs) - BUCKETS + 1;
+            long[] copy;
+            int count = 0;
+            lock.lock();
+            try {
+                copy = new long[BUCKETS * SAMPLES_PER_BUCKET];
+                for (int slot = 0; slot < BUCKETS; slot++) {
+                    if (epochs[slot] >= oldest) {
+                        int n = Math.min(sampleCounts[slot], SAMPLES_PER_BUCKET);
+                        System.arraycopy(samples[slot], 0, copy, count, n);
+                        count += n;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (count < MIN_SAMPLES) {
+                return 0;
+            }
+            Arrays.sort(copy, 0, count);
+            return copy[(int) Math.ceil(count * 0.95) - 1];
+        }
+
+        /**
+         * 최근 구간들의 {결과 수, 실패 수}
+         */
+        int[] outcomes(long nowMs) {
+            long oldest = Math.floorDiv(nowMs, bucketMs) - BUCKETS + 1;
+            int total = 0;
+            int failed = 0;
+            lock.lock();
+            try {
+                for (int slot = 0; slot < BUCKETS; slot++) {
+                    if (epochs[slot] >= oldest) {
+                        total += outcomes[slot];
+                        failed += failures[slot];
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            return new int[] {total, failed};
+        }
+    }
+}
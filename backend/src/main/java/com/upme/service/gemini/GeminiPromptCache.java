@@ -0,0 +1,188 @@
+package com.upme.service.gemini;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 고정 시스템 프롬프트를 Gemini context cache(cachedContents)에 등록해두고 핸들로 참조
+ * - 매 요청마다 같은 system_instruction을 보내지 않아 입력 토큰/prefill 지연 절약
+ * - TTL 만료 전에 주기적으로 연장, 연장 실패 시 재생성
+ * - 등록 실패(비활성, 최소 토큰 수 미달, 네트워크 오류 등) 시 handleFor()가 null → 호출 측에서 인라인 프롬프트 사용
+ */
+@Slf4j
+@Component
+public class GeminiPromptCache {
+
+    private final WebClient webClient;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Duration refreshBefore;
+
+    @Value("${gemini.api.key}")
+    private String apiKey;
+
+    // key: model + "|" + promptKey
+    private final Map<String, CachedPrompt> prompts = new ConcurrentHashMap<>();
+
+    public GeminiPromptCache(
+            WebClient geminiWebClient,
+            @Value("${gemini.prompt-cache.enabled:false}") boolean enabled,
+            @Value("${gemini.prompt-cache.ttl-minutes:60}") long ttlMinutes,
+            @Value("${gemini.prompt-cache.refresh-before-minutes:10}") long refreshBeforeMinutes) {
+        this.webClient = geminiWebClient;
+        this.enabled = enabled;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.refreshBefore = Duration.ofMinutes(refreshBeforeMinutes);
+    }
+
+    /**
+     * 사용할 수 있는 cachedContent 이름 (예: "cachedContents/abc"), 없으면 null
+     */
+    public String handleFor(String model, String promptKey) {
+        if (!enabled) {
+            return null;
+        }
+        CachedPrompt prompt = prompts.get(key(model, promptKey));
+        if (prompt == null || prompt.name() == null || prompt.expireTime().isBefore(Instant.now())) {
+            return null;
+        }
+        return prompt.name();
+    }
+
+    /**
+     * 시스템 프롬프트 등록 (비동기, 실패해도 인라인으로 동작)
+     */
+    public void register(String model, String promptKey, String systemPrompt) {
+        if (!enabled) {
+            return;
+        }
+        create(model, promptKey, systemPrompt)
+                .subscribe(
+                        prompt -> log.info("Gemini 프롬프트 캐시 등록: {} → {}", promptKey, prompt.name()),
+                        e -> log.warn("Gemini 프롬프트 캐시 등록 실패 ({}), 인라인 프롬프트 사용: {}", promptKey, e.getMessage()));
+    }
+
+    /**
+     * 캐시 핸들로 요청이 실패한 경우 (만료/삭제됨) → 다음 갱신 주기에 다시 생성
+     */
+    public void invalidate(String model, String promptKey) {
+        prompts.computeIfPresent(key(model, promptKey),
+                (k, prompt) -> new CachedPrompt(null, prompt.model(), prompt.promptKey(), prompt.systemPrompt(),
+                        Instant.EPOCH));
+        log.warn("Gemini 프롬프트 캐시 무효화: {}", promptKey);
+    }
+
+    /**
+     * 만료가 가까운 캐시의 TTL 연장 (연장 실패 시 재생성)
+     */
+    @Scheduled(fixedDelayString = "${gemini.prompt-cache.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        Instant threshold = Instant.now().plus(refreshBefore);
+
+        for (CachedPrompt prompt : List.copyOf(prompts.values())) {
+            if (prompt.expireTime().isAfter(threshold)) {
+                continue;
+            }
+
+            Mono<CachedPrompt> renewed = prompt.name() == null
+                    ? create(prompt.model(), prompt.promptKey(), prompt.systemPrompt())
+                    : extend(prompt).onErrorResume(
+                            e -> create(prompt.model(), prompt.promptKey(), prompt.systemPrompt()));
+
+            renewed.subscribe(
+                    p -> log.debug("Gemini 프롬프트 캐시 갱신: {} (만료 {})", p.promptKey(), p.expireTime()),
+                    e -> log.warn("Gemini 프롬프트 캐시 갱신 실패 ({}): {}", prompt.promptKey(), e.getMessage()));
+        }
+    }
+
+    @PreDestroy
+    public void deleteAll() {
+        for (CachedPrompt prompt : prompts.values()) {
+            if (prompt.name() == null) {
+                continue;
+            }
+            try {
+                webClient.delete()
+                        .uri("/v1beta/{name}?key={key}", prompt.name(), apiKey)
+                        .retrieve()
+                        .toBodilessEntity()
+                        .block(Duration.ofSeconds(2));
+            } catch (Exception e) {
+                log.debug("Gemini 프롬프트 캐시 삭제 실패 ({}): {}", prompt.promptKey(), e.getMessage());
+            }
+        }
+    }
+
+    private Mono<CachedPrompt> create(String model, String promptKey, String systemPrompt) {
+        // 실패해도 다음 갱신 주기에 다시 시도하도록 빈 항목을 먼저 기록
+        prompts.putIfAbsent(key(model, promptKey),
+                new CachedPrompt(null, model, promptKey, systemPrompt, Instant.EPOCH));
+
+        Map<String, Object> body = Map.of(
+                "model", "models/" + model,
+                "displayName", "upme-" + promptKey,
+                "systemInstruction", Map.of("parts", List.of(Map.of("text", systemPrompt))),
+                "ttl", ttl.toSeconds() + "s");
+
+        return webClient.post()
+                .uri("/v1beta/cachedContents?key={key}", apiKey)
+                .header("Content-Type", "application/json")
+                .bodyValue(body)
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .map(error -> new GeminiApiException(clientResponse.statusCode(), error)))
+                .bodyToMono(JsonNode.class)
+                .map(json -> store(new CachedPrompt(json.path("name").asText(), model, promptKey, systemPrompt,
+                        expireTimeOf(json))));
+    }
+
+    private Mono<CachedPrompt> extend(CachedPrompt prompt) {
+        return webClient.patch()
+                .uri("/v1beta/{name}?updateMask=ttl&key={key}", prompt.name(), apiKey)
+                .header("Content-Type", "application/json")
+                .bodyValue(Map.of("ttl", ttl.toSeconds() + "s"))
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .map(error -> new GeminiApiException(clientResponse.statusCode(), error)))
+                .bodyToMono(JsonNode.class)
+                .map(json -> store(new CachedPrompt(prompt.name(), prompt.model(), prompt.promptKey(),
+                        prompt.systemPrompt(), expireTimeOf(json))));
+    }
+
+    private CachedPrompt store(CachedPrompt prompt) {
+        prompts.put(key(prompt.model(), prompt.promptKey()), prompt);
+        return prompt;
+    }
+
+    private Instant expireTimeOf(JsonNode json) {
+        String expireTime = json.path("expireTime").asText("");
+        if (expireTime.isEmpty()) {
+            return Instant.now().plus(ttl);
+        }
+        return Instant.parse(expireTime);
+    }
+
+    private static String key(String model, String promptKey) {
+        return model + "|" + promptKey;
+    }
+
+    private record CachedPrompt(String name, String model, String promptKey, String systemPrompt, Instant expireTime) {
+    }
+}
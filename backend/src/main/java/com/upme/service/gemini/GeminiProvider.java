@@ -0,0 +1,342 @@
+package com.upme.service.gemini;
+
+import com.upme.service.gemini.GeminiRequestWriter.BatchEntry;
+import com.upme.service.gemini.GeminiRequestWriter.Template;
+import com.upme.service.llm.LlmPrompt;
+import com.upme.service.llm.LlmPrompt.Turn;
+import com.upme.service.llm.LlmPrompts;
+import com.upme.service.llm.LlmProvider;
+import com.upme.service.llm.LlmResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Gemini 제공자 (generateContent, streamGenerateContent?alt=sse, batchGenerateContent)
+ * - 프롬프트 키별로 시스템 프롬프트와 generationConfig를 미리 인코딩한 Template 사용
+ * - 컨텍스트 캐시 핸들이 있으면 cachedContent로 참조, 핸들이 거절되면(만료/삭제/권한: 400/403/404) 무효화 후 인라인 프롬프트로 한 번 더 요청
+ * - 모든 호출은 GeminiResilience(타임아웃/재시도/헤징/브레이커)를 거침
+ * - 라우터가 모델을 고른 호출(회화 턴)은 GeminiModelRouter에 모델별 지연/오류를 알림
+ */
+@Slf4j
+@Component
+public class GeminiProvider implements LlmProvider {
+
+    public static final String NAME = "gemini";
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_EVENT_TYPE = new ParameterizedTypeReference<>() {
+    };
+
+    private static final Pattern BATCH_NAME = Pattern.compile("batches/[A-Za-z0-9_-]+");
+    private static final Duration BATCH_SUBMIT_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration HEALTH_CHECK_TIMEOUT = Duration.ofSeconds(5);
+
+    private final WebClient webClient;
+    private final GeminiRequestWriter requestWriter;
+    private final GeminiResilience resilience;
+    private final GeminiResponseParser responseParser;
+    private final GeminiPromptCache promptCache;
+    private final GeminiModelRouter modelRouter;
+    private final LlmPrompts prompts;
+
+    @Value("${gemini.api.key}")
+    private String apiKey;
+
+    @Value("${gemini.model:gemini-2.0-flash}")
+    private String model;
+
+    // 프롬프트 키별 미리 인코딩된 요청 템플릿
+    private final Map<String, Template> templates = new ConcurrentHashMap<>();
+
+    public GeminiProvider(WebClient geminiWebClient, GeminiRequestWriter requestWriter,
+            GeminiResilience resilience, GeminiResponseParser responseParser, GeminiPromptCache promptCache,
+            GeminiModelRouter modelRouter, LlmPrompts prompts) {
+        this.webClient = geminiWebClient;
+        this.requestWriter = requestWriter;
+        this.resilience = resilience;
+        this.responseParser = responseParser;
+        this.promptCache = promptCache;
+        this.modelRouter = modelRouter;
+        this.prompts = prompts;
+    }
+
+    /**
+     * 고정 시스템 프롬프트(주제별 회화 + 코드 리뷰 + 요약)를 context cache에 등록
+     * 등록이 끝나기 전이나 실패한 경우에는 인라인 system_instruction으로 요청
+     * 캐시는 모델별이므로 회화 프롬프트는 라우터가 고를 수 있는 모든 모델에 등록
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerPromptCaches() {
+        for (String chatModel : modelRouter.models()) {
+            prompts.chatSystemPrompts().forEach((promptKey, systemPrompt) ->
+                    promptCache.register(chatModel, promptKey, systemPrompt));
+        }
+        prompts.taskSystemPrompts().forEach((promptKey, systemPrompt) ->
+                promptCache.register(model, promptKey, systemPrompt));
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Mono<LlmResult> generate(LlmPrompt prompt) {
+        String target = modelOf(prompt);
+        Template template = templateFor(prompt);
+        List<Turn> contents = prompt.contents();
+
+        String handle = promptCache.handleFor(target, template.promptKey());
+        Mono<String> call = handle == null
+                ? postGenerateContent(target, template, null, contents)
+                : postGenerateContent(target, template, handle, contents)
+                        .onErrorResume(this::isRejectedHandle, e -> {
+                            promptCache.invalidate(target, template.promptKey());
+                            return postGenerateContent(target, template, null, contents);
+                        });
+
+        if (prompt.model() != null) {
+            call = modelRouter.observe(target, call);
+        }
+        return call.map(this::readResult);
+    }
+
+    /**
+     * 스트리밍 호출 (SSE 이벤트 하나 = GenerateContentResponse 하나)
+     * 에러 응답은 첫 이벤트 전에 오므로 인라인 재요청해도 중복 전송되지 않음
+     */
+    @Override
+    public Flux<LlmResult> stream(LlmPrompt prompt) {
+        String target = modelOf(prompt);
+        Template template = templateFor(prompt);
+        List<Turn> contents = prompt.contents();
+
+        String handle = promptCache.handleFor(target, template.promptKey());
+        Flux<ServerSentEvent<String>> events = handle == null
+                ? streamGenerateContent(target, template, null, contents)
+                : streamGenerateContent(target, template, handle, contents)
+                        .onErrorResume(this::isRejectedHandle, e -> {
+                            promptCache.invalidate(target, template.promptKey());
+                            return streamGenerateContent(target, template, null, contents);
+                        });
+
+        if (prompt.model() != null) {
+            events = modelRouter.observeStream(target, events);
+        }
+        return events
+                .filter(event -> event.data() != null)
+                .map(event -> readStreamEvent(event.data()));
+    }
+
+    /**
+     * 기본 모델 메타데이터 조회로 API 키/네트워크/서비스 상태 확인 (재시도/브레이커를 거치지 않음)
+     */
+    @Override
+    public Mono<Void> healthCheck() {
+        return webClient.get()
+                .uri("/v1beta/models/{model}?key={key}", model, apiKey)
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .map(body -> new GeminiApiException(clientResponse.statusCode(), body)))
+                .toBodilessEntity()
+                .timeout(HEALTH_CHECK_TIMEOUT)
+                .then();
+    }
+
+    /**
+     * 429를 제외한 4xx는 요청 문제 (재시도/브레이커 기준과 같음)
+     */
+    @Override
+    public boolean isRequestError(Throwable e) {
+        return e instanceof GeminiApiException && !GeminiResilience.isRetryable(e);
+    }
+
+    /**
+     * 같은 프롬프트 키의 요청 여러 건을 배치 모드로 제출하고 배치 이름(batches/...)을 반환
+     * 제출은 멱등이 아니므로 재시도하지 않음 (실패하면 호출 측에서 다음 주기에 다시 제출)
+     */
+    public Mono<String> submitBatch(String displayName, Map<String, LlmPrompt> batch) {
+        if (batch.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("배치 요청이 비어 있습니다."));
+        }
+        Template template = templateFor(batch.values().iterator().next());
+        List<BatchEntry> entries = batch.entrySet().stream()
+                .map(e -> new BatchEntry(e.getKey(), e.getValue().contents()))
+                .toList();
+
+        return webClient.post()
+                .uri("/v1beta/models/{model}:batchGenerateContent?key={key}", model, apiKey)
+                .header("Content-Type", "application/json")
+                .body(BodyInserters.fromDataBuffers(
+                        Mono.fromCallable(() -> requestWriter.writeBatch(displayName, template, entries))))
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .map(body -> {
+                                    log.error("Gemini 배치 제출 에러 응답 ({}): {}", clientResponse.statusCode(), body);
+                                    return new GeminiApiException(clientResponse.statusCode(), body);
+                                }))
+                .bodyToMono(String.class)
+                .timeout(BATCH_SUBMIT_TIMEOUT)
+                .map(json -> {
+                    try {
+                        String name = responseParser.readBatch(json).name();
+                        if (name == null || !BATCH_NAME.matcher(name).matches()) {
+                            throw new GeminiResponseException("배치 이름이 없는 응답입니다.");
+                        }
+                        log.info("Gemini 배치 제출: {} ({}건)", name, entries.size());
+                        return name;
+                    } catch (IOException e) {
+                        throw new GeminiResponseException("배치 제출 응답을 처리하지 못했습니다.", e);
+                    }
+                });
+    }
+
+    /**
+     * 배치 상태와 (완료된 경우) 인라인 결과 조회
+     */
+    public Mono<GeminiResponseParser.BatchStatus> getBatch(String batchName) {
+        if (!BATCH_NAME.matcher(batchName).matches()) {
+            return Mono.error(new IllegalArgumentException("잘못된 배치 이름: " + batchName));
+        }
+        return resilience.call(() -> webClient.get()
+                .uri("/v1beta/" + batchName + "?key={key}", apiKey)
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .map(body -> new GeminiApiException(clientResponse.statusCode(), body)))
+                .bodyToMono(String.class))
+                .map(json -> {
+                    try {
+                        return responseParser.readBatch(json);
+                    } catch (IOException e) {
+                        throw new GeminiResponseException("배치 상태 응답을 처리하지 못했습니다.", e);
+                    }
+                });
+    }
+
+    /**
+     * GenerateContentResponse 하나를 결과로 변환 (배치 결과도 같은 형식)
+     */
+    public LlmResult readResult(String responseJson) {
+        try {
+            GeminiResponseParser.Envelope envelope = responseParser.readEnvelope(responseJson);
+            if (envelope.text() == null) {
+                log.warn("Gemini 응답에 candidates가 없습니다: {}", responseJson);
+            }
+            return toResult(envelope);
+        } catch (IOException e) {
+            log.error("Gemini 응답 파싱 실패: {}", e.getMessage());
+            log.debug("원본 응답: {}", responseJson);
+            throw new GeminiResponseException("⚠️ AI 응답을 처리하는 중 오류가 발생했습니다.", e);
+        }
+    }
+
+    private LlmResult readStreamEvent(String eventJson) {
+        try {
+            return toResult(responseParser.readEnvelope(eventJson));
+        } catch (IOException e) {
+            log.warn("Gemini 스트리밍 이벤트 파싱 실패: {}", e.getMessage());
+            return new LlmResult(NAME, "", null, 0, 0);
+        }
+    }
+
+    private static LlmResult toResult(GeminiResponseParser.Envelope envelope) {
+        return new LlmResult(NAME, envelope.text(), envelope.finishReason(),
+                envelope.promptTokens(), envelope.candidateTokens());
+    }
+
+    private Mono<String> postGenerateContent(String target, Template template, String handle, List<Turn> contents) {
+        return resilience.call(() -> webClient.post()
+                .uri("/v1beta/models/{model}:generateContent?key={key}", target, apiKey)
+                .header("Content-Type", "application/json")
+                // 구독(재시도 포함)할 때마다 풀 버퍼에 새로 기록, 전송 후 WebClient가 반환
+                .body(BodyInserters.fromDataBuffers(
+                        Mono.fromCallable(() -> requestWriter.write(template, handle, contents))))
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .map(body -> {
+                                    log.error("Gemini API 에러 응답 ({}): {}", clientResponse.statusCode(), body);
+                                    return new GeminiApiException(clientResponse.statusCode(), body);
+                                }))
+                .bodyToMono(String.class));
+    }
+
+    private Flux<ServerSentEvent<String>> streamGenerateContent(String target, Template template, String handle,
+            List<Turn> contents) {
+        return resilience.stream(() -> webClient.post()
+                .uri("/v1beta/models/{model}:streamGenerateContent?alt=sse&key={key}", target, apiKey)
+                .header("Content-Type", "application/json")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .body(BodyInserters.fromDataBuffers(
+                        Mono.fromCallable(() -> requestWriter.write(template, handle, contents))))
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .map(body -> {
+                                    log.error("Gemini API 에러 응답 ({}): {}", clientResponse.statusCode(), body);
+                                    return new GeminiApiException(clientResponse.statusCode(), body);
+                                }))
+                .bodyToFlux(SSE_EVENT_TYPE));
+    }
+
+    private String modelOf(LlmPrompt prompt) {
+        return prompt.model() != null ? prompt.model() : model;
+    }
+
+    private Template templateFor(LlmPrompt prompt) {
+        return templates.computeIfAbsent(prompt.promptKey(),
+                key -> requestWriter.template(key, prompt.systemPrompt(), generationConfig(prompt.options())));
+    }
+
+    /**
+     * 생성 옵션 → generationConfig (JSON 응답이면 responseSchema 포함, propertyOrdering: 스트리밍에서 앞 필드가 먼저 생성되도록)
+     */
+    private static Map<String, Object> generationConfig(LlmPrompt.Options options) {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("temperature", options.temperature());
+        config.put("maxOutputTokens", options.maxOutputTokens());
+        if (options.json()) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            options.jsonFields().forEach(field -> properties.put(field, Map.of("type", "STRING")));
+            config.put("responseMimeType", "application/json");
+            config.put("responseSchema", Map.of(
+                    "type", "OBJECT",
+                    "properties", properties,
+                    "required", options.jsonFields(),
+                    "propertyOrdering", options.jsonFields()));
+        }
+        return config;
+    }
+
+    /**
+     * 캐시 핸들이 거절된 응답인지 (만료/삭제된 핸들은 400/404, 다른 키로 만든 핸들은 403)
+     * 429 등 나머지는 핸들과 무관하므로 캐시를 버리지 않고 그대로 실패 (재시도/브레이커가 처리)
+     */
+    private boolean isRejectedHandle(Throwable e) {
+        if (!(e instanceof GeminiApiException apiException)) {
+            return false;
+        }
+        int status = apiException.getStatusCode().value();
+        return status == 400 || status == 403 || status == 404;
+    }
+}
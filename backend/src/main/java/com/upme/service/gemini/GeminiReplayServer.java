@@ -0,0 +1,176 @@
+package com.upme.service.gemini;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 녹화된 Gemini 트래픽을 재생하는 내장 스텁 서버 (gemini.traffic.mode=replay, gemini-replay 프로필)
+ * - 생성 후 start()로 127.0.0.1의 임의 포트에서 실행되고, GeminiConfig가 WebClient의 base URL을 이 서버로 바꿈
+ * - 요청 바디 해시가 같은 녹화가 있으면 그 응답, 없으면 같은 경로의 녹화를 순서대로 돌려가며 사용
+ * - 응답 헤더와 각 조각은 녹화된 시각 × latency-scale 만큼 기다렸다가 전송 (0이면 지연 없이)
+ * - gemini.fault.*로 429/503/연결 끊기/추가 지연을 섞을 수 있음 (GeminiFaultInjector, 재시도/헤징/브레이커 확인용)
+ * 네트워크 없이 같은 입력/같은 지연으로 처리량과 지연을 반복 측정할 수 있다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "gemini.traffic.mode", havingValue = "replay")
+public class GeminiReplayServer {
+
+    private static final byte[] NOT_RECORDED = "{\"error\":{\"code\":404,\"message\":\"녹화된 응답이 없습니다.\"}}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final double latencyScale;
+    private final GeminiFaultInjector faults;
+    private final Map<String, GeminiTrafficRecording> byHash = new HashMap<>();
+    private final Map<String, List<GeminiTrafficRecording>> byRoute = new HashMap<>();
+    private final Map<String, AtomicInteger> nextIndex = new HashMap<>();
+    private volatile DisposableServer server;
+
+    public GeminiReplayServer(
+            ObjectMapper objectMapper,
+            @Value("${gemini.traffic.dir:gemini-traffic}") String directory,
+            @Value("${gemini.traffic.latency-scale:1.0}") double latencyScale,
+            @Value("${gemini.fault.rate-limited-ratio:0}") double rateLimitedRatio,
+            @Value("${gemini.fault.unavailable-ratio:0}") double unavailableRatio,
+            @Value("${gemini.fault.reset-ratio:0}") double resetRatio,
+            @Value("${gemini.fault.slow-ratio:0}") double slowRatio,
+            @Value("${gemini.fault.latency-ms:0}") long latencyMs) throws IOException {
+        this.latencyScale = latencyScale;
+        this.faults = new GeminiFaultInjector(new GeminiFaultInjector.Settings(
+                rateLimitedRatio, unavailableRatio, resetRatio, slowRatio, latencyMs));
+
+        try (Stream<Path> files = Files.list(Path.of(directory))) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".json")).sorted().toList()) {
+                GeminiTrafficRecording recording = objectMapper.readValue(file.toFile(), GeminiTrafficRecording.class);
+                byHash.putIfAbsent(recording.route() + recording.requestHash(), recording);
+                byRoute.computeIfAbsent(recording.route(), route -> new ArrayList<>()).add(recording);
+            }
+        }
+        byRoute.keySet().forEach(route -> nextIndex.put(route, new AtomicInteger()));
+    }
+
+    /**
+     * 서버 시작 (생성자에서 handle을 넘기지 않도록 초기화가 끝난 뒤 실행)
+     */
+    @PostConstruct
+    public void start() {
+        this.server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .handle(this::handle)
+                .bindNow();
+        log.info("Gemini 재생 서버 시작: {} (녹화 {}건, 지연 배율 {}, 장애 주입 {})", baseUrl(), byHash.size(), latencyScale,
+                faults.settings().active());
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    /**
+     * 장애 주입기 (실행 중 비율을 바꾸거나 다음 요청의 장애를 정할 때)
+     */
+    public GeminiFaultInjector faults() {
+        return faults;
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        String route = GeminiTrafficRecording.routeOf(request.method().name(), request.uri());
+
+        return request.receive().aggregate().asByteArray()
+                .defaultIfEmpty(new byte[0])
+                .flatMap(body -> {
+                    GeminiFaultInjector.Fault fault = faults.next();
+                    Mono<Void> reply = fault.failing()
+                            ? Mono.defer(() -> faults.respond(fault, response))
+                            : Mono.defer(() -> reply(route, body, response));
+                    return fault.delay().isZero() ? reply : Mono.delay(fault.delay()).then(reply);
+                });
+    }
+
+    private Mono<Void> reply(String route, byte[] body, HttpServerResponse response) {
+        GeminiTrafficRecording recording = find(route, GeminiTrafficRecording.hash(body));
+        if (recording == null) {
+            log.warn("Gemini 재생: 녹화 없음 {}", route);
+            return response.status(404)
+                    .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                    .sendByteArray(Mono.just(NOT_RECORDED))
+                    .then();
+        }
+        return replay(recording, response);
+    }
+
+    private GeminiTrafficRecording find(String route, String requestHash) {
+        GeminiTrafficRecording exact = byHash.get(route + requestHash);
+        if (exact != null) {
+            return exact;
+        }
+        List<GeminiTrafficRecording> candidates = byRoute.get(route);
+        if (candidates == null) {
+            return null;
+        }
+        return candidates.get(Math.floorMod(nextIndex.get(route).getAndIncrement(), candidates.size()));
+    }
+
+    private Mono<Void> replay(GeminiTrafficRecording recording, HttpServerResponse response) {
+        byte[] body = recording.responseBytes();
+
+        // 조각 사이 간격만큼 기다렸다가 같은 단위로 전송 (스트리밍 응답의 첫 토큰 지연까지 재현)
+        List<byte[]> slices = new ArrayList<>();
+        List<Duration> gaps = new ArrayList<>();
+        long previousMs = recording.headersMs();
+        int previousEnd = 0;
+        for (GeminiTrafficRecording.Chunk chunk : recording.chunks()) {
+            slices.add(Arrays.copyOfRange(body, previousEnd, Math.min(chunk.end(), body.length)));
+            gaps.add(scaled(chunk.atMs() - previousMs));
+            previousMs = chunk.atMs();
+            previousEnd = chunk.end();
+        }
+
+        Flux<byte[]> chunks = Flux.range(0, slices.size())
+                .concatMap(i -> Mono.delay(gaps.get(i)).thenReturn(slices.get(i)));
+
+        HttpServerResponse headers = response.status(recording.status());
+        if (recording.contentType() != null) {
+            headers.header(HttpHeaders.CONTENT_TYPE, recording.contentType());
+        }
+        return Mono.delay(scaled(recording.headersMs()))
+                .then(headers.sendByteArray(chunks).then());
+    }
+
+    private Duration scaled(long millis) {
+        return Duration.ofMillis(Math.max(0, Math.round(millis * latencyScale)));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.upme.service.gemini;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upme.service.llm.LlmPrompt.Turn;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * generateContent 요청 바디 직렬화
+ * - 시스템 프롬프트와 generationConfig처럼 바뀌지 않는 부분은 Template에 미리 인코딩된 JSON 조각으로 보관
+ * - 요청마다 바뀌는 contents(요약, 히스토리, 사용자 메시지)만 JsonGenerator로 직접 기록
+ * - Netty 풀 버퍼에 기록해서 WebClient가 전송 후 반환 (Map/List 트리와 리플렉션 직렬화 없음)
+ */
+@Component
+public class GeminiRequestWriter {
+
+    private static final SerializableString CACHED_CONTENT = new SerializedString("cachedContent");
+    private static final SerializableString SYSTEM_INSTRUCTION = new SerializedString("system_instruction");
+    private static final SerializableString CONTENTS = new SerializedString("contents");
+    private static final SerializableString GENERATION_CONFIG = new SerializedString("generationConfig");
+    private static final SerializableString ROLE = new SerializedString("role");
+    private static final SerializableString PARTS = new SerializedString("parts");
+    private static final SerializableString TEXT = new SerializedString("text");
+    private static final SerializableString BATCH = new SerializedString("batch");
+    private static final SerializableString DISPLAY_NAME = new SerializedString("display_name");
+    private static final SerializableString INPUT_CONFIG = new SerializedString("input_config");
+    private static final SerializableString REQUESTS = new SerializedString("requests");
+    private static final SerializableString REQUEST = new SerializedString("request");
+    private static final SerializableString METADATA = new SerializedString("metadata");
+    private static final SerializableString KEY = new SerializedString("key");
+
+    // 프롬프트/설정 조각을 제외한 JSON 구조 + 메시지당 구조 문자 여유분
+    private static final int BASE_CAPACITY = 128;
+    private static final int PER_TURN_OVERHEAD = 48;
+
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    public GeminiRequestWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * 고정 부분(시스템 프롬프트, generationConfig)을 미리 인코딩한 템플릿 생성
+     */
+    public Template template(String promptKey, String systemPrompt, Map<String, Object> generationConfig) {
+        try {
+            String systemInstruction = objectMapper.writeValueAsString(
+                    Map.of("parts", List.of(Map.of("text", systemPrompt))));
+            return new Template(promptKey,
+                    new SerializedString(systemInstruction),
+                    new SerializedString(objectMapper.writeValueAsString(generationConfig)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Gemini 요청 템플릿을 만들 수 없습니다: " + promptKey, e);
+        }
+    }
+
+    /**
+     * 요청 바디를 풀 버퍼에 기록 (호출 측에서 WebClient 바디로 넘기면 전송 후 자동 반환)
+     * cachedContent가 있으면 인라인 시스템 프롬프트 대신 캐시 핸들을 참조
+     */
+    public DataBuffer write(Template template, String cachedContent, List<Turn> contents) {
+        DataBuffer buffer = bufferFactory.allocateBuffer(estimateSize(template, contents));
+        try (JsonGenerator generator = jsonFactory.createGenerator(buffer.asOutputStream())) {
+            writeRequest(generator, template, cachedContent, contents);
+        } catch (IOException e) {
+            DataBufferUtils.release(buffer);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw e;
+        }
+        return buffer;
+    }
+
+    /**
+     * batchGenerateContent 요청 바디 (인라인 요청 목록, 각 요청의 metadata.key로 결과를 매칭)
+     * 배치는 처리 시간이 길어 캐시 핸들이 만료될 수 있으므로 시스템 프롬프트는 인라인으로 보냄
+     */
+    public DataBuffer writeBatch(String displayName, Template template, List<BatchEntry> entries) {
+        int size = BASE_CAPACITY;
+        for (BatchEntry entry : entries) {
+            size += PER_TURN_OVERHEAD + estimateSize(template, entry.contents());
+        }
+
+        DataBuffer buffer = bufferFactory.allocateBuffer(size);
+        try (JsonGenerator generator = jsonFactory.createGenerator(buffer.asOutputStream())) {
+            generator.writeStartObject();
+            generator.writeFieldName(BATCH);
+            generator.writeStartObject();
+            generator.writeFieldName(DISPLAY_NAME);
+            generator.writeString(displayName);
+            generator.writeFieldName(INPUT_CONFIG);
+            generator.writeStartObject();
+            generator.writeFieldName(REQUESTS);
+            generator.writeStartObject();
+            generator.writeFieldName(REQUESTS);
+            generator.writeStartArray();
+            for (BatchEntry entry : entries) {
+                generator.writeStartObject();
+                generator.writeFieldName(REQUEST);
+                writeRequest(generator, template, null, entry.contents());
+                generator.writeFieldName(METADATA);
+                generator.writeStartObject();
+                generator.writeFieldName(KEY);
+                generator.writeString(entry.key());
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            DataBufferUtils.release(buffer);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw e;
+        }
+        return buffer;
+    }
+
+    /**
+     * GenerateContentRequest 객체 하나 기록
+     */
+    private static void writeRequest(JsonGenerator generator, Template template, String cachedContent,
+            List<Turn> contents) throws IOException {
+        generator.writeStartObject();
+
+        if (cachedContent != null) {
+            generator.writeFieldName(CACHED_CONTENT);
+            generator.writeString(cachedContent);
+        } else {
+            generator.writeFieldName(SYSTEM_INSTRUCTION);
+            generator.writeRawValue(template.systemInstruction());
+        }
+
+        generator.writeFieldName(CONTENTS);
+        generator.writeStartArray();
+        for (Turn turn : contents) {
+            generator.writeStartObject();
+            generator.writeFieldName(ROLE);
+            generator.writeString(turn.role());
+            generator.writeFieldName(PARTS);
+            generator.writeStartArray();
+            generator.writeStartObject();
+            generator.writeFieldName(TEXT);
+            generator.writeString(turn.text());
+            generator.writeEndObject();
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+
+        generator.writeFieldName(GENERATION_CONFIG);
+        generator.writeRawValue(template.generationConfig());
+
+        generator.writeEndObject();
+    }
+
+    /**
+     * 버퍼 초기 크기 (부족하면 자동으로 늘어나지만, 대부분 한 번에 맞도록 추정)
+     */
+    private static int estimateSize(Template template, List<Turn> contents) {
+        int size = BASE_CAPACITY + template.generationConfig().charLength()
+                + template.systemInstruction().charLength();
+        for (Turn turn : contents) {
+            // 한글은 UTF-8로 3바이트
+            size += PER_TURN_OVERHEAD + turn.text().length() * 3;
+        }
+        return size;
+    }
+
+    /**
+     * 미리 인코딩된 고정 부분 (SerializedString은 UTF-8 바이트를 캐시해서 그대로 복사)
+     */
+    public record Template(String promptKey, SerializableString systemInstruction,
+            SerializableString generationConfig) {
+    }
+
+    /**
+     * 배치 요청 항목 하나 (key는 결과 매칭용)
+     */
+    public record BatchEntry(String key, List<Turn> contents) {
+    }
+}
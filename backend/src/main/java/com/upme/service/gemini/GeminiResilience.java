@@ -0,0 +1,495 @@
+package com.upme.service.gemini;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Gemini HTTP 호출 보호 계층
+ * - 시도별 타임아웃 + 전체 데드라인
+ * - 429/5xx/연결 오류/타임아웃은 지터 백오프로 재시도 (전역 재시도 예산 안에서만)
+ * - 선택적 헤징: p95 지연이 지나도 응답이 없으면 같은 요청을 하나 더 보내고 먼저 온 응답 사용
+ * - 서킷 브레이커: 최근 실패율이 높으면 일정 시간 즉시 거절 (503), 이후 한 번 시험 호출
+ * 상태는 gemini.client.* 메트릭으로 노출
+ */
+@Slf4j
+@Component
+public class GeminiResilience {
+
+    private final Duration attemptTimeout;
+    private final Duration deadline;
+    private final int maxRetries;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final boolean hedgeEnabled;
+    private final long hedgeMinDelayMs;
+
+    private final CircuitBreaker breaker;
+    private final RetryBudget retryBudget;
+    private final LatencyWindow latencies = new LatencyWindow(256);
+
+    private final Timer callTimer;
+    private final Counter retryCounter;
+    private final Counter hedgeCounter;
+    private final Counter rejectedCounter;
+    private final Counter budgetExhaustedCounter;
+
+    public GeminiResilience(
+            MeterRegistry meterRegistry,
+            @Value("${gemini.client.attempt-timeout-ms:15000}") long attemptTimeoutMs,
+            @Value("${gemini.client.deadline-ms:30000}") long deadlineMs,
+            @Value("${gemini.client.max-retries:2}") int maxRetries,
+            @Value("${gemini.client.backoff-base-ms:200}") long backoffBaseMs,
+            @Value("${gemini.client.backoff-max-ms:2000}") long backoffMaxMs,
+            @Value("${gemini.client.retry-budget.ratio:0.1}") double retryRatio,
+            @Value("${gemini.client.retry-budget.min-tokens:10}") int minRetryTokens,
+            @Value("${gemini.client.hedge.enabled:false}") boolean hedgeEnabled,
+            @Value("${gemini.client.hedge.min-delay-ms:1000}") long hedgeMinDelayMs,
+            @Value("${gemini.client.breaker.window-size:20}") int breakerWindowSize,
+            @Value("${gemini.client.breaker.failure-rate:0.5}") double breakerFailureRate,
+            @Value("${gemini.client.breaker.open-ms:30000}") long breakerOpenMs) {
+        this.attemptTimeout = Duration.ofMillis(attemptTimeoutMs);
+        this.deadline = Duration.ofMillis(deadlineMs);
+        this.maxRetries = maxRetries;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeMinDelayMs = hedgeMinDelayMs;
+        this.breaker = new CircuitBreaker(breakerWindowSize, breakerFailureRate,
+                TimeUnit.MILLISECONDS.toNanos(breakerOpenMs));
+        this.retryBudget = new RetryBudget(retryRatio, minRetryTokens);
+
+        this.callTimer = Timer.builder("gemini.client.calls")
+                .description("Gemini HTTP 시도별 지연")
+                .register(meterRegistry);
+        this.retryCounter = meterRegistry.counter("gemini.client.retries");
+        this.hedgeCounter = meterRegistry.counter("gemini.client.hedges");
+        this.rejectedCounter = meterRegistry.counter("gemini.client.breaker.rejected");
+        this.budgetExhaustedCounter = meterRegistry.counter("gemini.client.retry-budget.exhausted");
+        meterRegistry.gauge("gemini.client.breaker.state", breaker, b -> b.state().ordinal());
+        meterRegistry.gauge("gemini.client.retry-budget.tokens", retryBudget, RetryBudget::tokens);
+    }
+
+    /**
+     * 단일 응답 호출 (재시도 + 헤징 + 브레이커)
+     */
+    public <T> Mono<T> call(Supplier<Mono<T>> attempt) {
+        return Mono.defer(() -> {
+            // 재시도와 상관없이 호출 1번당 1번 적립
+            retryBudget.deposit();
+            Mono<T> once = hedgeEnabled ? hedged(attempt) : guarded(attempt);
+            return once.retryWhen(retrySpec(() -> true));
+        })
+                .timeout(deadline);
+    }
+
+    /**
+     * 스트리밍 호출 (첫 이벤트 전의 실패만 재시도, 이벤트 사이 대기에도 attempt-timeout 적용)
+     */
+    public <T> Flux<T> stream(Supplier<Flux<T>> attempt) {
+        return Flux.defer(() -> {
+            retryBudget.deposit();
+            AtomicBoolean emitted = new AtomicBoolean(false);
+            return guardedStream(attempt, emitted)
+                    .retryWhen(retrySpec(() -> !emitted.get()));
+        });
+    }
+
+    private <T> Mono<T> guarded(Supplier<Mono<T>> attempt) {
+        return Mono.defer(() -> {
+            if (!breaker.tryAcquire()) {
+                return Mono.error(openCircuitException());
+            }
+            long start = System.nanoTime();
+            return attempt.get()
+                    .timeout(attemptTimeout)
+                    .doOnSuccess(value -> recordSuccess(start))
+                    .doOnError(e -> recordFailure(start, e))
+                    .doOnCancel(breaker::releaseProbe);
+        });
+    }
+
+    private <T> Flux<T> guardedStream(Supplier<Flux<T>> attempt, AtomicBoolean emitted) {
+        return Flux.defer(() -> {
+            if (!breaker.tryAcquire()) {
+                return Flux.error(openCircuitException());
+            }
+            long start = System.nanoTime();
+            AtomicBoolean recorded = new AtomicBoolean(false);
+            return attempt.get()
+                    .timeout(Mono.delay(attemptTimeout), item -> Mono.delay(attemptTimeout))
+                    .doOnNext(item -> {
+                        // 첫 이벤트가 오면 업스트림은 정상으로 간주
+                        emitted.set(true);
+                        if (recorded.compareAndSet(false, true)) {
+                            recordSuccess(start);
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            recordSuccess(start);
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            recordFailure(start, e);
+                        }
+                    })
+                    .doOnCancel(breaker::releaseProbe);
+        });
+    }
+
+    /**
+     * 헤징: p95 지연이 지나도 응답이 없으면 재시도 예산 안에서 같은 요청을 하나 더 보냄
+     * 먼저 도착한 응답을 사용하고 나머지는 취소, 모두 실패하면 마지막 에러 전달
+     * 취소된 요청도 Gemini는 과금하지만 사용량은 이긴 응답 것만 집계됨 (GeminiUsageTracker 참고)
+     */
+    private <T> Mono<T> hedged(Supplier<Mono<T>> attempt) {
+        long delayMs = Math.max(hedgeMinDelayMs, latencies.p95Millis());
+
+        return Mono.create(sink -> {
+            Disposable.Composite running = Disposables.composite();
+            AtomicBoolean done = new AtomicBoolean(false);
+            AtomicInteger inFlight = new AtomicInteger(1);
+            sink.onDispose(running);
+
+            Runnable[] start = new Runnable[1];
+            start[0] = () -> running.add(guarded(attempt).subscribe(
+                    value -> {
+                        if (done.compareAndSet(false, true)) {
+                            sink.success(value);
+                        }
+                    },
+                    error -> {
+                        if (inFlight.decrementAndGet() == 0 && done.compareAndSet(false, true)) {
+                            sink.error(error);
+                        }
+                    },
+                    () -> {
+                        if (inFlight.decrementAndGet() == 0 && done.compareAndSet(false, true)) {
+                            sink.success();
+                        }
+                    }));
+
+            start[0].run();
+            running.add(Mono.delay(Duration.ofMillis(delayMs)).subscribe(tick -> {
+                if (done.get() || !retryBudget.tryWithdraw()) {
+                    return;
+                }
+                inFlight.incrementAndGet();
+                hedgeCounter.increment();
+                log.debug("Gemini 헤징 요청 전송 ({}ms 경과)", delayMs);
+                start[0].run();
+            }));
+        });
+    }
+
+    private Retry retrySpec(BooleanSupplier retryAllowed) {
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            Throwable failure = signal.failure();
+            long attempt = signal.totalRetries();
+
+            if (attempt >= maxRetries || !retryAllowed.getAsBoolean() || !isRetryable(failure)) {
+                return Mono.error(failure);
+            }
+            if (!retryBudget.tryWithdraw()) {
+                budgetExhaustedCounter.increment();
+                log.warn("Gemini 재시도 예산 소진, 재시도하지 않음: {}", failure.getMessage());
+                return Mono.error(failure);
+            }
+
+            // full jitter: 0 ~ min(max, base * 2^attempt)
+            long ceiling = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt, 16));
+            long backoff = ThreadLocalRandom.current().nextLong(ceiling + 1);
+            retryCounter.increment();
+            log.warn("Gemini 호출 재시도 {}/{} ({}ms 후): {}", attempt + 1, maxRetries, backoff, failure.getMessage());
+            return Mono.delay(Duration.ofMillis(backoff));
+        }));
+    }
+
+    private void recordSuccess(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        callTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        latencies.add(TimeUnit.NANOSECONDS.toMillis(elapsed));
+        breaker.onResult(true);
+    }
+
+    private void recordFailure(long startNanos, Throwable e) {
+        callTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        // 잘못된 요청(4xx)은 업스트림 장애가 아니므로 브레이커에 반영하지 않음
+        if (isRetryable(e)) {
+            breaker.onResult(false);
+        } else {
+            breaker.releaseProbe();
+        }
+    }
+
+    /**
+     * 재시도 대상: 429, 5xx, 연결 오류, 타임아웃
+     */
+    static boolean isRetryable(Throwable e) {
+        if (e instanceof GeminiApiException apiException) {
+            return apiException.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                    || apiException.getStatusCode().is5xxServerError();
+        }
+        return e instanceof WebClientRequestException || e instanceof TimeoutException;
+    }
+
+    private GeminiRejectedException openCircuitException() {
+        rejectedCounter.increment();
+        return new GeminiRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                "AI 서비스가 일시적으로 불안정합니다. 잠시 후 다시 시도해주세요.",
+                Math.max(1, TimeUnit.NANOSECONDS.toSeconds(breaker.remainingOpenNanos())));
+    }
+
+    /**
+     * 최근 window-size개 결과의 실패율로 판단하는 서킷 브레이커
+     */
+    static final class CircuitBreaker {
+
+        enum State {
+            CLOSED, OPEN, HALF_OPEN
+        }
+
+        private final boolean[] outcomes;
+        private final double failureRate;
+        private final long openNanos;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // lock으로 보호
+        private State state = State.CLOSED;
+        private int index = 0;
+        private int recorded = 0;
+        private int failures = 0;
+        private long openedAt = 0;
+        private boolean probeInFlight = false;
+
+        CircuitBreaker(int windowSize, double failureRate, long openNanos) {
+            this.outcomes = new boolean[windowSize];
+            this.failureRate = failureRate;
+            this.openNanos = openNanos;
+        }
+
+        boolean tryAcquire() {
+            lock.lock();
+            try {
+                if (state == State.OPEN) {
+                    if (System.nanoTime() - openedAt < openNanos) {
+                        return false;
+                    }
+                    state = State.HALF_OPEN;
+                    log.info("Gemini 서킷 브레이커 HALF_OPEN (시험 호출 1회 허용)");
+                }
+                if (state == State.HALF_OPEN) {
+                    if (probeInFlight) {
+                        return false;
+                    }
+                    probeInFlight = true;
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onResult(boolean success) {
+            lock.lock();
+            try {
+                if (state == State.HALF_OPEN) {
+                    probeInFlight = false;
+                    if (success) {
+                        reset();
+                        log.info("Gemini 서킷 브레이커 CLOSED");
+                    } else {
+                        open();
+                    }
+                    return;
+                }
+                if (state == State.OPEN) {
+                    return;
+                }
+
+                // 링 버퍼에 결과 기록 (가장 오래된 결과를 덮어씀)
+                if (recorded == outcomes.length) {
+                    if (!outcomes[index]) {
+                        failures--;
+                    }
+                } else {
+                    recorded++;
+                }
+                outcomes[index] = success;
+                if (!success) {
+                    failures++;
+                }
+                index = (index + 1) % outcomes.length;
+
+                if (recorded == outcomes.length && failures >= failureRate * outcomes.length) {
+                    open();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 시험 호출이 결과 없이 끝난 경우 (취소, 4xx) 다음 호출이 다시 시험할 수 있도록
+         */
+        void releaseProbe() {
+            lock.lock();
+            try {
+                probeInFlight = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        State state() {
+            lock.lock();
+            try {
+                return state;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long remainingOpenNanos() {
+            lock.lock();
+            try {
+                return state == State.OPEN ? Math.max(0, openNanos - (System.nanoTime() - openedAt)) : 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void open() {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            log.warn("Gemini 서킷 브레이커 OPEN ({}ms 동안 즉시 거절)", TimeUnit.NANOSECONDS.toMillis(openNanos));
+        }
+
+        private void reset() {
+            state = State.CLOSED;
+            Arrays.fill(outcomes, true);
+            index = 0;
+            recorded = 0;
+            failures = 0;
+        }
+    }
+
+    /**
+     * 전역 재시도 예산: 호출마다 ratio만큼 적립, 재시도/헤징마다 1개 사용 (최소 min-tokens까지는 항상 허용)
+     * 장애 중 재시도가 트래픽을 몇 배로 늘리지 않도록 재시도 비율을 호출 수의 ratio로 제한
+     */
+    static final class RetryBudget {
+
+        private static final long SCALE = 1000;
+
+        private final long depositMilli;
+        private final long maxMilli;
+        private final AtomicLong balance;
+
+        RetryBudget(double ratio, int minTokens) {
+            this.depositMilli = Math.round(ratio * SCALE);
+            this.maxMilli = minTokens * SCALE;
+            this.balance = new AtomicLong(maxMilli);
+        }
+
+        void deposit() {
+            balance.accumulateAndGet(depositMilli, (current, amount) -> Math.min(maxMilli, current + amount));
+        }
+
+        boolean tryWithdraw() {
+            while (true) {
+                long current = balance.get();
+                if (current < SCALE) {
+                    return false;
+                }
+                if (balance.compareAndSet(current, current - SCALE)) {
+                    return true;
+                }
+            }
+        }
+
+        double tokens() {
+            return (double) balance.get() / SCALE;
+        }
+    }
+
+    /**
+     * 최근 성공 호출 지연 (헤징 기준 p95 계산용, 모델 라우터/제공자 failover에서도 사용)
+     */
+    public static final class LatencyWindow {
+
+        private static final int MIN_SAMPLES = 20;
+
+        private final long[] samples;
+        private final ReentrantLock lock = new ReentrantLock();
+        private int index = 0;
+        private int count = 0;
+
+        public LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        public void add(long millis) {
+            lock.lock();
+            try {
+                samples[index] = millis;
+                index = (index + 1) % samples.length;
+                count = Math.min(count + 1, samples.length);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public long p95Millis() {
+            long[] copy;
+            lock.lock();
+            try {
+                if (count < MIN_SAMPLES) {
+                    return 0;
+                }
+                copy = Arrays.copyOf(samples, count);
+            } finally {
+                lock.unlock();
+            }
+            Arrays.sort(copy);
+            return copy[(int) Math.ceil(copy.length * 0.95) - 1];
+        }
+
+        /**
+         * 지금까지의 표본 버리기 (상태가 바뀐 뒤 새 표본으로만 다시 판단할 때)
+         */
+        public void clear() {
+            lock.lock();
+            try {
+                index = 0;
+                count = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.upme.service.gemini;
+
+/**
+ * Gemini가 응답은 했지만 사용할 수 없는 경우 (빈 candidates, 형식 오류 등)
+ * 메시지는 사용자에게 그대로 보여줄 수 있는 문장으로 작성한다.
+ */
+public class GeminiResponseException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public GeminiResponseException(String message) {
+        super(message);
+    }
+
+    public GeminiResponseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
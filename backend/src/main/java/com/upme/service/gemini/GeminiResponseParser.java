@@ -0,0 +1,231 @@
+package com.upme.service.gemini;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upme.service.ReplyStreamExtractor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gemini 응답 스트리밍 파서 (JsonNode 트리를 만들지 않고 필요한 값만 읽음)
+ * - readEnvelope: GenerateContentResponse에서 첫 번째 candidate의 텍스트와 finishReason, 토큰 사용량만 추출
+ * - readFields: 모델이 생성한 JSON 텍스트에서 지정한 최상위 문자열 필드만 추출
+ * - readBatch: 배치 작업 상태와 인라인 결과 (가끔 폴링하는 응답이라 트리로 읽음)
+ * 앞뒤에 붙은 설명 문장/코드 펜스는 무시하고, JSON이 잘리거나 깨진 경우에도 읽을 수 있는 필드는 살려낸다.
+ */
+@Slf4j
+@Component
+public class GeminiResponseParser {
+
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+
+    public GeminiResponseParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * 첫 번째 candidate의 parts[].text를 이어붙인 값 (candidate가 없으면 text는 null)
+     */
+    public Envelope readEnvelope(String responseJson) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(responseJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Gemini 응답이 JSON 객체가 아닙니다.");
+            }
+
+            String text = null;
+            String finishReason = null;
+            int promptTokens = 0;
+            int candidateTokens = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                if ("usageMetadata".equals(name) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.currentName();
+                        parser.nextToken();
+                        if ("promptTokenCount".equals(field)) {
+                            promptTokens = parser.getValueAsInt();
+                        } else if ("candidatesTokenCount".equals(field) || "thoughtsTokenCount".equals(field)) {
+                            // thinking 토큰도 출력 토큰으로 과금
+                            candidateTokens += parser.getValueAsInt();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    continue;
+                }
+
+                if (!"candidates".equals(name) || value != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.currentName();
+                        JsonToken fieldValue = parser.nextToken();
+                        if ("content".equals(field) && fieldValue == JsonToken.START_OBJECT) {
+                            text = readContentText(parser);
+                        } else if ("finishReason".equals(field)) {
+                            finishReason = parser.getValueAsString();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    // 두 번째 이후 candidate는 사용하지 않음
+                    for (JsonToken next = parser.nextToken(); next != null && next != JsonToken.END_ARRAY;
+                            next = parser.nextToken()) {
+                        parser.skipChildren();
+                    }
+                }
+            }
+            return new Envelope(text, finishReason, promptTokens, candidateTokens);
+        }
+    }
+
+    /**
+     * content.parts[].text 이어붙이기 (parts가 하나면 복사 없이 그대로 반환)
+     */
+    private String readContentText(JsonParser parser) throws IOException {
+        String first = null;
+        StringBuilder joined = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (!"parts".equals(field) || value != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String partField = parser.currentName();
+                    parser.nextToken();
+                    if (!"text".equals(partField)) {
+                        parser.skipChildren();
+                        continue;
+                    }
+
+                    String text = parser.getText();
+                    if (first == null) {
+                        first = text;
+                    } else {
+                        if (joined == null) {
+                            joined = new StringBuilder(first);
+                        }
+                        joined.append(text);
+                    }
+                }
+            }
+        }
+        return joined != null ? joined.toString() : first;
+    }
+
+    /**
+     * 모델이 생성한 텍스트에서 최상위 필드 값 추출
+     * JSON 객체가 전혀 없으면 빈 Map, 중간에 깨졌으면 그 전까지 읽은 필드 + 잘린 문자열 필드의 앞부분
+     */
+    public Map<String, String> readFields(String text, List<String> fieldNames) {
+        Map<String, String> fields = new HashMap<>();
+        int start = text == null ? -1 : text.indexOf('{');
+        if (start < 0) {
+            return fields;
+        }
+
+        try (StringReader reader = new StringReader(text);
+                JsonParser parser = jsonFactory.createParser(reader)) {
+            // 코드 펜스나 설명 문장은 건너뛰고 첫 '{'부터 읽음 (첫 객체가 끝나면 뒤쪽 텍스트는 읽지 않음)
+            reader.skip(start);
+            parser.nextToken();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                boolean wanted = fieldNames.contains(name) && value != null && value.isScalarValue()
+                        && value != JsonToken.VALUE_NULL;
+                if (wanted) {
+                    fields.put(name, parser.getValueAsString());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Gemini 응답 JSON이 완전하지 않아 읽을 수 있는 필드만 사용: {}", e.getMessage());
+            for (String name : fieldNames) {
+                if (!fields.containsKey(name)) {
+                    ReplyStreamExtractor extractor = new ReplyStreamExtractor(name);
+                    String value = extractor.append(text.substring(start));
+                    if (extractor.isFound()) {
+                        fields.put(name, value);
+                    }
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 배치 작업(Operation 또는 GenerateContentBatch) 응답 읽기
+     * 결과는 metadata.key별 GenerateContentResponse JSON, key가 없으면 요청 순서(0부터)를 key로 사용
+     */
+    public BatchStatus readBatch(String responseJson) throws IOException {
+        JsonNode root = objectMapper.readTree(responseJson);
+        JsonNode metadata = root.path("metadata");
+
+        String state = metadata.path("state").asText(root.path("state").asText(""));
+        boolean done = root.path("done").asBoolean(false) || state.endsWith("SUCCEEDED")
+                || state.endsWith("FAILED") || state.endsWith("CANCELLED") || state.endsWith("EXPIRED");
+
+        JsonNode inlined = root.path("response").path("inlinedResponses").path("inlinedResponses");
+        if (!inlined.isArray()) {
+            inlined = metadata.path("output").path("inlinedResponses").path("inlinedResponses");
+        }
+        if (!inlined.isArray()) {
+            inlined = root.path("output").path("inlinedResponses").path("inlinedResponses");
+        }
+
+        Map<String, String> responses = new LinkedHashMap<>();
+        Map<String, String> errors = new LinkedHashMap<>();
+        int index = 0;
+        for (JsonNode item : inlined) {
+            String key = item.path("metadata").path("key").asText(String.valueOf(index));
+            if (item.hasNonNull("response")) {
+                responses.put(key, item.get("response").toString());
+            } else {
+                errors.put(key, item.path("error").path("message").asText("알 수 없는 오류"));
+            }
+            index++;
+        }
+        return new BatchStatus(root.path("name").asText(null), state, done, responses, errors);
+    }
+
+    /**
+     * promptTokens/candidateTokens: usageMetadata가 없으면 0 (스트리밍은 마지막 이벤트에 전체 합계가 담김)
+     */
+    public record Envelope(String text, String finishReason, int promptTokens, int candidateTokens) {
+
+        public boolean hasUsage() {
+            return promptTokens > 0 || candidateTokens > 0;
+        }
+    }
+
+    /**
+     * name: batches/..., state: BATCH_STATE_PENDING / RUNNING / SUCCEEDED / FAILED / CANCELLED / EXPIRED
+     */
+    public record BatchStatus(String name, String state, boolean done, Map<String, String> responses, Map<String, String> errors) {
+    }
+}
@@ -0,0 +1,129 @@
+package com.upme.service.gemini;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gemini 트래픽 녹화 (gemini.traffic.mode=record)
+ * WebClient 필터로 요청 바디와 응답 조각을 도착 시각과 함께 gemini.traffic.dir에 파일로 저장
+ * 저장된 파일은 GeminiReplayServer(gemini-replay 프로필)가 같은 지연으로 다시 재생한다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "gemini.traffic.mode", havingValue = "record")
+public class GeminiTrafficRecorder implements ExchangeFilterFunction {
+
+    private final ObjectMapper objectMapper;
+    private final Scheduler blockingScheduler;
+    private final Path directory;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public GeminiTrafficRecorder(
+            ObjectMapper objectMapper,
+            Scheduler blockingScheduler,
+            @Value("${gemini.traffic.dir:gemini-traffic}") String directory) throws IOException {
+        this.objectMapper = objectMapper;
+        this.blockingScheduler = blockingScheduler;
+        this.directory = Files.createDirectories(Path.of(directory));
+        log.warn("Gemini 트래픽 녹화 중: {} (요청/응답 원문이 저장됩니다)", this.directory.toAbsolutePath());
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        long start = System.nanoTime();
+        ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+
+        // 바디를 전송하면서 같은 바이트를 복사
+        ClientRequest teed = ClientRequest.from(request)
+                .body((outputMessage, context) -> request.body().insert(new ClientHttpRequestDecorator(outputMessage) {
+                    @Override
+                    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                        return super.writeWith(Flux.from(body).doOnNext(buffer -> copy(buffer, requestBody)));
+                    }
+                }, context))
+                .build();
+
+        return next.exchange(teed).map(response -> {
+            long headersMs = elapsedMs(start);
+            ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+            List<GeminiTrafficRecording.Chunk> chunks = new ArrayList<>();
+
+            return response.mutate()
+                    .body(body -> body
+                            .doOnNext(buffer -> {
+                                copy(buffer, responseBody);
+                                chunks.add(new GeminiTrafficRecording.Chunk(elapsedMs(start), responseBody.size()));
+                            })
+                            .doOnComplete(() -> save(new GeminiTrafficRecording(
+                                    routeOf(request),
+                                    GeminiTrafficRecording.hash(requestBody.toByteArray()),
+                                    requestBody.toString(StandardCharsets.UTF_8),
+                                    response.statusCode().value(),
+                                    response.headers().asHttpHeaders().getFirst(HttpHeaders.CONTENT_TYPE),
+                                    headersMs,
+                                    chunks,
+                                    responseBody.toString(StandardCharsets.UTF_8),
+                                    LocalDateTime.now().toString()))))
+                    .build();
+        });
+    }
+
+    private void save(GeminiTrafficRecording recording) {
+        String fileName = String.format("%06d-%s.json", sequence.incrementAndGet(), recording.requestHash().substring(0, 12));
+        blockingScheduler.schedule(() -> {
+            try {
+                objectMapper.writerWithDefaultPrettyPrinter().writeValue(directory.resolve(fileName).toFile(), recording);
+                log.debug("Gemini 트래픽 녹화: {} → {}", recording.route(), fileName);
+            } catch (IOException e) {
+                log.warn("Gemini 트래픽 녹화 저장 실패: {}", e.getMessage());
+            }
+        });
+    }
+
+    private static String routeOf(ClientRequest request) {
+        URI url = request.url();
+        String pathAndQuery = url.getRawQuery() == null ? url.getRawPath() : url.getRawPath() + "?" + url.getRawQuery();
+        return GeminiTrafficRecording.routeOf(request.method().name(), pathAndQuery);
+    }
+
+    /**
+     * 읽기 위치를 바꾸지 않고 버퍼 내용 복사 (원래 소비자가 그대로 읽을 수 있도록)
+     */
+    private static void copy(DataBuffer buffer, ByteArrayOutputStream target) {
+        int position = buffer.readPosition();
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        buffer.readPosition(position);
+        target.writeBytes(bytes);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,55 @@
+package com.upme.service.gemini;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 녹화된 Gemini 요청/응답 한 쌍 (gemini.traffic.dir 아래 JSON 파일 하나)
+ * - route: 메서드 + 경로 (API 키 쿼리 파라미터는 저장하지 않음)
+ * - requestHash: 요청 바디 SHA-256 (재생 시 같은 요청이면 같은 응답)
+ * - headersMs: 요청 시작부터 응답 헤더까지, chunks[].atMs: 요청 시작부터 각 조각 도착까지
+ * - chunks[].end: responseBody(UTF-8 바이트)에서 해당 조각이 끝나는 위치 (스트리밍 응답을 같은 단위로 재생)
+ */
+public record GeminiTrafficRecording(
+        String route,
+        String requestHash,
+        String requestBody,
+        int status,
+        String contentType,
+        long headersMs,
+        List<Chunk> chunks,
+        String responseBody,
+        String recordedAt) {
+
+    private static final Pattern API_KEY_PARAM = Pattern.compile("([?&])key=[^&]*&?");
+
+    public record Chunk(long atMs, int end) {
+    }
+
+    /**
+     * 요청 경로에서 API 키를 뺀 재생 매칭 키 (예: "POST /v1beta/models/gemini-2.0-flash:generateContent")
+     */
+    public static String routeOf(String method, String pathAndQuery) {
+        String withoutKey = API_KEY_PARAM.matcher(pathAndQuery).replaceAll("$1");
+        if (withoutKey.endsWith("?") || withoutKey.endsWith("&")) {
+            withoutKey = withoutKey.substring(0, withoutKey.length() - 1);
+        }
+        return method + " " + withoutKey;
+    }
+
+    public static String hash(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256을 사용할 수 없습니다.", e);
+        }
+    }
+
+    public byte[] responseBytes() {
+        return responseBody == null ? new byte[0] : responseBody.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,347 @@
+package com.upme.service.gemini;
+
+import com.upme.security.CallerKeys;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 호출자별 Gemini 토큰 사용량 집계 + 일/월 한도
+ * - 응답의 usageMetadata(prompt/candidates 토큰 수)를 호출자 키("user:{id}" / "ip:{주소}")별 LongAdder에 누적
+ * - flush-interval-ms마다 쌓인 값을 gemini_usage 테이블에 배치 upsert (요청 경로에서는 DB를 건드리지 않음)
+ * - 한도 확인은 메모리의 오늘/이번 달 합계로 판단하고, 시작 시 이번 달 사용량을 테이블에서 불러옴
+ * - flush 때 지난달 합계와 오늘 쓰지 않은(저장할 것도 없는) 호출자의 합계는 메모리에서 제거
+ *   제거된 호출자가 다시 오면 한도 확인 전에 그 호출자의 이번 달 사용량만 테이블에서 다시 불러옴
+ * 인스턴스별 합계이므로 여러 인스턴스로 띄우면 한도는 인스턴스 수만큼 느슨해진다.
+ * 헤징(gemini.client.hedge.enabled)으로 취소된 요청도 Gemini는 과금하지만 응답을 받지 못해 사용량을 알 수 없으므로
+ * 이긴 요청의 사용량만 기록된다. 헤징을 켜면 실제 과금보다 최대 gemini.client.hedges 건수만큼 적게 집계된다.
+ */
+@Slf4j
+@Component
+public class GeminiUsageTracker {
+
+    private static final String UPSERT_SQL = "INSERT INTO gemini_usage "
+            + "(caller_key, usage_date, prompt_tokens, candidate_tokens, calls, updated_at) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE prompt_tokens = prompt_tokens + VALUES(prompt_tokens), "
+            + "candidate_tokens = candidate_tokens + VALUES(candidate_tokens), "
+            + "calls = calls + VALUES(calls), updated_at = VALUES(updated_at)";
+    private static final String MONTH_USAGE_SQL = "SELECT caller_key, usage_date, prompt_tokens + candidate_tokens "
+            + "FROM gemini_usage WHERE usage_date >= ?";
+    private static final String CALLER_MONTH_USAGE_SQL = "SELECT usage_date, prompt_tokens + candidate_tokens "
+            + "FROM gemini_usage WHERE caller_key = ? AND usage_date >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean quotaEnabled;
+    private final long userDailyTokens;
+    private final long userMonthlyTokens;
+    private final long anonymousDailyTokens;
+    private final long anonymousMonthlyTokens;
+    private final ZoneId zone;
+
+    // 아직 테이블에 저장하지 않은 사용량 (호출자 + 날짜별)
+    private final Map<UsageKey, Counters> pending = new ConcurrentHashMap<>();
+    // 한도 확인용 오늘/이번 달 합계
+    private final Map<String, Totals> totals = new ConcurrentHashMap<>();
+
+    public GeminiUsageTracker(
+            JdbcTemplate jdbcTemplate,
+            @Value("${gemini.quota.enabled:true}") boolean quotaEnabled,
+            @Value("${gemini.quota.user.daily-tokens:200000}") long userDailyTokens,
+            @Value("${gemini.quota.user.monthly-tokens:3000000}") long userMonthlyTokens,
+            @Value("${gemini.quota.anonymous.daily-tokens:20000}") long anonymousDailyTokens,
+            @Value("${gemini.quota.anonymous.monthly-tokens:200000}") long anonymousMonthlyTokens,
+            @Value("${gemini.usage.zone:Asia/Seoul}") String zone) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.quotaEnabled = quotaEnabled;
+        this.userDailyTokens = userDailyTokens;
+        this.userMonthlyTokens = userMonthlyTokens;
+        this.anonymousDailyTokens = anonymousDailyTokens;
+        this.anonymousMonthlyTokens = anonymousMonthlyTokens;
+        this.zone = ZoneId.of(zone);
+    }
+
+    /**
+     * 호출 1건의 토큰 사용량 기록
+     */
+    public void record(String callerKey, long promptTokens, long candidateTokens) {
+        LocalDate today = LocalDate.now(zone);
+
+        Counters counters = pending.computeIfAbsent(new UsageKey(callerKey, today), key -> new Counters());
+        counters.promptTokens.add(promptTokens);
+        counters.candidateTokens.add(candidateTokens);
+        counters.calls.increment();
+
+        addTotals(callerKey, today, promptTokens + candidateTokens, true);
+    }
+
+    /**
+     * 한도를 넘은 호출자면 429 예외(Retry-After: 다음 날 또는 다음 달 0시까지), 아니면 null
+     * Gemini를 호출하기 전에 확인한다.
+     */
+    public GeminiRejectedException quotaRejection(String callerKey) {
+        if (!quotaEnabled) {
+            return null;
+        }
+
+        boolean anonymous = CallerKeys.isAnonymous(callerKey);
+        long dailyLimit = anonymous ? anonymousDailyTokens : userDailyTokens;
+        long monthlyLimit = anonymous ? anonymousMonthlyTokens : userMonthlyTokens;
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        Totals current = totalsFor(callerKey, now.toLocalDate());
+        if (!current.loaded) {
+            current = loadCallerUsage(callerKey, now.toLocalDate());
+        }
+
+        if (monthlyLimit > 0 && current.monthTokens.sum() >= monthlyLimit) {
+            ZonedDateTime nextMonth = now.toLocalDate().withDayOfMonth(1).plusMonths(1).atStartOfDay(zone);
+            log.warn("Gemini 월 사용량 한도 초과: caller={}", callerKey);
+            return new GeminiRejectedException(HttpStatus.TOO_MANY_REQUESTS,
+                    "이번 달 AI 사용량 한도를 모두 사용했습니다.", secondsUntil(now, nextMonth));
+        }
+        if (dailyLimit > 0 && current.dayTokens.sum() >= dailyLimit) {
+            ZonedDateTime tomorrow = now.toLocalDate().plusDays(1).atStartOfDay(zone);
+            log.warn("Gemini 일 사용량 한도 초과: caller={}", callerKey);
+            return new GeminiRejectedException(HttpStatus.TOO_MANY_REQUESTS,
+                    "오늘 AI 사용량 한도를 모두 사용했습니다. 내일 다시 이용해주세요.", secondsUntil(now, tomorrow));
+        }
+        return null;
+    }
+
+    /**
+     * 시작 시 이번 달 사용량을 불러와 한도 계산에 반영
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadMonthUsage() {
+        LocalDate today = LocalDate.now(zone);
+        Map<String, long[]> usage = new HashMap<>();
+        try {
+            jdbcTemplate.query(MONTH_USAGE_SQL, rs -> {
+                long[] sums = usage.computeIfAbsent(rs.getString(1), key -> new long[2]);
+                long tokens = rs.getLong(3);
+                sums[0] += tokens;
+                if (today.equals(rs.getObject(2, LocalDate.class))) {
+                    sums[1] += tokens;
+                }
+            }, today.withDayOfMonth(1));
+        } catch (DataAccessException e) {
+            log.warn("Gemini 사용량을 불러오지 못했습니다 (한도는 지금부터 집계): {}", e.getMessage());
+            return;
+        }
+        usage.forEach((callerKey, sums) -> mergeLoaded(callerKey, today, sums[0], sums[1]));
+        log.info("Gemini 사용량 불러옴: 이번 달 호출자 {}명", usage.size());
+    }
+
+    /**
+     * 쌓인 사용량을 배치 upsert
+     * sum 후 같은 값을 빼는 방식이라 저장 중에 들어온 사용량은 다음 주기로 넘어감 (유실 없음)
+     */
+    @Scheduled(fixedDelayString = "${gemini.usage.flush-interval-ms:30000}")
+    public void flush() {
+        LocalDate today = LocalDate.now(zone);
+        List<Object[]> rows = new ArrayList<>();
+        List<Drained> drained = new ArrayList<>();
+
+        for (Map.Entry<UsageKey, Counters> entry : pending.entrySet()) {
+            UsageKey key = entry.getKey();
+            Counters counters = entry.getValue();
+            long prompt = counters.promptTokens.sum();
+            long candidate = counters.candidateTokens.sum();
+            long calls = counters.calls.sum();
+
+            if (calls == 0) {
+                // 지난 날짜 항목은 더 이상 쌓이지 않으므로 제거
+                if (!today.equals(key.date())) {
+                    pending.remove(key, counters);
+                }
+                continue;
+            }
+
+            counters.promptTokens.add(-prompt);
+            counters.candidateTokens.add(-candidate);
+            counters.calls.add(-calls);
+            rows.add(new Object[] {key.callerKey(), key.date(), prompt, candidate, calls, LocalDateTime.now(zone)});
+            drained.add(new Drained(key, prompt, candidate, calls));
+        }
+
+        if (rows.isEmpty()) {
+            evictIdleTotals(today);
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+            log.debug("Gemini 사용량 저장: {}건", rows.size());
+        } catch (DataAccessException e) {
+            log.warn("Gemini 사용량 저장 실패, 다음 주기에 다시 저장: {}", e.getMessage());
+            for (Drained item : drained) {
+                Counters counters = pending.computeIfAbsent(item.key(), key -> new Counters());
+                counters.promptTokens.add(item.promptTokens());
+                counters.candidateTokens.add(item.candidateTokens());
+                counters.calls.add(item.calls());
+            }
+        } finally {
+            evictIdleTotals(today);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * 지난달 합계, 오늘 기록이 없고 아직 저장하지 않은 사용량도 없는 호출자의 합계 제거 (다시 오면 테이블에서 불러옴)
+     * 그 사이 record()가 새 Totals로 바꿨으면 조건부 제거라 지워지지 않음
+     */
+    private void evictIdleTotals(LocalDate today) {
+        YearMonth month = YearMonth.from(today);
+        Set<String> unflushed = new HashSet<>();
+        pending.forEach((key, counters) -> {
+            if (counters.calls.sum() != 0) {
+                unflushed.add(key.callerKey());
+            }
+        });
+
+        int before = totals.size();
+        totals.entrySet().removeIf(entry -> !YearMonth.from(entry.getValue().day).equals(month)
+                || (!entry.getValue().day.equals(today) && !unflushed.contains(entry.getKey())));
+        int evicted = before - totals.size();
+        if (evicted > 0) {
+            log.debug("Gemini 사용량 합계 제거: {}명 (남은 호출자 {}명)", evicted, totals.size());
+        }
+    }
+
+    /**
+     * 메모리에 없던(처음 보거나 제거된) 호출자의 이번 달 사용량을 테이블에서 불러와 합침
+     * 불러오기 전에 기록된 사용량이 그 사이 저장됐다면 조금 많게 집계됨 (한도 쪽으로 보수적)
+     */
+    private Totals loadCallerUsage(String callerKey, LocalDate today) {
+        long[] sums = new long[2];
+        try {
+            jdbcTemplate.query(CALLER_MONTH_USAGE_SQL, rs -> {
+                long tokens = rs.getLong(2);
+                sums[0] += tokens;
+                if (today.equals(rs.getObject(1, LocalDate.class))) {
+                    sums[1] += tokens;
+                }
+            }, callerKey, today.withDayOfMonth(1));
+        } catch (DataAccessException e) {
+            log.warn("Gemini 사용량을 불러오지 못했습니다 (다음 호출에 다시 시도): caller={}, {}", callerKey, e.getMessage());
+            return totalsFor(callerKey, today);
+        }
+        return mergeLoaded(callerKey, today, sums[0], sums[1]);
+    }
+
+    /**
+     * 테이블에서 불러온 사용량을 한 번만 더함 (이미 불러온 합계면 그대로)
+     */
+    private Totals mergeLoaded(String callerKey, LocalDate today, long monthTokens, long dayTokens) {
+        return totals.compute(callerKey, (key, existing) -> {
+            Totals current = existing == null ? new Totals(today)
+                    : existing.day.equals(today) ? existing : existing.rollTo(today);
+            if (!current.loaded) {
+                current.monthTokens.add(monthTokens);
+                current.dayTokens.add(dayTokens);
+                current.loaded = true;
+            }
+            return current;
+        });
+    }
+
+    /**
+     * 날짜 전환(rollTo)과 같은 compute 안에서 더함
+     * 밖에서 더하면 rollTo가 월 합계를 복사한 뒤의 값이 버려지는 옛 Totals에 들어가 유실될 수 있음
+     */
+    private void addTotals(String callerKey, LocalDate today, long tokens, boolean includeDay) {
+        totals.compute(callerKey, (key, existing) -> {
+            Totals current = existing == null ? new Totals(today)
+                    : existing.day.equals(today) ? existing : existing.rollTo(today);
+            current.monthTokens.add(tokens);
+            if (includeDay) {
+                current.dayTokens.add(tokens);
+            }
+            return current;
+        });
+    }
+
+    private Totals totalsFor(String callerKey, LocalDate today) {
+        Totals current = totals.get(callerKey);
+        if (current != null && current.day.equals(today)) {
+            return current;
+        }
+        return totals.compute(callerKey, (key, existing) -> {
+            if (existing == null) {
+                return new Totals(today);
+            }
+            return existing.day.equals(today) ? existing : existing.rollTo(today);
+        });
+    }
+
+    private static long secondsUntil(ZonedDateTime now, ZonedDateTime until) {
+        return Math.max(1, Duration.between(now, until).toSeconds());
+    }
+
+    private record UsageKey(String callerKey, LocalDate date) {
+    }
+
+    private record Drained(UsageKey key, long promptTokens, long candidateTokens, long calls) {
+    }
+
+    /**
+     * LongAdder는 스레드 경합 시 셀을 나눠 누적하므로 같은 호출자에 동시 기록이 몰려도 CAS 재시도가 적음
+     */
+    private static final class Counters {
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder candidateTokens = new LongAdder();
+        private final LongAdder calls = new LongAdder();
+    }
+
+    private static final class Totals {
+        private final LocalDate day;
+        private final LongAdder dayTokens = new LongAdder();
+        private final LongAdder monthTokens = new LongAdder();
+        // 테이블의 이번 달 사용량을 합쳤는지 (compute 안에서만 변경)
+        private volatile boolean loaded;
+
+        private Totals(LocalDate day) {
+            this.day = day;
+        }
+
+        /**
+         * 날짜가 바뀌면 일 합계는 0부터, 같은 달이면 월 합계는 이어서
+         */
+        private Totals rollTo(LocalDate today) {
+            Totals next = new Totals(today);
+            if (YearMonth.from(day).equals(YearMonth.from(today))) {
+                next.monthTokens.add(monthTokens.sum());
+                next.loaded = loaded;
+            } else {
+                // 새 달의 사용량은 이 인스턴스에서 모두 메모리에 더한 뒤 저장되므로 다시 불러올 필요 없음
+                next.loaded = true;
+            }
+            return next;
+        }
+    }
+}
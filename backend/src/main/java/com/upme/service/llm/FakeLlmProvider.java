@@ -0,0 +1,147 @@
+package com.upme.service.llm;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 프로세스 내 가짜 제공자 (llm.fake.enabled=true, 또는 테스트에서 직접 생성)
+ * 네트워크 없이 정해진 지연/실패율로 응답해서 failover, 스케줄러, 스트리밍 경로를 재현할 때 사용
+ * - JSON 프롬프트면 첫 필드에 reply, 나머지 필드는 빈 문자열인 JSON 객체로 응답
+ * - setAvailable(false)면 모든 호출과 상태 확인이 503으로 실패 (장애 상황 재현)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "llm.fake.enabled", havingValue = "true")
+public class FakeLlmProvider implements LlmProvider {
+
+    private static final int STREAM_CHUNK_CHARS = 8;
+
+    private final String name;
+    private final String reply;
+    private final String quotedReply;
+    private volatile long latencyMs;
+    private volatile long chunkIntervalMs;
+    private volatile double failureRate;
+    private volatile boolean available = true;
+
+    public FakeLlmProvider(
+            @Value("${llm.fake.name:fake}") String name,
+            @Value("${llm.fake.reply:This is a test reply.}") String reply,
+            @Value("${llm.fake.latency-ms:200}") long latencyMs,
+            @Value("${llm.fake.chunk-interval-ms:20}") long chunkIntervalMs,
+            @Value("${llm.fake.failure-rate:0}") double failureRate) {
+        this.name = name;
+        this.reply = reply;
+        this.quotedReply = new String(JsonStringEncoder.getInstance().quoteAsString(reply));
+        this.latencyMs = latencyMs;
+        this.chunkIntervalMs = chunkIntervalMs;
+        this.failureRate = failureRate;
+        log.warn("가짜 LLM 제공자 사용 중: {} (지연 {}ms, 실패율 {})", name, latencyMs, failureRate);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Mono<LlmResult> generate(LlmPrompt prompt) {
+        return Mono.delay(Duration.ofMillis(latencyMs))
+                .flatMap(tick -> {
+                    if (shouldFail()) {
+                        return Mono.error(failure());
+                    }
+                    String text = responseText(prompt);
+                    return Mono.just(new LlmResult(name, text, "STOP", promptTokens(prompt), tokens(text)));
+                });
+    }
+
+    @Override
+    public Flux<LlmResult> stream(LlmPrompt prompt) {
+        return Mono.delay(Duration.ofMillis(latencyMs))
+                .flatMapMany(tick -> {
+                    if (shouldFail()) {
+                        return Flux.error(failure());
+                    }
+                    String text = responseText(prompt);
+                    List<String> chunks = new ArrayList<>();
+                    for (int i = 0; i < text.length(); i += STREAM_CHUNK_CHARS) {
+                        chunks.add(text.substring(i, Math.min(text.length(), i + STREAM_CHUNK_CHARS)));
+                    }
+                    int promptTokens = promptTokens(prompt);
+                    return Flux.fromIterable(chunks)
+                            .delayElements(Duration.ofMillis(chunkIntervalMs))
+                            .map(chunk -> new LlmResult(name, chunk, null, 0, 0))
+                            .concatWith(Mono.just(new LlmResult(name, "", "STOP", promptTokens, tokens(text))));
+                });
+    }
+
+    @Override
+    public Mono<Void> healthCheck() {
+        return available ? Mono.empty() : Mono.error(failure());
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    public void setLatencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    private boolean shouldFail() {
+        return !available || ThreadLocalRandom.current().nextDouble() < failureRate;
+    }
+
+    private LlmApiException failure() {
+        return new LlmApiException(name, HttpStatus.SERVICE_UNAVAILABLE, "fake provider unavailable");
+    }
+
+    private String responseText(LlmPrompt prompt) {
+        if (!prompt.options().json()) {
+            return reply;
+        }
+        StringBuilder json = new StringBuilder("{");
+        List<String> fields = prompt.options().jsonFields();
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(fields.get(i)).append("\":\"")
+                    .append(i == 0 ? quotedReply : "")
+                    .append('"');
+        }
+        return json.append('}').toString();
+    }
+
+    private static int promptTokens(LlmPrompt prompt) {
+        int chars = prompt.systemPrompt().length();
+        for (LlmPrompt.Turn turn : prompt.contents()) {
+            chars += turn.text().length();
+        }
+        return tokens(chars);
+    }
+
+    private static int tokens(String text) {
+        return tokens(text.length());
+    }
+
+    private static int tokens(int chars) {
+        return Math.max(1, chars / 4);
+    }
+}
@@ -0,0 +1,28 @@
+package com.upme.service.llm;
+
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * Gemini 이외의 제공자 API가 4xx/5xx로 응답한 경우
+ */
+public class LlmApiException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String provider;
+    private final HttpStatusCode statusCode;
+
+    public LlmApiException(String provider, HttpStatusCode statusCode, String body) {
+        super(provider + " API error " + statusCode + ": " + body);
+        this.provider = provider;
+        this.statusCode = statusCode;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public HttpStatusCode getStatusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,36 @@
+package com.upme.service.llm;
+
+import java.util.List;
+
+/**
+ * 제공자와 무관한 생성 요청
+ * - promptKey: 고정 시스템 프롬프트 식별자 (제공자별 템플릿/컨텍스트 캐시 키)
+ * - model: 모델 지정 (null이면 제공자 기본 모델, Gemini 이외의 제공자는 자기 설정 모델 사용)
+ * - contents: 요약/히스토리/사용자 메시지 순서의 대화
+ */
+public record LlmPrompt(String promptKey, String systemPrompt, Options options, List<Turn> contents, String model) {
+
+    /**
+     * 생성 옵션 (jsonFields가 있으면 해당 문자열 필드만 가진 JSON 객체로 응답하도록 요청, 순서대로 생성)
+     */
+    public record Options(double temperature, int maxOutputTokens, List<String> jsonFields) {
+
+        public boolean json() {
+            return jsonFields != null && !jsonFields.isEmpty();
+        }
+    }
+
+    /**
+     * 대화 메시지 하나 (role: "user" 또는 "model")
+     */
+    public record Turn(String role, String text) {
+
+        public Turn {
+            text = text == null ? "" : text;
+        }
+
+        public boolean isUser() {
+            return "user".equals(role);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.upme.service.llm;
+
+import com.upme.dto.request.ChatRequest;
+import com.upme.dto.request.CodeReviewRequest;
+import com.upme.service.llm.LlmPrompt.Options;
+import com.upme.service.llm.LlmPrompt.Turn;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 프롬프트 조립 (시스템 프롬프트 + 대화 contents + 생성 옵션)
+ * 제공자와 무관한 LlmPrompt를 만들고, 전송 형식은 각 LlmProvider가 결정
+ * 고정 시스템 프롬프트는 시작할 때 한 번만 만들어 재사용
+ */
+@Component
+public class LlmPrompts {
+
+    public static final String CODE_REVIEW_PROMPT_KEY = "code-review";
+    public static final String SUMMARY_PROMPT_KEY = "conversation-summary";
+
+    public static final List<String> CHAT_FIELDS = List.of("reply", "feedback");
+    public static final List<String> CODE_REVIEW_FIELDS = List.of(
+            "summary", "strengths", "improvements", "timeComplexity", "tips");
+
+    private static final Options CHAT_OPTIONS = new Options(0.8, 1024, CHAT_FIELDS);
+    private static final Options CODE_REVIEW_OPTIONS = new Options(0.7, 2048, CODE_REVIEW_FIELDS);
+    private static final Options SUMMARY_OPTIONS = new Options(0.2, 512, null);
+
+    private final Map<String, String> chatSystemPrompts = new LinkedHashMap<>();
+    private final String codeReviewPrompt = buildCodeReviewPrompt();
+    private final String summaryPrompt = buildSummaryPrompt();
+
+    public LlmPrompts() {
+        for (int topicId = 0; topicId <= 6; topicId++) {
+            chatSystemPrompts.put(chatPromptKey(topicId), buildSystemPrompt(topicId));
+        }
+    }
+
+    /**
+     * 회화 턴 (model: 라우터가 고른 모델, null이면 제공자 기본 모델)
+     */
+    public LlmPrompt chat(ChatRequest request, String model) {
+        String promptKey = chatPromptKey(request.getTopicId());
+        return new LlmPrompt(promptKey, chatSystemPrompts.get(promptKey), CHAT_OPTIONS, buildContents(request), model);
+    }
+
+    /**
+     * 이전 요약 + 오래된 메시지들을 새 요약으로 합치는 요청
+     */
+    public LlmPrompt summary(String previousSummary, List<ChatRequest.MessageItem> messages) {
+        StringBuilder transcript = new StringBuilder();
+        if (previousSummary != null && !previousSummary.isBlank()) {
+            transcript.append("PREVIOUS SUMMARY:\n").append(previousSummary).append("\n\n");
+        }
+        transcript.append("NEW MESSAGES:\n");
+        for (ChatRequest.MessageItem item : messages) {
+            transcript.append("user".equals(item.getRole()) ? "User: " : "AI: ")
+                    .append(item.getContent())
+                    .append('\n');
+        }
+
+        return new LlmPrompt(SUMMARY_PROMPT_KEY, summaryPrompt, SUMMARY_OPTIONS,
+                List.of(new Turn("user", transcript.toString())), null);
+    }
+
+    /**
+     * 코드 리뷰 요청
+     */
+    public LlmPrompt codeReview(CodeReviewRequest request) {
+        return new LlmPrompt(CODE_REVIEW_PROMPT_KEY, codeReviewPrompt, CODE_REVIEW_OPTIONS,
+                buildCodeReviewContents(request), null);
+    }
+
+    /**
+     * 주제별 회화 시스템 프롬프트 (프롬프트 키 → 프롬프트)
+     */
+    public Map<String, String> chatSystemPrompts() {
+        return Collections.unmodifiableMap(chatSystemPrompts);
+    }
+
+    /**
+     * 회화 이외의 고정 시스템 프롬프트 (코드 리뷰, 대화 요약)
+     */
+    public Map<String, String> taskSystemPrompts() {
+        return Map.of(CODE_REVIEW_PROMPT_KEY, codeReviewPrompt, SUMMARY_PROMPT_KEY, summaryPrompt);
+    }
+
+    /**
+     * 주제별 프롬프트 키 (1~6 이외의 주제는 기본 프롬프트를 공유)
+     */
+    private static String chatPromptKey(int topicId) {
+        return "chat-topic-" + (topicId >= 1 && topicId <= 6 ? topicId : 0);
+    }
+
+    /**
+     * 주제별 시스템 프롬프트 생성
+     */
+    private static String buildSystemPrompt(int topicId) {
+        String basePrompt = """
+                You are a friendly and helpful English conversation partner for Korean learners.
+
+                RULES:
+                1. Always reply to the user IN ENGLISH for the conversation part.
+                2. If the user makes grammar mistakes, vocabulary errors, or unnatural expressions, provide feedback IN KOREAN.
+                3. Keep your English replies natural, encouraging, and at an intermediate level.
+                4. If the user's English is perfect, leave feedback empty.
+                5. Be conversational and ask follow-up questions to keep the chat going.
+
+                You MUST respond in the following JSON format ONLY (no markdown, no code blocks):
+                {"reply": "Your English conversation response here", "feedback": "한국어로 문법/단어 피드백 (없으면 빈 문자열)"}
+
+                IMPORTANT: Output ONLY the JSON object. No other text before or after it.
+                """;
+
+        String topicContext = switch (topicId) {
+            case 1 -> "\nTOPIC: Daily conversation (일상 대화) - Talk about everyday life, hobbies, weather, food, etc.";
+            case 2 -> "\nTOPIC: Travel (여행) - Discuss travel plans, experiences, destinations, and travel tips.";
+            case 3 ->
+                "\nTOPIC: Business (비즈니스) - Practice business meetings, email writing, and professional communication.";
+            case 4 ->
+                "\nTOPIC: Job Interview (면접 준비) - Practice common interview questions and professional responses.";
+            case 5 ->
+                "\nTOPIC: Tech Discussion (기술 토론) - Discuss programming, technology trends, and software development.";
+            case 6 -> "\nTOPIC: Free Topic (자유 주제) - Talk about anything the user wants.";
+            default -> "\nTOPIC: Free conversation - Talk about anything.";
+        };
+
+        return basePrompt + topicContext;
+    }
+
+    /**
+     * 회화 요청 contents 구성 (시스템 프롬프트와 생성 옵션은 LlmPrompt에 따로 포함)
+     */
+    private static List<Turn> buildContents(ChatRequest request) {
+        // Conversation history + current message
+        List<ChatRequest.MessageItem> history = request.getHistory();
+        List<Turn> contents = new ArrayList<>((history != null ? history.size() : 0) + 3);
+
+        // Add summary of older turns (히스토리 윈도우 밖으로 밀려난 대화)
+        if (request.getSummary() != null && !request.getSummary().isBlank()) {
+            contents.add(new Turn("user",
+                    "Summary of our earlier conversation (for context only):\n" + request.getSummary()));
+
+            boolean historyStartsWithModel = history != null && !history.isEmpty()
+                    && !"user".equals(history.get(0).getRole());
+            if (!historyStartsWithModel) {
+                contents.add(new Turn("model", "Got it. Let's continue."));
+            }
+        }
+
+        // Add history
+        if (history != null) {
+            for (ChatRequest.MessageItem item : history) {
+                String role = "user".equals(item.getRole()) ? "user" : "model";
+                contents.add(new Turn(role, item.getContent()));
+            }
+        }
+
+        // Add current user message
+        contents.add(new Turn("user", request.getMessage()));
+
+        return contents;
+    }
+
+    /**
+     * 대화 요약용 시스템 프롬프트
+     */
+    private static String buildSummaryPrompt() {
+        return """
+                You maintain a running summary of an English conversation practice session between a Korean learner and an AI partner.
+                Merge the PREVIOUS SUMMARY (if any) and the NEW MESSAGES into one updated summary.
+
+                RULES:
+                1. Write in English, at most 150 words, as plain text (no JSON, no markdown).
+                2. Keep facts the AI partner should remember: the user's name, plans, preferences, and topics already discussed.
+                3. Mention recurring grammar or vocabulary mistakes briefly.
+                4. Do not include greetings or small talk that carries no information.
+                """;
+    }
+
+    /**
+     * 코드 리뷰용 시스템 프롬프트
+     */
+    private static String buildCodeReviewPrompt() {
+        return """
+                당신은 알고리즘 코딩 테스트 전문 멘토입니다.
+                사용자가 제출한 코드를 분석하고 한국어로 피드백을 제공하세요.
+
+                규칙:
+                1. 모든 피드백은 한국어로 작성하세요.
+                2. 격려하는 톤으로 작성하되, 구체적인 개선점을 제시하세요.
+                3. 코드가 비어있거나 너무 짧으면 그에 맞는 안내를 해주세요.
+
+                반드시 아래 JSON 형식으로만 응답하세요 (마크다운 코드 블록 없이):
+                {"summary": "전체적인 코드 평가 요약 (2-3문장)", "strengths": "잘한 점 (구체적으로)", "improvements": "개선할 점과 제안 (구체적 코드 수정 방향 포함)", "timeComplexity": "시간/공간 복잡도 분석", "tips": "관련 학습 팁이나 추천 알고리즘"}
+
+                중요: JSON 객체만 출력하세요. 다른 텍스트는 절대 포함하지 마세요.
+                """;
+    }
+
+    /**
+     * 코드 리뷰 요청 contents 구성
+     */
+    private static List<Turn> buildCodeReviewContents(CodeReviewRequest request) {
+        String userMessage = String.format(
+                "문제: #%d %s\n언어: %s\n\n코드:\n```%s\n%s\n```",
+                request.getProblemId(),
+                request.getProblemTitle(),
+                request.getLanguage(),
+                request.getLanguage(),
+                request.getCode());
+
+        return List.of(new Turn("user", userMessage));
+    }
+}
@@ -0,0 +1,40 @@
+package com.upme.service.llm;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * LLM 제공자 (전송 계층)
+ * 프롬프트 조립은 LlmPrompts가 하고, 제공자는 LlmPrompt를 자기 API 형식으로 보내고 결과를 LlmResult로 돌려준다.
+ * 여러 제공자는 LlmProviderChain이 llm.providers 순서대로 묶어서 장애 시 다음 제공자로 넘김
+ */
+public interface LlmProvider {
+
+    /**
+     * llm.providers 설정과 메트릭 태그에 쓰는 이름 (예: "gemini", "openai")
+     */
+    String name();
+
+    /**
+     * 단일 응답 생성
+     */
+    Mono<LlmResult> generate(LlmPrompt prompt);
+
+    /**
+     * 스트리밍 생성 (각 항목의 text는 새로 생성된 조각, 토큰 사용량은 오는 경우 지금까지의 누적 합계)
+     */
+    Flux<LlmResult> stream(LlmPrompt prompt);
+
+    /**
+     * 가벼운 상태 확인 (실패하면 에러로 완료)
+     */
+    Mono<Void> healthCheck();
+
+    /**
+     * 요청 자체의 문제로 실패했는지 (잘못된 요청, 입력 초과 등)
+     * 다른 제공자로는 넘기지만 이 제공자의 장애로 집계하지 않음
+     */
+    default boolean isRequestError(Throwable e) {
+        return false;
+    }
+}
@@ -0,0 +1,241 @@
+package com.upme.service.llm;
+
+import com.upme.service.gemini.GeminiResilience.LatencyWindow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 제공자 failover (llm.providers에 적힌 순서)
+ * - 요청마다 후보 순서: 정상 → 느림(최근 p95가 slow-p95-ms 초과) → 제외됨(연속 eject-after회 실패)
+ * - 실패하면 다음 후보로 같은 요청을 보냄 (스트리밍은 첫 조각이 오기 전의 실패만)
+ * - 제외된 제공자는 eject-ms 동안 뒤로 밀리고, 그 사이 상태 확인이 성공하면 바로 복귀
+ * - 제공자 안의 재시도/브레이커(GeminiResilience 등)가 먼저 동작하고, 그래도 실패한 호출만 넘어옴
+ * 메트릭: llm.provider.calls(provider, outcome), llm.provider.failovers(provider), llm.provider.available(provider)
+ */
+@Slf4j
+@Component
+public class LlmProviderChain {
+
+    private final List<ProviderState> providers;
+    private final int ejectAfter;
+    private final long ejectMs;
+    private final long slowP95Ms;
+    private final long slowDemoteMs;
+
+    public LlmProviderChain(
+            List<LlmProvider> available,
+            MeterRegistry meterRegistry,
+            @Value("${llm.providers:gemini,openai}") List<String> order,
+            @Value("${llm.failover.eject-after:3}") int ejectAfter,
+            @Value("${llm.failover.eject-ms:30000}") long ejectMs,
+            @Value("${llm.failover.slow-p95-ms:15000}") long slowP95Ms,
+            @Value("${llm.failover.slow-demote-ms:60000}") long slowDemoteMs) {
+        this.ejectAfter = ejectAfter;
+        this.ejectMs = ejectMs;
+        this.slowP95Ms = slowP95Ms;
+        this.slowDemoteMs = slowDemoteMs;
+
+        List<ProviderState> ordered = new ArrayList<>();
+        for (String name : order) {
+            available.stream()
+                    .filter(provider -> provider.name().equals(name.strip()))
+                    .findFirst()
+                    .ifPresent(provider -> ordered.add(new ProviderState(provider, meterRegistry)));
+        }
+        if (ordered.isEmpty()) {
+            throw new IllegalStateException("사용할 수 있는 LLM 제공자가 없습니다: llm.providers=" + order);
+        }
+        this.providers = List.copyOf(ordered);
+        log.info("LLM 제공자 순서: {}", providers.stream().map(state -> state.provider.name()).toList());
+    }
+
+    /**
+     * 단일 응답 생성 (후보 순서대로 시도, 모두 실패하면 마지막 에러 전달)
+     */
+    public Mono<LlmResult> generate(LlmPrompt prompt) {
+        return Mono.defer(() -> generate(prompt, candidates(), 0));
+    }
+
+    /**
+     * 스트리밍 생성 (첫 조각 이후의 실패는 이미 보낸 내용과 겹치므로 넘기지 않고 그대로 전달)
+     */
+    public Flux<LlmResult> stream(LlmPrompt prompt) {
+        return Flux.defer(() -> stream(prompt, candidates(), 0));
+    }
+
+    private Mono<LlmResult> generate(LlmPrompt prompt, List<ProviderState> candidates, int index) {
+        ProviderState state = candidates.get(index);
+        long start = System.nanoTime();
+        return Mono.defer(() -> state.provider.generate(prompt))
+                .doOnSuccess(result -> onSuccess(state, start))
+                .onErrorResume(e -> {
+                    onFailure(state, e);
+                    if (index + 1 >= candidates.size()) {
+                        return Mono.error(e);
+                    }
+                    failover(state, candidates.get(index + 1), e);
+                    return generate(prompt, candidates, index + 1);
+                });
+    }
+
+    private Flux<LlmResult> stream(LlmPrompt prompt, List<ProviderState> candidates, int index) {
+        ProviderState state = candidates.get(index);
+        long start = System.nanoTime();
+        AtomicBoolean emitted = new AtomicBoolean(false);
+        return Flux.defer(() -> state.provider.stream(prompt))
+                .doOnNext(result -> {
+                    if (emitted.compareAndSet(false, true)) {
+                        onSuccess(state, start);
+                    }
+                })
+                .doOnComplete(() -> {
+                    if (emitted.compareAndSet(false, true)) {
+                        onSuccess(state, start);
+                    }
+                })
+                .onErrorResume(e -> {
+                    if (emitted.get()) {
+                        return Flux.error(e);
+                    }
+                    onFailure(state, e);
+                    if (index + 1 >= candidates.size()) {
+                        return Flux.error(e);
+                    }
+                    failover(state, candidates.get(index + 1), e);
+                    return stream(prompt, candidates, index + 1);
+                });
+    }
+
+    /**
+     * 제외된 제공자 상태 확인 (성공하면 제외 기간이 남아 있어도 바로 복귀)
+     */
+    @Scheduled(fixedDelayString = "${llm.failover.health-check-interval-ms:10000}")
+    public void checkEjected() {
+        long now = System.currentTimeMillis();
+        for (ProviderState state : providers) {
+            if (!state.isEjected(now)) {
+                continue;
+            }
+            state.provider.healthCheck().subscribe(
+                    ignored -> {
+                    },
+                    e -> log.debug("LLM 제공자 상태 확인 실패 ({}): {}", state.provider.name(), e.getMessage()),
+                    () -> {
+                        if (state.restore()) {
+                            log.info("LLM 제공자 복귀 (상태 확인 성공): {}", state.provider.name());
+                        }
+                    });
+        }
+    }
+
+    /**
+     * 이번 요청의 후보 순서
+     */
+    private List<ProviderState> candidates() {
+        long now = System.currentTimeMillis();
+        List<ProviderState> healthy = new ArrayList<>(providers.size());
+        List<ProviderState> slow = new ArrayList<>(0);
+        List<ProviderState> ejected = new ArrayList<>(0);
+        for (ProviderState state : providers) {
+            if (state.isEjected(now)) {
+                ejected.add(state);
+            } else if (now < state.slowUntil) {
+                slow.add(state);
+            } else {
+                healthy.add(state);
+            }
+        }
+        healthy.addAll(slow);
+        healthy.addAll(ejected);
+        return healthy;
+    }
+
+    private void onSuccess(ProviderState state, long startNanos) {
+        state.successCounter.increment();
+        if (state.restore()) {
+            log.info("LLM 제공자 복귀: {}", state.provider.name());
+        }
+
+        state.latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        long p95 = state.latencies.p95Millis();
+        if (slowP95Ms > 0 && p95 > slowP95Ms) {
+            // 새 표본으로 다시 판단하도록 비우고 일정 시간 뒤로 미룸
+            state.latencies.clear();
+            state.slowUntil = System.currentTimeMillis() + slowDemoteMs;
+            log.warn("LLM 제공자 지연 초과로 후순위: {} (p95 {}ms > {}ms)", state.provider.name(), p95, slowP95Ms);
+        }
+    }
+
+    private void onFailure(ProviderState state, Throwable e) {
+        state.failureCounter.increment();
+        if (state.provider.isRequestError(e)) {
+            return;
+        }
+        int failures = state.consecutiveFailures.incrementAndGet();
+        if (failures >= ejectAfter) {
+            boolean wasEjected = state.isEjected(System.currentTimeMillis());
+            state.ejectedUntil = System.currentTimeMillis() + ejectMs;
+            if (!wasEjected) {
+                log.warn("LLM 제공자 제외: {} (연속 실패 {}회, {}ms)", state.provider.name(), failures, ejectMs);
+            }
+        }
+    }
+
+    private void failover(ProviderState from, ProviderState to, Throwable e) {
+        from.failoverCounter.increment();
+        log.warn("LLM 제공자 전환: {} → {} ({})", from.provider.name(), to.provider.name(), e.getMessage());
+    }
+
+    /**
+     * 제공자별 연속 실패 수, 제외/후순위 기한, 최근 지연
+     */
+    private static final class ProviderState {
+
+        private final LlmProvider provider;
+        private final LatencyWindow latencies = new LatencyWindow(128);
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final Counter successCounter;
+        private final Counter failureCounter;
+        private final Counter failoverCounter;
+        private volatile long ejectedUntil = 0;
+        private volatile long slowUntil = 0;
+
+        ProviderState(LlmProvider provider, MeterRegistry meterRegistry) {
+            this.provider = provider;
+            this.successCounter = meterRegistry.counter("llm.provider.calls", "provider", provider.name(), "outcome", "success");
+            this.failureCounter = meterRegistry.counter("llm.provider.calls", "provider", provider.name(), "outcome", "failure");
+            this.failoverCounter = meterRegistry.counter("llm.provider.failovers", "provider", provider.name());
+            meterRegistry.gauge("llm.provider.available", List.of(Tag.of("provider", provider.name())),
+                    this, state -> state.isEjected(System.currentTimeMillis()) ? 0 : 1);
+        }
+
+        boolean isEjected(long now) {
+            return now < ejectedUntil;
+        }
+
+        /**
+         * 연속 실패 초기화 (제외된 적이 있으면 true)
+         */
+        boolean restore() {
+            consecutiveFailures.set(0);
+            if (ejectedUntil == 0) {
+                return false;
+            }
+            ejectedUntil = 0;
+            return true;
+        }
+    }
+}
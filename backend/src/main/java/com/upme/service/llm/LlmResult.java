@@ -0,0 +1,12 @@
+package com.upme.service.llm;
+
+/**
+ * 제공자 응답 (스트리밍이면 조각 하나)
+ * text가 null이면 생성된 내용이 없는 응답 (안전 필터 등), 토큰 수는 제공자가 알려준 경우에만 0보다 큼
+ */
+public record LlmResult(String provider, String text, String finishReason, int promptTokens, int candidateTokens) {
+
+    public boolean hasUsage() {
+        return promptTokens > 0 || candidateTokens > 0;
+    }
+}
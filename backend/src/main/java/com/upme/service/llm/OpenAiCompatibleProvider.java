@@ -0,0 +1,192 @@
+package com.upme.service.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upme.service.llm.LlmPrompt.Turn;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OpenAI 호환 Chat Completions 제공자 (llm.openai.base-url이 있을 때만 활성)
+ * 로컬 추론 서버(Ollama, vLLM, llama.cpp 서버 등)나 다른 벤더를 Gemini 장애 시 대체 경로로 사용
+ * - POST {base-url}/chat/completions (스트리밍은 stream=true + include_usage)
+ * - JSON 응답 프롬프트는 response_format=json_object로 요청 (필드 형식은 시스템 프롬프트가 지정)
+ * - llm.openai.model 하나만 사용 (Gemini 라우터가 고른 모델은 무시)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "llm.openai.base-url")
+public class OpenAiCompatibleProvider implements LlmProvider {
+
+    public static final String NAME = "openai";
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_EVENT_TYPE = new ParameterizedTypeReference<>() {
+    };
+    private static final String STREAM_DONE = "[DONE]";
+    private static final Duration HEALTH_CHECK_TIMEOUT = Duration.ofSeconds(5);
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    private final String model;
+    private final Duration timeout;
+
+    public OpenAiCompatibleProvider(
+            ObjectMapper objectMapper,
+            @Value("${llm.openai.base-url}") String baseUrl,
+            @Value("${llm.openai.api-key:}") String apiKey,
+            @Value("${llm.openai.model}") String model,
+            @Value("${llm.openai.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${llm.openai.timeout-ms:30000}") long timeoutMs) {
+        this.objectMapper = objectMapper;
+        this.model = model;
+        this.timeout = Duration.ofMillis(timeoutMs);
+
+        HttpClient httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(timeout);
+        WebClient.Builder builder = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient));
+        if (!apiKey.isBlank()) {
+            builder.defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey);
+        }
+        this.webClient = builder.build();
+        log.info("OpenAI 호환 제공자: {} (model: {})", baseUrl, model);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Mono<LlmResult> generate(LlmPrompt prompt) {
+        return webClient.post()
+                .uri("/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody(prompt, false))
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .defaultIfEmpty("")
+                                .map(body -> new LlmApiException(NAME, clientResponse.statusCode(), body)))
+                .bodyToMono(String.class)
+                .timeout(timeout)
+                .map(json -> {
+                    JsonNode root = readTree(json);
+                    JsonNode choice = root.path("choices").path(0);
+                    JsonNode content = choice.path("message").path("content");
+                    return new LlmResult(NAME,
+                            content.isTextual() ? content.asText() : null,
+                            choice.path("finish_reason").asText(null),
+                            root.path("usage").path("prompt_tokens").asInt(0),
+                            root.path("usage").path("completion_tokens").asInt(0));
+                });
+    }
+
+    /**
+     * 스트리밍 (조각마다 delta.content, 사용량은 choices가 빈 마지막 조각에 옴)
+     */
+    @Override
+    public Flux<LlmResult> stream(LlmPrompt prompt) {
+        return webClient.post()
+                .uri("/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(requestBody(prompt, true))
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .defaultIfEmpty("")
+                                .map(body -> new LlmApiException(NAME, clientResponse.statusCode(), body)))
+                .bodyToFlux(SSE_EVENT_TYPE)
+                .timeout(timeout)
+                .filter(event -> event.data() != null)
+                .map(ServerSentEvent::data)
+                .takeWhile(data -> !STREAM_DONE.equals(data.strip()))
+                .map(data -> {
+                    JsonNode root = readTree(data);
+                    JsonNode choice = root.path("choices").path(0);
+                    JsonNode delta = choice.path("delta").path("content");
+                    return new LlmResult(NAME,
+                            delta.isTextual() ? delta.asText() : "",
+                            choice.path("finish_reason").asText(null),
+                            root.path("usage").path("prompt_tokens").asInt(0),
+                            root.path("usage").path("completion_tokens").asInt(0));
+                });
+    }
+
+    @Override
+    public Mono<Void> healthCheck() {
+        return webClient.get()
+                .uri("/models")
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .defaultIfEmpty("")
+                                .map(body -> new LlmApiException(NAME, clientResponse.statusCode(), body)))
+                .toBodilessEntity()
+                .timeout(HEALTH_CHECK_TIMEOUT)
+                .then();
+    }
+
+    @Override
+    public boolean isRequestError(Throwable e) {
+        if (e instanceof LlmApiException apiException && apiException.getStatusCode().is4xxClientError()) {
+            int status = apiException.getStatusCode().value();
+            return status != HttpStatus.REQUEST_TIMEOUT.value() && status != HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        return false;
+    }
+
+    private Map<String, Object> requestBody(LlmPrompt prompt, boolean stream) {
+        List<Map<String, String>> messages = new ArrayList<>(prompt.contents().size() + 1);
+        messages.add(Map.of("role", "system", "content", prompt.systemPrompt()));
+        for (Turn turn : prompt.contents()) {
+            messages.add(Map.of("role", turn.isUser() ? "user" : "assistant", "content", turn.text()));
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("model", model);
+        body.put("messages", messages);
+        body.put("temperature", prompt.options().temperature());
+        body.put("max_tokens", prompt.options().maxOutputTokens());
+        if (prompt.options().json()) {
+            body.put("response_format", Map.of("type", "json_object"));
+        }
+        if (stream) {
+            body.put("stream", true);
+            body.put("stream_options", Map.of("include_usage", true));
+        }
+        return body;
+    }
+
+    private JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException("OpenAI 호환 응답을 처리하지 못했습니다.", e);
+        }
+    }
+}
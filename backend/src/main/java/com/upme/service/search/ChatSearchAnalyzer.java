@@ -0,0 +1,39 @@
+package com.upme.service.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.en.EnglishPossessiveFilter;
+import org.apache.lucene.analysis.en.PorterStemFilter;
+import org.apache.lucene.analysis.ko.KoreanPartOfSpeechStopFilter;
+import org.apache.lucene.analysis.ko.KoreanReadingFormFilter;
+import org.apache.lucene.analysis.ko.KoreanTokenizer;
+
+/**
+ * 영어/한국어가 섞인 채팅 메시지 분석기
+ * - 한국어: Nori 형태소 분석 (조사/어미 제거, "교정했어요" → "교정")
+ * - 영어: 소문자, 불용어 제거, 어간 추출 ("corrected" → "correct")
+ * Nori는 라틴 문자 구간을 한 토큰으로 내보내므로 영어 필터는 한국어 토큰을 바꾸지 않음
+ */
+public class ChatSearchAnalyzer extends Analyzer {
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer tokenizer = new KoreanTokenizer();
+        TokenStream stream = new KoreanPartOfSpeechStopFilter(tokenizer);
+        stream = new KoreanReadingFormFilter(stream);
+        stream = new EnglishPossessiveFilter(stream);
+        stream = new LowerCaseFilter(stream);
+        stream = new StopFilter(stream, EnglishAnalyzer.ENGLISH_STOP_WORDS_SET);
+        stream = new PorterStemFilter(stream);
+        return new TokenStreamComponents(tokenizer, stream);
+    }
+
+    @Override
+    protected TokenStream normalize(String fieldName, TokenStream in) {
+        return new LowerCaseFilter(in);
+    }
+}
@@ -0,0 +1,435 @@
+package com.upme.service.search;
+
+import com.upme.dto.response.ChatMessageView;
+import com.upme.dto.response.MessageSearchHit;
+import com.upme.model.ChatMessage;
+import com.upme.model.TimeOrderedIds;
+import com.upme.service.ChatMessageArchiver;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 대화 메시지 검색 색인 (로컬 디렉터리의 Lucene 색인, chat.search.enabled, 기본 꺼짐)
+ * - 메시지를 저장할 때 바로 색인에 추가 (지연 저장 모드 포함)
+ * - sync-interval-ms마다 DB에서 새 메시지를 읽어 빠진 것을 채움 (다른 인스턴스가 저장한 메시지, 재시작 전 커밋 안 된 것)
+ * - 같은 주기에 삭제 표시된 대화(deleted_at)를 색인에서 제거 (다른 인스턴스에서 삭제한 대화, 동기화와 겹쳐 다시 들어간 것)
+ * - 색인이 없거나 chat.search.rebuild-on-start=true면 시작 후 DB(chat_messages + 보관 블록)에서 다시 만듦
+ * - 사용자 ID로 거르고 본문/피드백을 BM25로 순위 매김, 검색어 부분을 표시한 일부만 반환
+ */
+@Slf4j
+@Component
+public class ChatSearchIndex {
+
+    private static final String ID = "id";
+    private static final String USER_ID = "userId";
+    private static final String CONVERSATION_ID = "conversationId";
+    private static final String ROLE = "role";
+    private static final String CONTENT = "content";
+    private static final String FEEDBACK = "feedback";
+    private static final String CREATED_AT = "createdAt";
+    // 커밋에 함께 저장하는 동기화 위치 (이 ID까지 DB에서 읽음)
+    private static final String SYNCED_ID = "syncedId";
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final int MAX_RESULTS = 1000;
+    private static final int SNIPPET_LENGTH = 160;
+
+    private static final String MESSAGES_SQL = "SELECT m.id, m.conversation_id, c.user_id, m.role, m.content, "
+            + "m.feedback, m.created_at FROM chat_messages m JOIN conversations c ON c.id = m.conversation_id "
+            + "WHERE m.id > ? AND c.deleted_at IS NULL ORDER BY m.id LIMIT " + CHUNK_SIZE;
+    private static final String DELETED_SQL = "SELECT id FROM conversations WHERE deleted_at IS NOT NULL "
+            + "AND deleted_at >= ?";
+    private static final String ARCHIVES_SQL = "SELECT DISTINCT a.conversation_id, c.user_id "
+            + "FROM chat_message_archive_blocks a JOIN conversations c ON c.id = a.conversation_id "
+            + "WHERE c.deleted_at IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChatMessageArchiver archiver;
+    private final Scheduler blockingScheduler;
+    private final boolean enabled;
+    private final boolean rebuildOnStart;
+    private final long syncLagMs;
+    private final Analyzer analyzer = new ChatSearchAnalyzer();
+
+    private FSDirectory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private boolean emptyOnOpen;
+
+    // DB에서 읽어 색인하는 작업(동기화, 재구성)은 한 번에 하나만
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private volatile long syncedId;
+    // 삭제 표시를 이 시각까지 반영함 (시작 후 첫 동기화는 남아 있는 삭제 표시 전부)
+    private LocalDateTime deletesSyncedAt = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    public ChatSearchIndex(
+            JdbcTemplate jdbcTemplate,
+            ChatMessageArchiver archiver,
+            Scheduler blockingScheduler,
+            @Value("${chat.search.enabled:false}") boolean enabled,
+            @Value("${chat.search.dir:chat-search-index}") String dir,
+            @Value("${chat.search.rebuild-on-start:false}") boolean rebuildOnStart,
+            @Value("${chat.search.sync-lag-ms:60000}") long syncLagMs) throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiver = archiver;
+        this.blockingScheduler = blockingScheduler;
+        this.enabled = enabled;
+        this.rebuildOnStart = rebuildOnStart;
+        this.syncLagMs = syncLagMs;
+
+        if (enabled) {
+            Path path = Path.of(dir);
+            Files.createDirectories(path);
+            directory = FSDirectory.open(path);
+            IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            writer = new IndexWriter(directory, config);
+            searcherManager = new SearcherManager(writer, null);
+            emptyOnOpen = writer.getDocStats().numDocs == 0;
+            if (writer.getLiveCommitData() != null) {
+                writer.getLiveCommitData().forEach(entry -> {
+                    if (entry.getKey().equals(SYNCED_ID)) {
+                        syncedId = Long.parseLong(entry.getValue());
+                    }
+                });
+            }
+            log.info("대화 검색 색인 사용: {}, 문서 {}개", path.toAbsolutePath(), writer.getDocStats().numDocs);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled && (emptyOnOpen || rebuildOnStart)) {
+            blockingScheduler.schedule(this::rebuild);
+        }
+    }
+
+    /**
+     * 저장한 메시지를 색인 (실패해도 저장은 그대로, 다음 동기화 때 다시 색인)
+     */
+    public void index(Long conversationId, Long userId, List<ChatMessage> messages) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (ChatMessage message : messages) {
+                LocalDateTime createdAt = message.getCreatedAt() != null ? message.getCreatedAt() : LocalDateTime.now();
+                write(new ChatMessageView(message.getId(), message.getRole(), message.getContent(),
+                        message.getFeedback(), createdAt), conversationId, userId);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("메시지 색인 실패, 다음 동기화 때 다시 색인: conversationId={}, {}", conversationId, e.getMessage());
+        }
+    }
+
+    /**
+     * 대화의 메시지를 색인에서 제거 (DB 커밋 후 호출, 실패해도 다음 동기화 때 삭제 표시를 보고 제거)
+     */
+    public void deleteConversation(Long conversationId) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            writer.deleteDocuments(new Term(CONVERSATION_ID, conversationId.toString()));
+        } catch (IOException e) {
+            log.warn("대화 색인 삭제 실패, 다음 동기화 때 다시 삭제: conversationId={}, {}", conversationId, e.getMessage());
+        }
+    }
+
+    /**
+     * 사용자의 메시지 검색 (점수순, page는 0부터)
+     */
+    public SearchPage search(Long userId, String queryText, int page, int size) {
+        if (!enabled) {
+            throw new RuntimeException("검색을 사용할 수 없습니다.");
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int from = Math.max(0, page) * pageSize;
+        if (queryText == null || queryText.isBlank() || from >= MAX_RESULTS) {
+            return new SearchPage(List.of(), false);
+        }
+
+        Query text = new SimpleQueryParser(analyzer, Map.of(CONTENT, 1.0f, FEEDBACK, 1.0f)).parse(queryText);
+        Query query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(USER_ID, userId.toString())), BooleanClause.Occur.FILTER)
+                .add(text, BooleanClause.Occur.MUST)
+                .build();
+
+        IndexSearcher searcher;
+        try {
+            searcher = searcherManager.acquire();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            // 하나 더 찾아서 다음 페이지가 있는지 판단
+            TopDocs top = searcher.search(query, from + pageSize + 1);
+            ScoreDoc[] all = top.scoreDocs;
+            if (all.length <= from) {
+                return new SearchPage(List.of(), false);
+            }
+            ScoreDoc[] pageDocs = Arrays.copyOfRange(all, from, Math.min(all.length, from + pageSize));
+            TopDocs pageTop = new TopDocs(top.totalHits, pageDocs);
+
+            UnifiedHighlighter highlighter = UnifiedHighlighter.builder(searcher, analyzer)
+                    .withFormatter(new DefaultPassageFormatter("<mark>", "</mark>", "… ", true))
+                    .build();
+            Map<String, String[]> highlights = highlighter.highlightFields(
+                    new String[] {CONTENT, FEEDBACK}, text, pageTop, new int[] {1, 1});
+
+            StoredFields storedFields = searcher.storedFields();
+            List<MessageSearchHit> hits = new ArrayList<>(pageDocs.length);
+            for (int i = 0; i < pageDocs.length; i++) {
+                Document doc = storedFields.document(pageDocs[i].doc);
+                String snippet = highlights.get(CONTENT)[i];
+                String feedbackSnippet = highlights.get(FEEDBACK)[i];
+                if (snippet == null) {
+                    snippet = escape(head(doc.get(CONTENT)));
+                }
+                if (feedbackSnippet == null && doc.get(FEEDBACK) != null) {
+                    feedbackSnippet = escape(head(doc.get(FEEDBACK)));
+                }
+                hits.add(new MessageSearchHit(Long.parseLong(doc.get(ID)), Long.parseLong(doc.get(CONVERSATION_ID)),
+                        doc.get(ROLE), snippet, feedbackSnippet, LocalDateTime.parse(doc.get(CREATED_AT)),
+                        pageDocs[i].score));
+            }
+            return new SearchPage(hits, all.length > from + pageSize);
+        } catch (IOException e) {
+            log.warn("메시지 검색 실패: userId={}, {}", userId, e.getMessage());
+            throw new RuntimeException("검색에 실패했습니다.");
+        } finally {
+            release(searcher);
+        }
+    }
+
+    /**
+     * 저장된 메시지가 검색에 보이도록 (색인 추가 후 최대 1초)
+     */
+    @Scheduled(fixedDelayString = "${chat.search.refresh-interval-ms:1000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.warn("검색 색인 새로고침 실패: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * DB에서 새 메시지를 읽어 색인에 없는 것만 추가하고, 삭제 표시된 대화를 제거한 뒤 커밋
+     * 마지막 위치보다 sync-lag-ms만큼 앞에서부터 다시 읽음 (늦게 커밋된 지연 저장 메시지와 삭제 포함)
+     */
+    @Scheduled(initialDelayString = "${chat.search.sync-interval-ms:10000}",
+            fixedDelayString = "${chat.search.sync-interval-ms:10000}")
+    public void sync() {
+        if (!enabled || !syncLock.tryLock()) {
+            return;
+        }
+        try {
+            long from = Math.min(syncedId, TimeOrderedIds.firstIdAt(System.currentTimeMillis() - syncLagMs));
+            searcherManager.maybeRefresh();
+            int added = indexMessagesAfter(from, true);
+            // 메시지를 읽은 뒤에 삭제를 반영 (읽는 도중 삭제된 대화가 다시 들어가도 여기서 빠짐)
+            int deleted = deleteMarkedConversations();
+            commit();
+            if (added > 0 || deleted > 0) {
+                log.info("검색 색인 동기화: 메시지 {}개 추가, 삭제된 대화 {}개 제거", added, deleted);
+            }
+        } catch (IOException | DataAccessException e) {
+            log.warn("검색 색인 동기화 실패: {}", e.getMessage());
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * 색인을 비우고 DB의 모든 메시지(보관 블록 포함)로 다시 만듦 (재구성 중에도 검색은 가능, 결과가 일부일 수 있음)
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            log.info("검색 색인 재구성 시작");
+            writer.deleteAll();
+            syncedId = 0;
+            int hot = indexMessagesAfter(0, false);
+            int archived = 0;
+            for (Map<String, Object> row : jdbcTemplate.queryForList(ARCHIVES_SQL)) {
+                Long conversationId = ((Number) row.get("conversation_id")).longValue();
+                Long userId = ((Number) row.get("user_id")).longValue();
+                for (ChatMessageView view : archiver.readAll(conversationId)) {
+                    write(view, conversationId, userId);
+                    archived++;
+                }
+            }
+            commit();
+            searcherManager.maybeRefresh();
+            log.info("검색 색인 재구성 완료: 메시지 {}개, 보관 메시지 {}개", hot, archived);
+        } catch (IOException | DataAccessException | UncheckedIOException e) {
+            log.warn("검색 색인 재구성 실패: {}", e.getMessage());
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        searcherManager.close();
+        commit();
+        writer.close();
+        directory.close();
+    }
+
+    /**
+     * afterId 이후 메시지를 ID 순서로 CHUNK_SIZE개씩 색인, 색인한 수 반환
+     */
+    private int indexMessagesAfter(long afterId, boolean skipIndexed) throws IOException {
+        int added = 0;
+        long cursor = afterId;
+        while (true) {
+            List<Row> rows = jdbcTemplate.query(MESSAGES_SQL, (rs, rowNum) -> new Row(
+                    new ChatMessageView(rs.getLong("id"), rs.getString("role"), rs.getString("content"),
+                            rs.getString("feedback"), toLocalDateTime(rs.getTimestamp("created_at"))),
+                    rs.getLong("conversation_id"), rs.getLong("user_id")), cursor);
+            if (rows.isEmpty()) {
+                return added;
+            }
+            IndexSearcher searcher = skipIndexed ? searcherManager.acquire() : null;
+            try {
+                for (Row row : rows) {
+                    if (searcher != null && searcher.count(new TermQuery(
+                            new Term(ID, row.message().id().toString()))) > 0) {
+                        continue;
+                    }
+                    write(row.message(), row.conversationId(), row.userId());
+                    added++;
+                }
+            } finally {
+                release(searcher);
+            }
+            cursor = rows.get(rows.size() - 1).message().id();
+            syncedId = Math.max(syncedId, cursor);
+            if (rows.size() < CHUNK_SIZE) {
+                return added;
+            }
+        }
+    }
+
+    /**
+     * 마지막 반영 시각(sync-lag-ms 여유)부터 삭제 표시된 대화를 색인에서 제거, 제거한 대화 수 반환
+     * 삭제 표시 행은 chat.delete.tombstone-minutes 동안 남으므로 그보다 오래 꺼져 있던 인스턴스는 rebuild-on-start 필요
+     */
+    private int deleteMarkedConversations() throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = deletesSyncedAt.minusNanos(syncLagMs * 1_000_000);
+        List<Long> ids = jdbcTemplate.queryForList(DELETED_SQL, Long.class, Timestamp.valueOf(since));
+        if (!ids.isEmpty()) {
+            writer.deleteDocuments(ids.stream()
+                    .map(id -> new Term(CONVERSATION_ID, id.toString()))
+                    .toArray(Term[]::new));
+        }
+        deletesSyncedAt = now;
+        return ids.size();
+    }
+
+    private void write(ChatMessageView message, Long conversationId, Long userId) throws IOException {
+        Document doc = new Document();
+        doc.add(new StringField(ID, message.id().toString(), Field.Store.YES));
+        doc.add(new StringField(USER_ID, userId.toString(), Field.Store.NO));
+        doc.add(new StringField(CONVERSATION_ID, conversationId.toString(), Field.Store.YES));
+        doc.add(new StoredField(ROLE, message.role()));
+        doc.add(new TextField(CONTENT, message.content() != null ? message.content() : "", Field.Store.YES));
+        if (message.feedback() != null) {
+            doc.add(new TextField(FEEDBACK, message.feedback(), Field.Store.YES));
+        }
+        LocalDateTime createdAt = message.createdAt() != null ? message.createdAt() : LocalDateTime.now();
+        doc.add(new StoredField(CREATED_AT, createdAt.toString()));
+        writer.updateDocument(new Term(ID, message.id().toString()), doc);
+    }
+
+    private void commit() throws IOException {
+        writer.setLiveCommitData(Map.of(SYNCED_ID, Long.toString(syncedId)).entrySet());
+        writer.commit();
+    }
+
+    private void release(IndexSearcher searcher) {
+        if (searcher == null) {
+            return;
+        }
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            log.warn("검색기 반환 실패: {}", e.getMessage());
+        }
+    }
+
+    private static String head(String text) {
+        String collapsed = text.strip().replaceAll("\\s+", " ");
+        return collapsed.length() <= SNIPPET_LENGTH ? collapsed : collapsed.substring(0, SNIPPET_LENGTH) + "…";
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;")
+                .replace("'", "&#x27;");
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private record Row(ChatMessageView message, Long conversationId, Long userId) {
+    }
+
+    public record SearchPage(List<MessageSearchHit> hits, boolean hasMore) {
+    }
+}
@@ -0,0 +1,158 @@
+package com.upme.service.gemini;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 재생 서버 + 장애 주입으로 GeminiResilience의 재시도, 재시도 예산, 헤징, 서킷 브레이커 확인
+ * 실제 네트워크 없이 127.0.0.1의 재생 서버만 사용
+ */
+class GeminiFaultInjectionTest {
+
+    private static final String ROUTE = "POST /v1beta/models/test:generateContent";
+    private static final String OK_BODY = "{\"candidates\":[]}";
+
+    @TempDir
+    Path trafficDir;
+
+    private GeminiReplayServer server;
+    private GeminiFaultInjector faults;
+    private WebClient webClient;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        byte[] body = OK_BODY.getBytes(StandardCharsets.UTF_8);
+        GeminiTrafficRecording recording = new GeminiTrafficRecording(ROUTE, "any", "{}", 200, "application/json",
+                0, List.of(new GeminiTrafficRecording.Chunk(0, body.length)), OK_BODY, "2025-01-01T00:00:00Z");
+        objectMapper.writeValue(trafficDir.resolve("0001.json").toFile(), recording);
+
+        server = new GeminiReplayServer(objectMapper, trafficDir.toString(), 0, 0, 0, 0, 0, 0);
+        server.start();
+        faults = server.faults();
+        webClient = WebClient.create(server.baseUrl());
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("503/429는 max-retries까지 재시도해서 성공")
+    void retriesTransientFailures() {
+        GeminiResilience resilience = resilience(2, 10, false, 20);
+        faults.failNext(1, GeminiFaultInjector.Kind.UNAVAILABLE, Duration.ZERO);
+
+        assertThat(resilience.call(this::generate).block()).isEqualTo(OK_BODY);
+        assertThat(faults.requests()).isEqualTo(2);
+
+        faults.failNext(2, GeminiFaultInjector.Kind.RATE_LIMITED, Duration.ZERO);
+        assertThat(resilience.call(this::generate).block()).isEqualTo(OK_BODY);
+        assertThat(faults.requests()).isEqualTo(5);
+        assertThat(meterRegistry.counter("gemini.client.retries").count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("연결이 끊기면(RST) 재시도해서 성공")
+    void retriesConnectionReset() {
+        GeminiResilience resilience = resilience(2, 10, false, 20);
+        faults.failNext(1, GeminiFaultInjector.Kind.RESET, Duration.ZERO);
+
+        assertThat(resilience.call(this::generate).block()).isEqualTo(OK_BODY);
+        assertThat(faults.requests()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("계속 실패하면 max-retries번 재시도 후 마지막 에러 전달")
+    void givesUpAfterMaxRetries() {
+        GeminiResilience resilience = resilience(2, 10, false, 20);
+        faults.update(new GeminiFaultInjector.Settings(0, 1, 0, 0, 0));
+
+        assertThatThrownBy(() -> resilience.call(this::generate).block())
+                .isInstanceOf(GeminiApiException.class)
+                .satisfies(e -> assertThat(((GeminiApiException) e).getStatusCode().value()).isEqualTo(503));
+        assertThat(faults.requests()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("재시도 예산이 바닥나면 재시도하지 않음")
+    void retryBudgetCapsRetries() {
+        // 적립 없이 처음 1개만 있는 예산
+        GeminiResilience resilience = new GeminiResilience(meterRegistry, 5000, 10000, 2, 1, 1, 0, 1, false, 100,
+                20, 0.5, 60000);
+        faults.update(new GeminiFaultInjector.Settings(0, 1, 0, 0, 0));
+
+        assertThatThrownBy(() -> resilience.call(this::generate).block()).isInstanceOf(GeminiApiException.class);
+        assertThat(faults.requests()).isEqualTo(2);
+
+        assertThatThrownBy(() -> resilience.call(this::generate).block()).isInstanceOf(GeminiApiException.class);
+        assertThat(faults.requests()).isEqualTo(3);
+        assertThat(meterRegistry.counter("gemini.client.retry-budget.exhausted").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("첫 요청이 느리면 헤징 요청의 응답을 먼저 사용")
+    void hedgesSlowAttempt() {
+        GeminiResilience resilience = resilience(0, 10, true, 20);
+        faults.failNext(1, GeminiFaultInjector.Kind.SLOW, Duration.ofSeconds(3));
+
+        long start = System.nanoTime();
+        assertThat(resilience.call(this::generate).block()).isEqualTo(OK_BODY);
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertThat(elapsedMs).isLessThan(2000);
+        assertThat(faults.requests()).isEqualTo(2);
+        assertThat(meterRegistry.counter("gemini.client.hedges").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("실패율이 기준을 넘으면 브레이커가 열려 서버에 보내지 않고 거절")
+    void breakerOpensOnFailures() {
+        GeminiResilience resilience = resilience(0, 10, false, 4);
+        faults.update(new GeminiFaultInjector.Settings(0, 1, 0, 0, 0));
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> resilience.call(this::generate).block()).isInstanceOf(GeminiApiException.class);
+        }
+        assertThatThrownBy(() -> resilience.call(this::generate).block())
+                .isInstanceOf(GeminiRejectedException.class);
+        assertThat(faults.requests()).isEqualTo(4);
+        assertThat(meterRegistry.counter("gemini.client.breaker.rejected").count()).isEqualTo(1);
+    }
+
+    private GeminiResilience resilience(int maxRetries, int minRetryTokens, boolean hedge, int breakerWindow) {
+        return new GeminiResilience(meterRegistry, 5000, 10000, maxRetries, 1, 1, 0.1, minRetryTokens, hedge, 100,
+                breakerWindow, 0.5, 60000);
+    }
+
+    private Mono<String> generate() {
+        return webClient.post()
+                .uri("/v1beta/models/test:generateContent?key=test")
+                .header("Content-Type", "application/json")
+                .bodyValue("{}")
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        response -> response.bodyToMono(String.class)
+                                .map(body -> new GeminiApiException(response.statusCode(), body)))
+                .bodyToMono(String.class);
+    }
+}
@@ -0,0 +1,192 @@
+package com.upme.service.gemini;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 재생 서버로 Gemini 호출 경로(WebClient + GeminiResilience)에 동시 부하를 걸어 지연/처리량 회귀 확인
+ * - 녹화 지연은 고정 (단일 응답 40ms, 스트리밍 첫 조각 30ms/마지막 조각 90ms)이라 결과가 실행마다 거의 같음
+ * - 기준은 녹화 지연 대비 여유를 크게 둔 값 (느린 CI 머신에서도 통과, 재시도/커넥션 대기가 줄줄이 밀리면 실패)
+ * ./gradlew test --tests GeminiReplayLoadTest
+ */
+class GeminiReplayLoadTest {
+
+    private static final String GENERATE_ROUTE = "POST /v1beta/models/test:generateContent";
+    private static final String STREAM_ROUTE = "POST /v1beta/models/test:streamGenerateContent?alt=sse";
+    private static final String OK_BODY = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"ok\"}]}}]}";
+    private static final String SSE_CHUNK = "data: " + OK_BODY + "\r\n\r\n";
+
+    private static final long RECORDED_MS = 40;
+    private static final int REQUESTS = 400;
+    private static final int CONCURRENCY = 16;
+    private static final long P95_LIMIT_MS = 250;
+    private static final double MIN_THROUGHPUT = 100;
+
+    @TempDir
+    Path trafficDir;
+
+    private GeminiReplayServer server;
+    private WebClient webClient;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        byte[] body = OK_BODY.getBytes(StandardCharsets.UTF_8);
+        objectMapper.writeValue(trafficDir.resolve("0001.json").toFile(), new GeminiTrafficRecording(
+                GENERATE_ROUTE, "any", "{}", 200, "application/json", RECORDED_MS - 10,
+                List.of(new GeminiTrafficRecording.Chunk(RECORDED_MS, body.length)), OK_BODY,
+                "2025-01-01T00:00:00Z"));
+
+        String stream = SSE_CHUNK.repeat(3);
+        int chunk = SSE_CHUNK.getBytes(StandardCharsets.UTF_8).length;
+        objectMapper.writeValue(trafficDir.resolve("0002.json").toFile(), new GeminiTrafficRecording(
+                STREAM_ROUTE, "any", "{}", 200, "text/event-stream", 20,
+                List.of(new GeminiTrafficRecording.Chunk(30, chunk), new GeminiTrafficRecording.Chunk(60, chunk * 2),
+                        new GeminiTrafficRecording.Chunk(90, chunk * 3)),
+                stream, "2025-01-01T00:00:00Z"));
+
+        server = new GeminiReplayServer(objectMapper, trafficDir.toString(), 1.0, 0, 0, 0, 0, 0);
+        server.start();
+        webClient = WebClient.create(server.baseUrl());
+        meterRegistry = new SimpleMeterRegistry();
+
+        // 커넥션을 미리 열고 JIT를 데워서 첫 요청들의 비용이 측정에 섞이지 않도록
+        Flux.range(0, REQUESTS / 2).flatMap(i -> generate(), CONCURRENCY).blockLast(Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("단일 응답: 동시 요청의 p95 지연과 처리량이 기준 안")
+    void generateUnderLoad() {
+        GeminiResilience resilience = resilience();
+
+        LoadResult result = run(() -> resilience.call(this::generate).then());
+
+        assertThat(result.failures()).isZero();
+        assertThat(result.p95Ms()).isBetween(RECORDED_MS, P95_LIMIT_MS);
+        assertThat(result.throughput()).isGreaterThanOrEqualTo(MIN_THROUGHPUT);
+    }
+
+    @Test
+    @DisplayName("스트리밍: 녹화된 조각 간격대로 재생되고 p95 전체 지연이 기준 안")
+    void streamUnderLoad() {
+        List<Long> firstChunkMs = Collections.synchronizedList(new ArrayList<>());
+
+        LoadResult result = run(() -> {
+            long start = System.nanoTime();
+            return stream()
+                    .index()
+                    .doOnNext(item -> {
+                        if (item.getT1() == 0) {
+                            firstChunkMs.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        }
+                    })
+                    .then();
+        });
+
+        assertThat(result.failures()).isZero();
+        assertThat(percentile(firstChunkMs, 0.95)).isBetween(30L, P95_LIMIT_MS);
+        assertThat(result.p95Ms()).isBetween(90L, 90 + P95_LIMIT_MS);
+    }
+
+    @Test
+    @DisplayName("503이 5% 섞여도 재시도로 대부분 성공하고 p95 지연이 기준 안")
+    void generateWithInjectedFailures() {
+        GeminiResilience resilience = resilience();
+        server.faults().update(new GeminiFaultInjector.Settings(0, 0.05, 0, 0, 0));
+
+        LoadResult result = run(() -> resilience.call(this::generate).then());
+
+        assertThat(result.failures()).isLessThanOrEqualTo(REQUESTS / 100);
+        assertThat(result.p95Ms()).isLessThanOrEqualTo(P95_LIMIT_MS);
+        assertThat(meterRegistry.counter("gemini.client.retries").count()).isGreaterThan(0);
+    }
+
+    /**
+     * REQUESTS건을 CONCURRENCY개씩 동시에 실행하고 요청별 지연, 실패 수, 초당 처리량 집계
+     */
+    private LoadResult run(Supplier<Mono<Void>> request) {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+
+        Long failures = Flux.range(0, REQUESTS)
+                .flatMap(i -> Mono.defer(() -> {
+                    long requestStart = System.nanoTime();
+                    return request.get()
+                            .doOnSuccess(ignored -> latencies.add(
+                                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStart)))
+                            .thenReturn(0L)
+                            .onErrorReturn(1L);
+                }), CONCURRENCY)
+                .reduce(0L, Long::sum)
+                .block(Duration.ofSeconds(60));
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return new LoadResult(failures, percentile(latencies, 0.95), REQUESTS / seconds);
+    }
+
+    private GeminiResilience resilience() {
+        return new GeminiResilience(meterRegistry, 5000, 10000, 3, 1, 5, 0.2, 50, false, 100, 100, 0.5, 60000);
+    }
+
+    private Mono<String> generate() {
+        return webClient.post()
+                .uri("/v1beta/models/test:generateContent?key=test")
+                .header("Content-Type", "application/json")
+                .bodyValue("{}")
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        response -> response.bodyToMono(String.class)
+                                .map(body -> new GeminiApiException(response.statusCode(), body)))
+                .bodyToMono(String.class);
+    }
+
+    private Flux<String> stream() {
+        return webClient.post()
+                .uri("/v1beta/models/test:streamGenerateContent?alt=sse&key=test")
+                .header("Content-Type", "application/json")
+                .bodyValue("{}")
+                .retrieve()
+                .bodyToFlux(String.class);
+    }
+
+    private static long percentile(List<Long> values, double p) {
+        List<Long> sorted;
+        synchronized (values) {
+            sorted = new ArrayList<>(values);
+        }
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        Collections.sort(sorted);
+        return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(sorted.size() * p) - 1));
+    }
+
+    private record LoadResult(long failures, long p95Ms, double throughput) {
+    }
+}
@@ -0,0 +1,156 @@
+package com.upme.service.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 가짜 제공자로 LlmProviderChain의 failover, 제외/복귀, 요청 오류 처리 확인 (네트워크 없음)
+ */
+class LlmProviderChainTest {
+
+    private static final LlmPrompt PROMPT = new LlmPrompt("test", "system",
+            new LlmPrompt.Options(0.5, 100, List.of()), List.of(new LlmPrompt.Turn("user", "hi")), null);
+
+    private SimpleMeterRegistry meterRegistry;
+    private FakeLlmProvider primary;
+    private FakeLlmProvider secondary;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        primary = new FakeLlmProvider("primary", "from primary", 0, 0, 0);
+        secondary = new FakeLlmProvider("secondary", "from secondary", 0, 0, 0);
+    }
+
+    @Test
+    @DisplayName("첫 제공자가 실패하면 같은 요청을 다음 제공자로 보냄")
+    void failsOverToNextProvider() {
+        LlmProviderChain chain = chain(List.of(primary, secondary), 3);
+        primary.setAvailable(false);
+
+        LlmResult result = chain.generate(PROMPT).block();
+
+        assertThat(result.provider()).isEqualTo("secondary");
+        assertThat(result.text()).isEqualTo("from secondary");
+        assertThat(meterRegistry.counter("llm.provider.failovers", "provider", "primary").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("스트리밍도 첫 조각 전의 실패는 다음 제공자로 넘김")
+    void streamFailsOverBeforeFirstChunk() {
+        LlmProviderChain chain = chain(List.of(primary, secondary), 3);
+        primary.setAvailable(false);
+
+        List<LlmResult> chunks = chain.stream(PROMPT).collectList().block();
+
+        assertThat(chunks).isNotEmpty().allMatch(chunk -> chunk.provider().equals("secondary"));
+        assertThat(String.join("", chunks.stream().map(LlmResult::text).toList())).isEqualTo("from secondary");
+    }
+
+    @Test
+    @DisplayName("모든 제공자가 실패하면 마지막 에러 전달")
+    void propagatesLastErrorWhenAllFail() {
+        LlmProviderChain chain = chain(List.of(primary, secondary), 3);
+        primary.setAvailable(false);
+        secondary.setAvailable(false);
+
+        assertThatThrownBy(() -> chain.generate(PROMPT).block())
+                .isInstanceOf(LlmApiException.class)
+                .satisfies(e -> assertThat(((LlmApiException) e).getProvider()).isEqualTo("secondary"));
+    }
+
+    @Test
+    @DisplayName("연속 eject-after회 실패하면 제외되어 뒤로 밀리고, 상태 확인이 성공하면 복귀")
+    void ejectsAndRestoresProvider() {
+        LlmProviderChain chain = chain(List.of(primary, secondary), 2);
+        primary.setAvailable(false);
+
+        chain.generate(PROMPT).block();
+        chain.generate(PROMPT).block();
+        assertThat(available("primary")).isZero();
+
+        // 제외된 동안은 다음 제공자를 먼저 시도하므로 primary로 보내지 않음
+        assertThat(chain.generate(PROMPT).block().provider()).isEqualTo("secondary");
+        assertThat(calls("primary", "failure")).isEqualTo(2);
+
+        // 상태 확인이 실패하면 그대로 제외
+        chain.checkEjected();
+        assertThat(available("primary")).isZero();
+
+        primary.setAvailable(true);
+        chain.checkEjected();
+        assertThat(available("primary")).isEqualTo(1);
+        assertThat(chain.generate(PROMPT).block().provider()).isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("요청 오류(isRequestError)는 다음 제공자로 넘기지만 제외 횟수에 세지 않음")
+    void requestErrorsDoNotEject() {
+        RejectingProvider rejecting = new RejectingProvider();
+        LlmProviderChain chain = chain(List.of(rejecting, secondary), 1);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(chain.generate(PROMPT).block().provider()).isEqualTo("secondary");
+        }
+
+        assertThat(rejecting.calls).isEqualTo(3);
+        assertThat(available("rejecting")).isEqualTo(1);
+        assertThat(calls("rejecting", "failure")).isEqualTo(3);
+    }
+
+    private LlmProviderChain chain(List<LlmProvider> providers, int ejectAfter) {
+        List<String> order = providers.stream().map(LlmProvider::name).toList();
+        return new LlmProviderChain(providers, meterRegistry, order, ejectAfter, 60000, 0, 60000);
+    }
+
+    private double available(String provider) {
+        return meterRegistry.get("llm.provider.available").tag("provider", provider).gauge().value();
+    }
+
+    private double calls(String provider, String outcome) {
+        return meterRegistry.counter("llm.provider.calls", "provider", provider, "outcome", outcome).count();
+    }
+
+    /**
+     * 모든 요청을 입력 오류로 거절하는 제공자
+     */
+    private static final class RejectingProvider implements LlmProvider {
+
+        private int calls;
+
+        @Override
+        public String name() {
+            return "rejecting";
+        }
+
+        @Override
+        public Mono<LlmResult> generate(LlmPrompt prompt) {
+            calls++;
+            return Mono.error(new IllegalArgumentException("prompt too long"));
+        }
+
+        @Override
+        public Flux<LlmResult> stream(LlmPrompt prompt) {
+            return generate(prompt).flux();
+        }
+
+        @Override
+        public Mono<Void> healthCheck() {
+            return Mono.empty();
+        }
+
+        @Override
+        public boolean isRequestError(Throwable e) {
+            return e instanceof IllegalArgumentException;
+        }
+    }
+}
@@ -42,18 +42,26 @@ function ChatRoom() {
     const [showLoginPrompt, setShowLoginPrompt] = useState(false)
     const [chatTopicName, setChatTopicName] = useState(topicName)
     const [loadingMessages, setLoadingMessages] = useState(false)
+    const [nextBefore, setNextBefore] = useState(null)
+    const [loadingOlder, setLoadingOlder] = useState(false)
     const [isListening, setIsListening] = useState(false)
     const messagesEndRef = useRef(null)
     const isRequestInFlight = useRef(false)
     const recognitionRef = useRef(null)
     const hasUserMessageRef = useRef(false)
     const initialMessageCountRef = useRef(0)
+    const skipScrollRef = useRef(false)
 
     const scrollToBottom = () => {
         messagesEndRef.current?.scrollIntoView({ behavior: 'smooth' })
     }
 
     useEffect(() => {
+        // 이전 메시지를 앞에 붙인 경우에는 스크롤 위치 유지
+        if (skipScrollRef.current) {
+            skipScrollRef.current = false
+            return
+        }
         scrollToBottom()
     }, [messages])
 
@@ -169,40 +177,46 @@ function ChatRoom() {
         }
     }, [roomId])
 
-    const loadMessages = async () => {
-        setLoadingMessages(true)
-        try {
-            const data = await conversationService.getMessages(conversationId)
-            initialMessageCountRef.current = data.length;
-            const loadedMessages = data.map(m => ({
+    /**
+     * 서버 메시지를 화면용으로 변환 (피드백이 있는 AI 메시지는 별도 피드백 메시지로 분리)
+     */
+    const toViewMessages = (data) => {
+        const expandedMessages = []
+        data.forEach(m => {
+            const timestamp = new Date(m.createdAt).toLocaleTimeString('ko-KR', { hour: '2-digit', minute: '2-digit' })
+            expandedMessages.push({
                 id: m.id,
                 role: m.role,
                 content: m.content,
-                type: m.feedback ? undefined : undefined,
-                timestamp: new Date(m.createdAt).toLocaleTimeString('ko-KR', { hour: '2-digit', minute: '2-digit' }),
+                timestamp,
                 feedback: m.feedback,
-            }))
-
-            // 피드백이 있는 AI 메시지는 별도 피드백 메시지로 분리
-            const expandedMessages = []
-            loadedMessages.forEach(m => {
-                expandedMessages.push(m)
-                if (m.role === 'ai' && m.feedback && m.feedback.trim()) {
-                    expandedMessages.push({
-                        id: m.id + 0.5,
-                        role: 'ai',
-                        type: 'feedback',
-                        content: m.feedback,
-                        timestamp: m.timestamp,
-                    })
-                }
             })
+            if (m.role === 'ai' && m.feedback && m.feedback.trim()) {
+                expandedMessages.push({
+                    id: m.id + 0.5,
+                    role: 'ai',
+                    type: 'feedback',
+                    content: m.feedback,
+                    timestamp,
+                })
+            }
+        })
+        return expandedMessages
+    }
 
-            setMessages(expandedMessages)
-
-            // 첫 메시지에서 토픽 이름 추출
-            if (data.length > 0) {
-                const firstMsg = data[0].content
+    const loadMessages = async () => {
+        setLoadingMessages(true)
+        try {
+            const data = await conversationService.getMessages(conversationId)
+            initialMessageCountRef.current = data.messages.length;
+            setMessages(toViewMessages(data.messages))
+            setNextBefore(data.hasMore ? data.nextBefore : null)
+
+            // 대화 제목(토픽 이름), 없으면 첫 인사 메시지에서 추출
+            if (data.title) {
+                setChatTopicName(data.title)
+            } else if (data.messages.length > 0) {
+                const firstMsg = data.messages[0].content
                 const topicMatch = firstMsg.match(/topic is "([^"]+)"/)
                 if (topicMatch) setChatTopicName(topicMatch[1])
             }
@@ -213,6 +227,24 @@ function ChatRoom() {
         }
     }
 
+    /**
+     * 이전 메시지 더 불러오기 (현재 목록 앞에 추가)
+     */
+    const loadOlderMessages = async () => {
+        if (!nextBefore || loadingOlder) return
+        setLoadingOlder(true)
+        try {
+            const data = await conversationService.getMessages(conversationId, nextBefore)
+            skipScrollRef.current = true
+            setMessages(prev => [...toViewMessages(data.messages), ...prev])
+            setNextBefore(data.hasMore ? data.nextBefore : null)
+        } catch (err) {
+            console.error('이전 메시지 로드 실패:', err)
+        } finally {
+            setLoadingOlder(false)
+        }
+    }
+
     /**
      * 대화 히스토리를 백엔드 API 형식으로 변환
      */
@@ -260,8 +292,7 @@ function ChatRoom() {
                 const response = await conversationService.sendMessage(
                     conversationId,
                     currentInput,
-                    topicId || 6,
-                    buildHistory()
+                    topicId || 6
                 )
                 reply = response.reply
                 feedback = response.feedback
@@ -376,34 +407,45 @@ function ChatRoom() {
                         <p>이전 대화를 불러오는 중...</p>
                     </div>
                 ) : (
-                    messages.map((message) => (
-                        <div
-                            key={message.id}
-                            className={`message ${message.role === 'user' ? 'user' : 'ai'} ${message.type === 'feedback' ? 'feedback' : ''}`}
-                        >
-                            {message.role === 'ai' && (
-                                <div className="message-avatar">
-                                    {message.type === 'feedback' ? '📝' : '🤖'}
-                                </div>
-                            )}
-                            <div className={`message-content ${message.type === 'feedback' ? 'feedback-content' : ''}`}>
-                                <p className="message-text">{message.content}</p>
-                                <div className="message-meta">
-                                    <span className="message-time">{message.timestamp}</span>
-                                    {message.role === 'ai' && (
-                                        <button
-                                            className="tts-btn"
-                                            onClick={() => playAudio(message.content)}
-                                            title="들어보기"
-                                            aria-label="메시지 듣기"
-                                        >
-                                            🔊
-                                        </button>
-                                    )}
+                    <>
+                        {nextBefore && (
+                            <button
+                                className="load-older-btn"
+                                onClick={loadOlderMessages}
+                                disabled={loadingOlder}
+                            >
+                                {loadingOlder ? '불러오는 중...' : '이전 메시지 더 보기'}
+                            </button>
+                        )}
+                        {messages.map((message) => (
+                            <div
+                                key={message.id}
+                                className={`message ${message.role === 'user' ? 'user' : 'ai'} ${message.type === 'feedback' ? 'feedback' : ''}`}
+                            >
+                                {message.role === 'ai' && (
+                                    <div className="message-avatar">
+                                        {message.type === 'feedback' ? '📝' : '🤖'}
+                                    </div>
+                                )}
+                                <div className={`message-content ${message.type === 'feedback' ? 'feedback-content' : ''}`}>
+                                    <p className="message-text">{message.content}</p>
+                                    <div className="message-meta">
+                                        <span className="message-time">{message.timestamp}</span>
+                                        {message.role === 'ai' && (
+                                            <button
+                                                className="tts-btn"
+                                                onClick={() => playAudio(message.content)}
+                                                title="들어보기"
+                                                aria-label="메시지 듣기"
+                                            >
+                                                🔊
+                                            </button>
+                                        )}
+                                    </div>
                                 </div>
                             </div>
-                        </div>
-                    ))
+                        ))}
+                    </>
                 )}
 
                 {isTyping && (
@@ -20,6 +20,8 @@ function ConversationPage() {
     const navigate = useNavigate()
     const [recentChats, setRecentChats] = useState([])
     const [loadingChats, setLoadingChats] = useState(false)
+    const [nextCursor, setNextCursor] = useState(null)
+    const [loadingMore, setLoadingMore] = useState(false)
 
     useEffect(() => {
         if (isLoggedIn) {
@@ -31,7 +33,8 @@ function ConversationPage() {
         setLoadingChats(true)
         try {
             const data = await conversationService.getConversations()
-            setRecentChats(data)
+            setRecentChats(data.conversations)
+            setNextCursor(data.hasMore ? data.nextCursor : null)
         } catch (err) {
             console.error('대화 목록 조회 실패:', err)
         } finally {
@@ -39,6 +42,20 @@ function ConversationPage() {
         }
     }
 
+    const fetchMoreConversations = async () => {
+        if (!nextCursor || loadingMore) return
+        setLoadingMore(true)
+        try {
+            const data = await conversationService.getConversations(nextCursor)
+            setRecentChats(prev => [...prev, ...data.conversations])
+            setNextCursor(data.hasMore ? data.nextCursor : null)
+        } catch (err) {
+            console.error('대화 목록 조회 실패:', err)
+        } finally {
+            setLoadingMore(false)
+        }
+    }
+
     // 로그인 사용자: 새 대화 생성 후 채팅방 이동
     const handleTopicClick = async (topicId) => {
         if (!isLoggedIn) {
@@ -129,7 +146,14 @@ function ConversationPage() {
                                     </div>
                                     <div className="recent-content">
                                         <h4 className="recent-title">{chat.title}</h4>
-                                        <p className="recent-message">{formatTime(chat.updatedAt)}</p>
+                                        {chat.lastMessageSnippet && (
+                                            <p className="recent-snippet">
+                                                {chat.lastMessageRole === 'user' ? '나: ' : ''}{chat.lastMessageSnippet}
+                                            </p>
+                                        )}
+                                        <p className="recent-message">
+                                            {formatTime(chat.updatedAt)} · 메시지 {chat.messageCount}개
+                                        </p>
                                     </div>
                                     <button
                                         className="recent-delete-btn"
@@ -140,6 +164,15 @@ function ConversationPage() {
                                     </button>
                                 </Link>
                             ))}
+                            {nextCursor && (
+                                <button
+                                    className="recent-more-btn"
+                                    onClick={fetchMoreConversations}
+                                    disabled={loadingMore}
+                                >
+                                    {loadingMore ? '불러오는 중...' : '이전 대화 더 보기'}
+                                </button>
+                            )}
                         </div>
                     ) : (
                         <div className="recent-empty">
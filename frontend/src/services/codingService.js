@@ -156,15 +156,31 @@ const codingService = {
      * @returns {Promise} AI 피드백 결과 { summary, strengths, improvements, timeComplexity, tips }
      */
     async getAIFeedback(code, language, problemId, problemTitle) {
-        const response = await api.post('/code-review', {
+        // 작업을 등록하고 바로 jobId를 받은 뒤, 끝날 때까지 상태를 조회 (요청 연결을 오래 붙잡지 않음)
+        const { data: job } = await api.post('/code-review/jobs', {
             code,
             language,
             problemId,
             problemTitle,
-        }, {
-            timeout: 30000, // AI 분석은 시간이 걸릴 수 있으므로 30초
         });
-        return response.data;
+
+        const deadline = Date.now() + 60000;
+        let delay = 1000;
+        while (Date.now() < deadline) {
+            await new Promise((resolve) => setTimeout(resolve, delay));
+            const { data } = await api.get(`/code-review/jobs/${job.jobId}`);
+            if (data.status === 'COMPLETED') {
+                return data.result;
+            }
+            if (data.status === 'FAILED') {
+                return { summary: data.error, strengths: '', improvements: '', timeComplexity: '', tips: '' };
+            }
+            delay = Math.min(delay * 1.5, 3000);
+        }
+
+        const timeout = new Error('AI 코드 리뷰 시간이 초과되었습니다.');
+        timeout.code = 'ECONNABORTED';
+        throw timeout;
     },
 };
 
@@ -7,11 +7,13 @@ import api from './api'
 
 const conversationService = {
     /**
-     * 내 대화 목록 조회
-     * @returns {Promise} 대화 목록 [{ id, topicId, title, createdAt, updatedAt }]
+     * 내 대화 목록 조회 (최근 대화부터)
+     * @param {string} [cursor] - 이전 응답의 nextCursor (없으면 첫 페이지)
+     * @param {number} [limit] - 페이지 크기
+     * @returns {Promise} { conversations: [{ id, topicId, title, createdAt, updatedAt, messageCount, lastMessageRole, lastMessageSnippet }], hasMore, nextCursor }
      */
-    async getConversations() {
-        const response = await api.get('/conversations')
+    async getConversations(cursor, limit = 20) {
+        const response = await api.get('/conversations', { params: { cursor, limit } })
         return response.data
     },
 
@@ -26,12 +28,16 @@ const conversationService = {
     },
 
     /**
-     * 대화 메시지 조회
+     * 대화 메시지 조회 (최신 페이지부터)
      * @param {number} conversationId - 대화 ID
-     * @returns {Promise} 메시지 목록 [{ id, role, content, feedback, createdAt }]
+     * @param {number} [before] - 이 ID보다 오래된 메시지 조회 (없으면 가장 최근 페이지)
+     * @param {number} [limit] - 페이지 크기
+     * @returns {Promise} { messages: [{ id, role, content, feedback, createdAt }] (오래된 것부터), hasMore, nextBefore, title }
      */
-    async getMessages(conversationId) {
-        const response = await api.get(`/conversations/${conversationId}/messages`)
+    async getMessages(conversationId, before, limit = 50) {
+        const response = await api.get(`/conversations/${conversationId}/messages`, {
+            params: { before, limit },
+        })
         return response.data
     },
 
@@ -40,14 +46,13 @@ const conversationService = {
      * @param {number} conversationId - 대화 ID
      * @param {string} message - 사용자 메시지
      * @param {number} topicId - 토픽 ID
-     * @param {Array} history - 대화 히스토리
      * @returns {Promise} { reply, feedback }
+     * 대화 히스토리는 서버가 구성하므로 새 메시지만 전송
      */
-    async sendMessage(conversationId, message, topicId, history) {
+    async sendMessage(conversationId, message, topicId) {
         const response = await api.post(`/conversations/${conversationId}/messages`, {
             message,
             topicId,
-            history,
         }, {
             timeout: 30000,
         })